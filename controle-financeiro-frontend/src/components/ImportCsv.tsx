@@ -1,5 +1,5 @@
 import { useRef, useState } from "react";
-import { importCsvText, previewCsvText } from "../services/gastos";
+import { importCsvText, importPreviewToken, previewCsvText } from "../services/gastos";
 
 type Props = { onImported?: () => void };
 
@@ -24,7 +24,24 @@ export default function ImportCsv({ onImported }: Props) {
     qtdAvista: number;
     qtdParcelados: number;
     topItens: { descricao: string; categoria: string; valor: number; mesNumero: number; anoPagamento: number; parcelaAtual?: number; totalParcelas?: number }[];
+    token?: string | null;
   }>(null);
+  // Arquivo + opções do preview: o token só confirma a importação se nada mudou desde então
+  const [previewChave, setPreviewChave] = useState<string | null>(null);
+
+  function opcoesAtuais() {
+    return {
+      diaFechamento,
+      anchor: generateFuture ? false : anchor,
+      mesNumero,
+      anoPagamento,
+      statementMode: generateFuture ? false : statementMode,
+    };
+  }
+
+  function chaveDe(file: File) {
+    return JSON.stringify([file.name, file.size, file.lastModified, opcoesAtuais()]);
+  }
 
   function trySuggestFromFilename(file: File) {
     // Tenta extrair AAAA-MM do nome do arquivo
@@ -51,14 +68,20 @@ export default function ImportCsv({ onImported }: Props) {
     setBusy(true);
     setMsg(null);
     try {
-      const text = await file.text();
-      const r = await importCsvText(text, {
-        diaFechamento,
-        anchor: generateFuture ? false : anchor,
-        mesNumero,
-        anoPagamento,
-        statementMode: generateFuture ? false : statementMode,
-      });
+      let r: { totalLidas: number; importadas: number; ignoradas: number } | null = null;
+      if (preview?.token && previewChave === chaveDe(file)) {
+        // 404: o preview expirou ou foi descartado; cai no envio do CSV
+        r = await importPreviewToken(preview.token).catch((err: any) => {
+          if (err?.response?.status === 404) return null;
+          throw err;
+        });
+      }
+      if (!r) {
+        const text = await file.text();
+        r = await importCsvText(text, opcoesAtuais());
+      }
+      setPreview(null);
+      setPreviewChave(null);
       setMsg(`Fechamento ${diaFechamento} · Lidas ${r.totalLidas} · Importadas ${r.importadas} · Ignoradas ${r.ignoradas}`);
       setOpen(false);
       if (fileRef.current) fileRef.current.value = "";
@@ -76,17 +99,13 @@ export default function ImportCsv({ onImported }: Props) {
     if (!diaFechamento || diaFechamento < 1 || diaFechamento > 31) { alert("Informe o dia entre 1 e 31."); return; }
     trySuggestFromFilename(file);
     setPreview(null);
+    setPreviewChave(null);
     setBusy(true);
     try {
       const text = await file.text();
-      const p = await previewCsvText(text, {
-        diaFechamento,
-        anchor: generateFuture ? false : anchor,
-        mesNumero,
-        anoPagamento,
-        statementMode: generateFuture ? false : statementMode,
-      });
+      const p = await previewCsvText(text, opcoesAtuais());
       setPreview(p);
+      setPreviewChave(chaveDe(file));
     } catch (err: any) {
       setMsg(`Erro no preview: ${err?.response?.data || err.message}`);
     } finally {
@@ -209,7 +228,7 @@ export default function ImportCsv({ onImported }: Props) {
 
               <div className="mt-4 flex justify-end gap-2">
                 <button onClick={handlePreview} disabled={busy} className="px-3 py-2 rounded ring-1 ring-zinc-700">Ver resumo</button>
-                <button onClick={() => { setOpen(false); setPreview(null); if (fileRef.current) fileRef.current.value = ""; }} className="px-3 py-2 rounded ring-1 ring-zinc-700">Cancelar</button>
+                <button onClick={() => { setOpen(false); setPreview(null); setPreviewChave(null); if (fileRef.current) fileRef.current.value = ""; }} className="px-3 py-2 rounded ring-1 ring-zinc-700">Cancelar</button>
                 <button onClick={handleImport} disabled={busy} className="px-3 py-2 rounded bg-indigo-600 hover:bg-indigo-500 text-white disabled:opacity-50">Importar</button>
               </div>
             </div>
@@ -50,9 +50,21 @@ export async function previewCsvText(csvText: string, opts?: ImportOptions) {
     qtdAvista: number;
     qtdParcelados: number;
     topItens: { descricao: string; categoria: string; valor: number; mesNumero: number; anoPagamento: number; parcelaAtual?: number; totalParcelas?: number }[];
+    estornos?: {
+      conciliados: EstornoItem[];
+      naoConciliados: EstornoItem[];
+    };
+    token?: string | null; // confirma a importação via importPreviewToken
   };
 }
 
+export async function importPreviewToken(token: string) {
+  const res = await api.post(`/gastos/importar-preview/${encodeURIComponent(token)}`);
+  return res.data as { totalLidas: number; importadas: number; ignoradas: number };
+}
+
+export type EstornoItem = { linha: number; descricao: string; valor: number; descricaoCompra?: string | null };
+
 export async function listarGastosPaginado(params: {
   mesNumero: number;
   anoPagamento: number;
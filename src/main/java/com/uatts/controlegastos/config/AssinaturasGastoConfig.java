@@ -0,0 +1,36 @@
+package com.uatts.controlegastos.config;
+
+import com.uatts.controlegastos.model.Manutencao;
+import com.uatts.controlegastos.repository.ManutencaoRepository;
+import com.uatts.controlegastos.service.GastoService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.LocalDateTime;
+
+@Configuration
+public class AssinaturasGastoConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(AssinaturasGastoConfig.class);
+
+    private static final String BACKFILL_ASSINATURAS = "backfill-assinaturas";
+
+    // A deduplicação da importação compara pela coluna assinatura. Os gastos importados antes dela existir são
+    // preenchidos uma vez, na primeira subida (marcada em "manutencao"), sem depender do
+    // /api/admin/backfill-assinaturas. Os lançamentos manuais seguem sem assinatura e são cobertos pela
+    // consulta de apoio da importação.
+    @Bean
+    ApplicationRunner preencherAssinaturasGasto(GastoService gastoService, ManutencaoRepository manutencoes,
+                                                @Value("${app.importacao.backfill-assinaturas:true}") boolean ativo) {
+        return args -> {
+            if (!ativo || manutencoes.existsById(BACKFILL_ASSINATURAS)) return;
+            int preenchidas = gastoService.backfillAssinaturas();
+            manutencoes.save(new Manutencao(BACKFILL_ASSINATURAS, LocalDateTime.now()));
+            log.info("Assinatura preenchida em {} gasto(s) importado(s)", preenchidas);
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package com.uatts.controlegastos.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AsyncMvcConfig implements WebMvcConfigurer {
+
+    @Value("${app.mvc.async.threads:4}")
+    private int threads;
+
+    @Value("${app.mvc.async.fila:20}")
+    private int fila;
+
+    // Pool das respostas assíncronas do MVC (StreamingResponseBody de /api/gastos/exportar). Os pools de
+    // importação e do dashboard fazem o Boot não criar o applicationTaskExecutor, e sem executor o MVC cai no
+    // SimpleAsyncTaskExecutor (uma thread nova por requisição, sem limite). Com a fila cheia, a própria thread
+    // da requisição escreve a resposta.
+    @Bean
+    ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(fila);
+        executor.setThreadNamePrefix("mvc-async-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+    }
+}
@@ -0,0 +1,27 @@
+package com.uatts.controlegastos.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class DashboardConfig {
+
+    // Pool das leituras paralelas de /api/dashboard. Limitado para não disputar todas as conexões do banco;
+    // com a fila cheia, a própria thread da requisição executa a leitura (degrada para sequencial).
+    @Bean
+    ThreadPoolTaskExecutor dashboardExecutor(
+            @Value("${app.dashboard.threads:8}") int threads,
+            @Value("${app.dashboard.fila:100}") int fila) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(fila);
+        executor.setThreadNamePrefix("dashboard-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+}
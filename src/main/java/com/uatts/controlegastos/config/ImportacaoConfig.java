@@ -0,0 +1,25 @@
+package com.uatts.controlegastos.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ImportacaoConfig {
+
+    // Pool limitado para os jobs de importação: tira o trabalho pesado das threads do Tomcat
+    // sem deixar várias importações grandes competirem pelo banco ao mesmo tempo.
+    @Bean
+    ThreadPoolTaskExecutor importacaoExecutor(
+            @Value("${app.importacao.jobs.threads:2}") int threads,
+            @Value("${app.importacao.jobs.fila:20}") int fila) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(fila);
+        executor.setThreadNamePrefix("importacao-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
@@ -0,0 +1,49 @@
+package com.uatts.controlegastos.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.List;
+
+@Configuration
+public class IndicesGastoConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(IndicesGastoConfig.class);
+
+    // índices anteriores, sem user_id: substituídos pelos de Gasto que começam pelo usuário
+    // (o ddl-auto cria índices novos, mas nunca remove os antigos). idx_gasto_categoria_upper só servia à
+    // renomeação de "Importado" na subida, uma leitura por boot que não paga o índice a cada escrita
+    private static final List<String> OBSOLETOS = List.of("idx_gasto_mes_ano", "idx_gasto_mes_ano_pago", "idx_gasto_categoria",
+            "idx_gasto_categoria_upper");
+
+    // índices por expressão, que o @Index não expressa: os IgnoreCase do Spring Data comparam upper(coluna).
+    // GET /api/gastos/mes/{mes} e /filtros buscam por mesPagamento de todos os usuários (sem user_id), então
+    // este não começa pelo usuário. O lower(categoria) de pageByPeriodoExcluindoCategoria é um "<>", que índice
+    // nenhum restringe; o mês do usuário já vem de idx_gasto_user_periodo
+    private static final List<String> EXPRESSOES = List.of(
+            "CREATE INDEX IF NOT EXISTS idx_gasto_mes_pagamento_upper ON gasto (upper(mes_pagamento), ano_pagamento)");
+
+    // Só PostgreSQL; a regressão de planos das consultas fica em PlanosConsultasTest
+    @Bean
+    ApplicationRunner ajustarIndicesGasto(DataSource dataSource) {
+        return args -> {
+            try (Connection c = dataSource.getConnection()) {
+                if (!"PostgreSQL".equalsIgnoreCase(c.getMetaData().getDatabaseProductName())) return;
+            }
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            for (String indice : OBSOLETOS) {
+                jdbc.execute("DROP INDEX IF EXISTS " + indice);
+            }
+            for (String ddl : EXPRESSOES) {
+                jdbc.execute(ddl);
+            }
+            log.info("Índices de gasto ajustados ({} por expressão)", EXPRESSOES.size());
+        };
+    }
+}
@@ -4,15 +4,21 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Configuration
 public class SecurityConfig {
@@ -20,15 +26,24 @@ public class SecurityConfig {
     @Value("${ALLOWED_ORIGINS:http://localhost:5173}")
     private String allowedOrigins;
 
+    // subjects (JWT) que podem chamar /api/admin/** (backfills e verificação do consolidado); vazio = ninguém
+    @Value("${app.admin.usuarios:}")
+    private String administradores;
+
     @Bean
     SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+        Set<String> admins = Arrays.stream(administradores.split(",")).map(String::trim)
+                .filter(s -> !s.isEmpty()).collect(Collectors.toSet());
         http
                 .csrf(csrf -> csrf.disable())
                 .cors(Customizer.withDefaults())
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
-                        .requestMatchers("/actuator/**").permitAll()
+                        .requestMatchers("/actuator/health/**", "/actuator/info").permitAll()
+                        // métricas (contadores de importação, deduplicação, caches) só com token
+                        .requestMatchers("/actuator/**").authenticated()
+                        .requestMatchers("/api/admin/**").access((autenticacao, ctx) -> new AuthorizationDecision(administrador(autenticacao.get(), admins)))
                         .requestMatchers("/api/**").authenticated()
                         .anyRequest().permitAll()
                 )
@@ -36,6 +51,10 @@ public class SecurityConfig {
         return http.build();
     }
 
+    private static boolean administrador(Authentication auth, Set<String> admins) {
+        return auth != null && auth.getPrincipal() instanceof Jwt jwt && admins.contains(jwt.getSubject());
+    }
+
     @Bean
     CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration cfg = new CorsConfiguration();
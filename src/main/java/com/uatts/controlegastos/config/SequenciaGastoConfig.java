@@ -0,0 +1,33 @@
+package com.uatts.controlegastos.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+@Configuration
+public class SequenciaGastoConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(SequenciaGastoConfig.class);
+
+    // Gasto passou de IDENTITY para a sequência gasto_seq (criada pelo ddl-auto começando em 1).
+    // Em bancos que já têm gastos, a sequência é avançada até o MAX(id) para os novos ids não colidirem;
+    // nunca é recuada. Com allocationSize 50, o próximo bloco começa logo após o valor ajustado.
+    @Bean
+    ApplicationRunner alinharSequenciaGasto(DataSource dataSource) {
+        return args -> {
+            try (Connection c = dataSource.getConnection()) {
+                if (!"PostgreSQL".equalsIgnoreCase(c.getMetaData().getDatabaseProductName())) return;
+            }
+            Long valor = new JdbcTemplate(dataSource).queryForObject(
+                    "SELECT setval('gasto_seq', GREATEST((SELECT COALESCE(MAX(id), 1) FROM gasto), " +
+                    "(SELECT last_value FROM gasto_seq)))", Long.class);
+            log.info("Sequência gasto_seq alinhada em {}", valor);
+        };
+    }
+}
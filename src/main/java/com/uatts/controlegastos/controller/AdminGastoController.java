@@ -1,5 +1,6 @@
 package com.uatts.controlegastos.controller;
 
+import com.uatts.controlegastos.service.ConsolidadoMensalService;
 import com.uatts.controlegastos.service.GastoService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -11,9 +12,11 @@ import java.util.Map;
 public class AdminGastoController {
 
     private final GastoService gastoService;
+    private final ConsolidadoMensalService consolidadoService;
 
-    public AdminGastoController(GastoService gastoService) {
+    public AdminGastoController(GastoService gastoService, ConsolidadoMensalService consolidadoService) {
         this.gastoService = gastoService;
+        this.consolidadoService = consolidadoService;
     }
 
     @PostMapping("/backfill-mes-ano")
@@ -23,4 +26,22 @@ public class AdminGastoController {
                 "updated", updated
         ));
     }
-}
\ No newline at end of file
+
+    @PostMapping("/backfill-assinaturas")
+    public ResponseEntity<Map<String, Object>> backfillAssinaturas() {
+        int updated = gastoService.backfillAssinaturas();
+        return ResponseEntity.ok(Map.of(
+                "updated", updated
+        ));
+    }
+
+    @PostMapping("/verificar-consolidado")
+    public ResponseEntity<Map<String, Object>> verificarConsolidado() {
+        var verificacao = consolidadoService.verificar();
+        return ResponseEntity.ok(Map.of(
+                "periodos", verificacao.periodos(),
+                "corrigidos", verificacao.divergentes(),
+                "saldosRemontados", verificacao.saldosRemontados()
+        ));
+    }
+}
@@ -4,6 +4,7 @@ import com.uatts.controlegastos.model.Cartao;
 import com.uatts.controlegastos.repository.CartaoRepository;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -16,10 +17,14 @@ public class CartaoController {
     public CartaoController(CartaoRepository repo) { this.repo = repo; }
 
     @GetMapping
-    public List<Cartao> listar() { return repo.findAll(); }
+    public ResponseEntity<List<Cartao>> listar(WebRequest request) {
+        return RespostasCondicionais.condicional(request, RespostasCondicionais.etag("cartoes", 0), repo::findAll);
+    }
 
     @GetMapping("/ativos")
-    public List<Cartao> listarAtivos() { return repo.findByAtivoTrue(); }
+    public ResponseEntity<List<Cartao>> listarAtivos(WebRequest request) {
+        return RespostasCondicionais.condicional(request, RespostasCondicionais.etag("ativos", 0), repo::findByAtivoTrue);
+    }
 
     @PostMapping
     public ResponseEntity<Cartao> criar(@RequestBody Cartao c) {
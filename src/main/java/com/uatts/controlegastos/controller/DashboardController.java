@@ -0,0 +1,55 @@
+package com.uatts.controlegastos.controller;
+
+import com.uatts.controlegastos.dto.DashboardDTO;
+import com.uatts.controlegastos.service.DashboardService;
+import com.uatts.controlegastos.service.VersoesPeriodo;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+@RestController
+@RequestMapping("/api/dashboard")
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+    private final VersoesPeriodo versoes;
+
+    public DashboardController(DashboardService dashboardService, VersoesPeriodo versoes) {
+        this.dashboardService = dashboardService;
+        this.versoes = versoes;
+    }
+
+    private String getUsuarioAtual() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof Jwt jwt) {
+            return jwt.getSubject();
+        }
+        return null;
+    }
+
+    // mesmos parâmetros de /api/gastos/paginado (?page=&size=&sort=, pago, excludeCategoria)
+    @GetMapping
+    public ResponseEntity<DashboardDTO> carregar(
+            @RequestParam Integer mesNumero,
+            @RequestParam Integer anoPagamento,
+            @RequestParam(required = false) Boolean pago,
+            @RequestParam(required = false) String excludeCategoria,
+            Pageable pageable,
+            WebRequest request
+    ) {
+        String usuario = getUsuarioAtual();
+        if (usuario == null) {
+            return ResponseEntity.status(401).build();
+        }
+        String etag = RespostasCondicionais.etag(usuario, versoes.versao(usuario, mesNumero, anoPagamento));
+        return RespostasCondicionais.condicional(request, etag,
+                () -> dashboardService.carregar(usuario, mesNumero, anoPagamento, pago, excludeCategoria, pageable));
+    }
+}
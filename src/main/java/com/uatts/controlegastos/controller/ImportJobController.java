@@ -0,0 +1,163 @@
+package com.uatts.controlegastos.controller;
+
+import com.uatts.controlegastos.dto.ImportJobStatusDTO;
+import com.uatts.controlegastos.model.Cartao;
+import com.uatts.controlegastos.repository.CartaoRepository;
+import com.uatts.controlegastos.service.ImportJobService;
+import com.uatts.controlegastos.service.ImportacaoStreamingService;
+import com.uatts.controlegastos.service.OpcoesImportacao;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Importação/preview de CSV como job: o POST só recebe o arquivo e devolve o id (202);
+ * o processamento roda no pool de importação e é acompanhado por GET /api/import-jobs/{id}.
+ */
+@RestController
+@RequestMapping("/api/import-jobs")
+public class ImportJobController {
+
+    private final ImportJobService importJobService;
+    private final ImportacaoStreamingService importacaoStreamingService;
+    private final CartaoRepository cartaoRepository;
+
+    public ImportJobController(ImportJobService importJobService,
+                               ImportacaoStreamingService importacaoStreamingService,
+                               CartaoRepository cartaoRepository) {
+        this.importJobService = importJobService;
+        this.importacaoStreamingService = importacaoStreamingService;
+        this.cartaoRepository = cartaoRepository;
+    }
+
+    private String getUsuarioAtual() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof Jwt jwt) {
+            return jwt.getSubject();
+        }
+        return null;
+    }
+
+    @PostMapping(value = "/importar", consumes = {MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<ImportJobStatusDTO> importar(
+            HttpServletRequest request,
+            @RequestParam(required = false) Integer mesNumero,
+            @RequestParam(required = false) Integer anoPagamento,
+            @RequestParam(required = false, defaultValue = "false") Boolean statementMode,
+            @RequestParam(required = false, defaultValue = "false") Boolean anchor,
+            @RequestParam(required = false) Long cartaoId,
+            @RequestParam(required = false) Integer diaFechamento
+    ) throws IOException {
+        OpcoesImportacao opcoes = opcoes(mesNumero, anoPagamento, statementMode, anchor, cartaoId, diaFechamento);
+        if (opcoes.userId() == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        Path spool = importacaoStreamingService.spool(request.getInputStream(), charset(request));
+        return aceito(importJobService.submeterImportacao(spool, opcoes));
+    }
+
+    @PostMapping(value = "/importar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportJobStatusDTO> importarMultipart(
+            @RequestParam("arquivo") MultipartFile arquivo,
+            @RequestParam(required = false) Integer mesNumero,
+            @RequestParam(required = false) Integer anoPagamento,
+            @RequestParam(required = false, defaultValue = "false") Boolean statementMode,
+            @RequestParam(required = false, defaultValue = "false") Boolean anchor,
+            @RequestParam(required = false) Long cartaoId,
+            @RequestParam(required = false) Integer diaFechamento
+    ) throws IOException {
+        OpcoesImportacao opcoes = opcoes(mesNumero, anoPagamento, statementMode, anchor, cartaoId, diaFechamento);
+        if (opcoes.userId() == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        Path spool = spool(arquivo);
+        return aceito(importJobService.submeterImportacao(spool, opcoes));
+    }
+
+    @PostMapping(value = "/preview", consumes = {MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<ImportJobStatusDTO> preview(
+            HttpServletRequest request,
+            @RequestParam(required = false) Integer diaFechamento,
+            @RequestParam(required = false) Long cartaoId,
+            @RequestParam(required = false, defaultValue = "false") Boolean statementMode,
+            @RequestParam(required = false, defaultValue = "false") Boolean anchor,
+            @RequestParam(required = false) Integer mesNumero,
+            @RequestParam(required = false) Integer anoPagamento
+    ) throws IOException {
+        OpcoesImportacao opcoes = opcoes(mesNumero, anoPagamento, statementMode, anchor, cartaoId, diaFechamento);
+        if (opcoes.userId() == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        Path spool = importacaoStreamingService.spool(request.getInputStream(), charset(request));
+        return aceito(importJobService.submeterPreview(spool, opcoes));
+    }
+
+    @PostMapping(value = "/preview", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportJobStatusDTO> previewMultipart(
+            @RequestParam("arquivo") MultipartFile arquivo,
+            @RequestParam(required = false) Integer diaFechamento,
+            @RequestParam(required = false) Long cartaoId,
+            @RequestParam(required = false, defaultValue = "false") Boolean statementMode,
+            @RequestParam(required = false, defaultValue = "false") Boolean anchor,
+            @RequestParam(required = false) Integer mesNumero,
+            @RequestParam(required = false) Integer anoPagamento
+    ) throws IOException {
+        OpcoesImportacao opcoes = opcoes(mesNumero, anoPagamento, statementMode, anchor, cartaoId, diaFechamento);
+        if (opcoes.userId() == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        Path spool = spool(arquivo);
+        return aceito(importJobService.submeterPreview(spool, opcoes));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportJobStatusDTO> status(@PathVariable String id) {
+        String usuario = getUsuarioAtual();
+        if (usuario == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        return importJobService.buscar(id, usuario)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ImportJobStatusDTO> cancelar(@PathVariable String id) {
+        String usuario = getUsuarioAtual();
+        if (usuario == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        return importJobService.cancelar(id, usuario)
+                .map(s -> ResponseEntity.status(HttpStatus.ACCEPTED).body(s))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private static ResponseEntity<ImportJobStatusDTO> aceito(ImportJobStatusDTO status) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/import-jobs/" + status.id()))
+                .body(status);
+    }
+
+    private Path spool(MultipartFile arquivo) throws IOException {
+        try (InputStream in = arquivo.getInputStream()) {
+            return importacaoStreamingService.spool(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Charset charset(HttpServletRequest request) {
+        return request.getCharacterEncoding() != null
+                ? Charset.forName(request.getCharacterEncoding())
+                : StandardCharsets.UTF_8;
+    }
+
+    private OpcoesImportacao opcoes(Integer mesNumero, Integer anoPagamento, Boolean statementMode,
+                                    Boolean anchor, Long cartaoId, Integer diaFechamento) {
+        Cartao cartao = null;
+        if (cartaoId != null) {
+            cartao = cartaoRepository.findById(cartaoId).orElse(null);
+        }
+        return new OpcoesImportacao(getUsuarioAtual(), cartao, diaFechamento,
+                Boolean.TRUE.equals(statementMode), Boolean.TRUE.equals(anchor), mesNumero, anoPagamento);
+    }
+}
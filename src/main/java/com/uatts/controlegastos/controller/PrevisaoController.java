@@ -0,0 +1,46 @@
+package com.uatts.controlegastos.controller;
+
+import com.uatts.controlegastos.dto.PrevisaoDTO;
+import com.uatts.controlegastos.service.PrevisaoService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/forecast")
+public class PrevisaoController {
+
+    private final PrevisaoService previsaoService;
+
+    public PrevisaoController(PrevisaoService previsaoService) {
+        this.previsaoService = previsaoService;
+    }
+
+    private String getUsuarioAtual() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof Jwt jwt) {
+            return jwt.getSubject();
+        }
+        return null;
+    }
+
+    /** Próximos {@code meses} meses; {@code quitar} simula a quitação antecipada das compras (ids da resposta). */
+    @GetMapping
+    public ResponseEntity<PrevisaoDTO> prever(
+            @RequestParam(defaultValue = "12") Integer meses,
+            @RequestParam(required = false) List<String> quitar
+    ) {
+        String usuario = getUsuarioAtual();
+        if (usuario == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(previsaoService.prever(usuario, meses, quitar));
+    }
+}
@@ -0,0 +1,38 @@
+package com.uatts.controlegastos.controller;
+
+import com.uatts.controlegastos.listener.CartaoListener;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * GETs condicionais: a resposta leva um ETag da versão dos dados e {@code Cache-Control: no-cache, private}
+ * (o navegador guarda e sempre revalida); com {@code If-None-Match} igual, responde 304 sem calcular o corpo.
+ */
+final class RespostasCondicionais {
+
+    // as versões recomeçam a cada subida: o início do processo entra no ETag
+    private static final String INICIO = Long.toString(System.currentTimeMillis(), 36);
+    private static final CacheControl REVALIDAR = CacheControl.noCache().cachePrivate();
+
+    private RespostasCondicionais() {}
+
+    /**
+     * ETag de uma versão; o escopo (ex.: o usuário) evita que respostas de escopos diferentes se confundam.
+     * Os lançamentos trazem o cartão, então a versão dos cartões entra em todos.
+     */
+    static String etag(String escopo, long versao) {
+        return "\"" + INICIO + "." + Long.toString(CartaoListener.versao(), 36) + "."
+                + Integer.toHexString(escopo.hashCode()) + "." + Long.toString(versao, 36) + "\"";
+    }
+
+    static <T> ResponseEntity<T> condicional(WebRequest request, String etag, Supplier<T> corpo) {
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDAR).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDAR).body(corpo.get());
+    }
+}
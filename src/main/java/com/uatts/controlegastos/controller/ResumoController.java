@@ -1,9 +1,16 @@
 package com.uatts.controlegastos.controller;
 
+import com.uatts.controlegastos.dto.SaldoMensalDTO;
 import com.uatts.controlegastos.service.ResumoService;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -16,9 +23,40 @@ public class ResumoController {
         this.resumoService = resumoService;
     }
 
+    private String getUsuarioAtual() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof Jwt jwt) {
+            return jwt.getSubject();
+        }
+        return null;
+    }
+
+    // mes no formato YYYY-MM
     @GetMapping("/{mes}")
     public ResponseEntity<Map<String, Double>> getResumoMensal(@PathVariable String mes) {
-        Map<String, Double> resumo = resumoService.calcularResumo(mes);
+        String usuario = getUsuarioAtual();
+        if (usuario == null) {
+            return ResponseEntity.status(401).build();
+        }
+        Map<String, Double> resumo = resumoService.calcularResumo(usuario, parseAnoMes("mes", mes));
         return ResponseEntity.ok(resumo);
     }
-}
\ No newline at end of file
+
+    /** Receitas, despesas, saldo e saldo acumulado de cada mês entre {@code de} e {@code ate} (YYYY-MM). */
+    @GetMapping
+    public ResponseEntity<List<SaldoMensalDTO>> getSaldos(@RequestParam String de, @RequestParam String ate) {
+        String usuario = getUsuarioAtual();
+        if (usuario == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(resumoService.calcularSaldos(usuario, parseAnoMes("de", de), parseAnoMes("ate", ate)));
+    }
+
+    private static YearMonth parseAnoMes(String nome, String valor) {
+        try {
+            return YearMonth.parse(valor.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Parâmetro '" + nome + "' deve estar no formato YYYY-MM");
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.uatts.controlegastos.dto;
+
+/** Compra parcelada em aberto; o id é o usado em {@code quitar} na previsão. */
+public record CompraParceladaDTO(String id, String descricao, String categoria, Double valorParcela,
+                                 Integer parcelasRestantes, Double saldoDevedor, boolean quitada) {}
@@ -0,0 +1,10 @@
+package com.uatts.controlegastos.dto;
+
+import com.uatts.controlegastos.model.Gasto;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+/** Leituras da tela do mês em uma resposta: os mesmos conteúdos de /paginado, /resumo, /resumo-por-categoria e da receita. */
+public record DashboardDTO(Page<Gasto> gastos, ResumoMensalDTO resumo, List<CategoriaResumoDTO> categorias,
+                           ReceitaMensalResponse receita) {}
@@ -0,0 +1,4 @@
+package com.uatts.controlegastos.dto;
+
+/** Linha de estorno/cancelamento do CSV e, se conciliada, a compra que ela anulou. */
+public record EstornoItemDTO(int linha, String descricao, double valor, String descricaoCompra) {}
@@ -0,0 +1,17 @@
+package com.uatts.controlegastos.dto;
+
+import java.time.Instant;
+
+public record ImportJobStatusDTO(
+        String id,
+        String tipo,
+        String etapa,
+        long linhasProcessadas,
+        int totalLidas,
+        int importadas,
+        int ignoradas,
+        String erro,
+        Instant criadoEm,
+        Instant finalizadoEm,
+        Object resultado
+) {}
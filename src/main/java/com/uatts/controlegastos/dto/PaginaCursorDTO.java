@@ -0,0 +1,9 @@
+package com.uatts.controlegastos.dto;
+
+import java.util.List;
+
+/**
+ * Página de uma listagem por cursor: {@code proximoCursor} é null na última página; {@code total} só vem
+ * quando pedido.
+ */
+public record PaginaCursorDTO<T>(List<T> itens, String proximoCursor, Long total) {}
@@ -12,6 +12,8 @@ public class PreviewResponseDTO {
     private Long qtdAvista;
     private Long qtdParcelados;
     private List<PreviewItemDTO> topItens;
+    private ReconciliacaoEstornosDTO estornos;
+    private String token;
 
     public PreviewResponseDTO() {}
 
@@ -59,4 +61,10 @@ public class PreviewResponseDTO {
 
     public List<PreviewItemDTO> getTopItens() { return topItens; }
     public void setTopItens(List<PreviewItemDTO> topItens) { this.topItens = topItens; }
+
+    public ReconciliacaoEstornosDTO getEstornos() { return estornos; }
+    public void setEstornos(ReconciliacaoEstornosDTO estornos) { this.estornos = estornos; }
+
+    public String getToken() { return token; }
+    public void setToken(String token) { this.token = token; }
 }
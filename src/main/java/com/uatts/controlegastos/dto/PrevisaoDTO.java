@@ -0,0 +1,5 @@
+package com.uatts.controlegastos.dto;
+
+import java.util.List;
+
+public record PrevisaoDTO(List<PrevisaoMensalDTO> meses, List<CompraParceladaDTO> compras) {}
@@ -0,0 +1,7 @@
+package com.uatts.controlegastos.dto;
+
+/**
+ * Mês da previsão: receita cadastrada, parcelas que vencem nele, quitações antecipadas simuladas (só no
+ * primeiro mês) e o saldo que sobra.
+ */
+public record PrevisaoMensalDTO(Integer ano, Integer mes, Double receitas, Double parcelas, Double quitacoes, Double saldo) {}
@@ -0,0 +1,5 @@
+package com.uatts.controlegastos.dto;
+
+import java.util.List;
+
+public record ReconciliacaoEstornosDTO(List<EstornoItemDTO> conciliados, List<EstornoItemDTO> naoConciliados) {}
@@ -0,0 +1,4 @@
+package com.uatts.controlegastos.dto;
+
+/** Receitas, despesas e saldo de um mês, com o saldo acumulado de todos os meses até ele. */
+public record SaldoMensalDTO(Integer ano, Integer mes, Double receitas, Double despesas, Double saldo, Double saldoAcumulado) {}
@@ -0,0 +1,18 @@
+package com.uatts.controlegastos.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Resumo de um mês da tendência, com o detalhe por categoria (maiores totais primeiro). */
+public class TendenciaMensalDTO extends ResumoMensalDTO {
+    private List<CategoriaResumoDTO> categorias = new ArrayList<>();
+
+    public TendenciaMensalDTO() {}
+
+    public TendenciaMensalDTO(Integer mesNumero, Integer anoPagamento) {
+        super(mesNumero, anoPagamento, 0.0, 0.0, 0.0, 0L);
+    }
+
+    public List<CategoriaResumoDTO> getCategorias() { return categorias; }
+    public void setCategorias(List<CategoriaResumoDTO> categorias) { this.categorias = categorias; }
+}
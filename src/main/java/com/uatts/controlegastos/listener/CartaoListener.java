@@ -0,0 +1,37 @@
+package com.uatts.controlegastos.listener;
+
+import com.uatts.controlegastos.model.Cartao;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CartaoListener {
+
+    private static final AtomicLong VERSAO = new AtomicLong();
+
+    /** Muda a cada cartão gravado ou excluído (após o commit): caches derivados dos cartões se remontam. */
+    public static long versao() {
+        return VERSAO.get();
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void alterado(Cartao c) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // só depois do commit, para quem remontar já ler o cartão novo
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    VERSAO.incrementAndGet();
+                }
+            });
+        } else {
+            VERSAO.incrementAndGet();
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.uatts.controlegastos.listener;
 
+import com.uatts.controlegastos.model.ConsolidadoMensal;
 import com.uatts.controlegastos.model.Gasto;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 
@@ -29,6 +33,14 @@ public class GastoListener {
         // }
     }
 
+    // período como está no banco, para o consolidado mensal saber de onde o lançamento saiu
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    public void guardarPeriodo(Gasto g) {
+        g.setPeriodoCarregado(ConsolidadoMensal.Periodo.de(g));
+    }
+
     private Integer tryParseMes(String mesPag) {
         if (mesPag == null) return null;
         String s = mesPag.trim().toLowerCase();
@@ -1,8 +1,10 @@
 package com.uatts.controlegastos.model;
 
+import com.uatts.controlegastos.listener.CartaoListener;
 import jakarta.persistence.*;
 
 @Entity
+@EntityListeners(CartaoListener.class)
 public class Cartao {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -15,7 +17,7 @@ public class Cartao {
     private Integer diaFechamento = 1; // 1-31
 
     @Column(length = 255)
-    private String palavrasChave; // opcional para futura auto-detecção
+    private String palavrasChave; // opcional; separadas por vírgula, detectam o cartão na importação (DeteccaoCartao)
 
     @Column(nullable = false)
     private boolean ativo = true;
@@ -0,0 +1,91 @@
+package com.uatts.controlegastos.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Totais de um usuário por mês de competência e categoria (lançamentos com valor positivo, como nos resumos),
+ * mantidos pelo {@code ConsolidadoMensalService} a cada gravação de Gasto. Lançamentos sem mês ficam de fora.
+ * {@code linhas}/{@code linhasPagas} contam todos os lançamentos (qualquer valor), para o total das listagens.
+ */
+@Entity
+@Table(
+        name = "consolidado_mensal",
+        indexes = {
+                @Index(name = "idx_consolidado_user_periodo", columnList = "user_id, ano, mes")
+        },
+        uniqueConstraints = {
+                // uma linha por categoria do mês; o recálculo regrava o mês sob a trava dele (TravasRepository)
+                @UniqueConstraint(name = "uk_consolidado_user_periodo_categoria", columnNames = {"user_id", "ano", "mes", "categoria"})
+        }
+)
+public class ConsolidadoMensal {
+
+    /** Mês de um usuário no consolidado. */
+    public record Periodo(String userId, int ano, int mes) {
+        /** Período do lançamento; null se ele não entra no consolidado (sem usuário, ano ou mês). */
+        public static Periodo de(Gasto g) {
+            if (g.getUserId() == null || g.getAnoPagamento() == null || g.getMesNumero() == null) return null;
+            return new Periodo(g.getUserId(), g.getAnoPagamento(), g.getMesNumero());
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false, length = 128)
+    private String userId;
+
+    @Column(nullable = false)
+    private Integer ano;
+
+    @Column(nullable = false)
+    private Integer mes;
+
+    @Column(nullable = false, length = 50)
+    private String categoria;
+
+    @Column(nullable = false)
+    private Double total;
+
+    @Column(nullable = false)
+    private Double totalPago;
+
+    @Column(nullable = false)
+    private Long quantidade;
+
+    // null nas linhas gravadas antes destas colunas existirem (a verificação da subida as preenche)
+    private Long linhas;
+
+    private Long linhasPagas;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public Integer getAno() { return ano; }
+    public void setAno(Integer ano) { this.ano = ano; }
+
+    public Integer getMes() { return mes; }
+    public void setMes(Integer mes) { this.mes = mes; }
+
+    public String getCategoria() { return categoria; }
+    public void setCategoria(String categoria) { this.categoria = categoria; }
+
+    public Double getTotal() { return total; }
+    public void setTotal(Double total) { this.total = total; }
+
+    public Double getTotalPago() { return totalPago; }
+    public void setTotalPago(Double totalPago) { this.totalPago = totalPago; }
+
+    public Long getQuantidade() { return quantidade; }
+    public void setQuantidade(Long quantidade) { this.quantidade = quantidade; }
+
+    public Long getLinhas() { return linhas; }
+    public void setLinhas(Long linhas) { this.linhas = linhas; }
+
+    public Long getLinhasPagas() { return linhasPagas; }
+    public void setLinhasPagas(Long linhasPagas) { this.linhasPagas = linhasPagas; }
+}
@@ -1,21 +1,36 @@
 package com.uatts.controlegastos.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.uatts.controlegastos.listener.GastoListener;
 import jakarta.persistence.*;
 
 @Entity
 @Table(
+        // todas as consultas por usuário começam pelo user_id; o índice por upper(mes_pagamento) das buscas globais
+        // por mês e a remoção dos antigos, sem user_id, ficam em IndicesGastoConfig (só PostgreSQL)
         indexes = {
-                @Index(name = "idx_gasto_mes_ano", columnList = "mes_numero, ano_pagamento"),
-                @Index(name = "idx_gasto_mes_ano_pago", columnList = "mes_numero, ano_pagamento, pago"),
-                @Index(name = "idx_gasto_categoria", columnList = "categoria")
+                // listagens do mês e páginas por id (o id no fim dá a ordem sem sort)
+                @Index(name = "idx_gasto_user_periodo", columnList = "user_id, ano_pagamento, mes_numero, id"),
+                // páginas por cursor ordenadas por valor ou descrição (PaginacaoCursorService)
+                @Index(name = "idx_gasto_user_periodo_valor", columnList = "user_id, ano_pagamento, mes_numero, valor, id"),
+                @Index(name = "idx_gasto_user_periodo_descricao", columnList = "user_id, ano_pagamento, mes_numero, descricao, id"),
+                // cobre as somas por categoria do consolidado e dos resumos (index-only scan)
+                @Index(name = "idx_gasto_user_resumo", columnList = "user_id, ano_pagamento, mes_numero, categoria, pago, valor, id"),
+                @Index(name = "idx_gasto_parcelamento", columnList = "parcelamento_id, parcela_atual")
+        },
+        uniqueConstraints = {
+                // um lançamento importado por assinatura e usuário (NULL = criado manualmente, sem restrição)
+                @UniqueConstraint(name = "uk_gasto_user_assinatura", columnNames = {"user_id", "assinatura"})
         }
 )
 @EntityListeners(GastoListener.class)
 public class Gasto {
 
+    // sequência com alocação em blocos (pooled): permite o batch de INSERTs do Hibernate,
+    // que fica desligado com IDENTITY. Alinhada ao MAX(id) existente por SequenciaGastoConfig.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "gasto_seq")
+    @SequenceGenerator(name = "gasto_seq", sequenceName = "gasto_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 12)
@@ -49,6 +64,20 @@ public class Gasto {
 
     @Column(name = "user_id", length = 128)
     private String userId;
+
+    // hash da assinatura de deduplicação da importação (GastoService.assinatura); fixada na gravação
+    @JsonIgnore
+    @Column(length = 32)
+    private String assinatura;
+
+    // parcela de um Parcelamento que virou lançamento próprio (editada/paga ou vinda de uma fatura)
+    @Column(name = "parcelamento_id")
+    private Long parcelamentoId;
+
+    // período lido do banco (GastoListener): uma alteração recalcula o consolidado de antes e o de depois
+    @JsonIgnore
+    @Transient
+    private ConsolidadoMensal.Periodo periodoCarregado;
     // Getters e Setters explícitos (evita depender de Lombok no build)
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -90,6 +119,15 @@ public class Gasto {
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
 
+    public String getAssinatura() { return assinatura; }
+    public void setAssinatura(String assinatura) { this.assinatura = assinatura; }
+
+    public Long getParcelamentoId() { return parcelamentoId; }
+    public void setParcelamentoId(Long parcelamentoId) { this.parcelamentoId = parcelamentoId; }
+
     public Cartao getCartao() { return cartao; }
     public void setCartao(Cartao cartao) { this.cartao = cartao; }
+
+    public ConsolidadoMensal.Periodo getPeriodoCarregado() { return periodoCarregado; }
+    public void setPeriodoCarregado(ConsolidadoMensal.Periodo periodoCarregado) { this.periodoCarregado = periodoCarregado; }
 }
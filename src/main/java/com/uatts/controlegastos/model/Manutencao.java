@@ -0,0 +1,34 @@
+package com.uatts.controlegastos.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tarefa de manutenção de dados já concluída (ex.: o backfill de assinaturas): as que rodam uma vez só
+ * consultam aqui antes de rodar e gravam a chave ao terminar.
+ */
+@Entity
+@Table(name = "manutencao")
+public class Manutencao {
+
+    @Id
+    @Column(length = 64)
+    private String chave;
+
+    @Column(nullable = false)
+    private LocalDateTime concluidaEm;
+
+    public Manutencao() {}
+
+    public Manutencao(String chave, LocalDateTime concluidaEm) {
+        this.chave = chave;
+        this.concluidaEm = concluidaEm;
+    }
+
+    public String getChave() { return chave; }
+    public void setChave(String chave) { this.chave = chave; }
+
+    public LocalDateTime getConcluidaEm() { return concluidaEm; }
+    public void setConcluidaEm(LocalDateTime concluidaEm) { this.concluidaEm = concluidaEm; }
+}
@@ -0,0 +1,43 @@
+package com.uatts.controlegastos.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Parcela de um {@link Parcelamento} excluída pelo usuário: deixa de ser projetada, sem afetar as demais
+ * parcelas do plano. Vale também para parcelas já materializadas cujo lançamento foi excluído.
+ */
+@Entity
+@Table(
+        name = "parcela_excluida",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_parcela_excluida", columnNames = {"parcelamento_id", "parcela"})
+        }
+)
+public class ParcelaExcluida {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "parcelamento_id", nullable = false)
+    private Long parcelamentoId;
+
+    @Column(nullable = false)
+    private Integer parcela;
+
+    public ParcelaExcluida() {}
+
+    public ParcelaExcluida(Long parcelamentoId, Integer parcela) {
+        this.parcelamentoId = parcelamentoId;
+        this.parcela = parcela;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getParcelamentoId() { return parcelamentoId; }
+    public void setParcelamentoId(Long parcelamentoId) { this.parcelamentoId = parcelamentoId; }
+
+    public Integer getParcela() { return parcela; }
+    public void setParcela(Integer parcela) { this.parcela = parcela; }
+}
@@ -0,0 +1,102 @@
+package com.uatts.controlegastos.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+
+/**
+ * Compra parcelada importada: uma linha por plano em vez de um Gasto por parcela futura.
+ * As parcelas são projetadas nas consultas por período ({@code ParcelamentoService.projetar});
+ * uma parcela só vira Gasto quando é editada/paga ou importada por uma fatura (statementMode).
+ *
+ * Períodos são contados em meses ({@code ano * 12 + mes - 1}): a parcela N cai em
+ * {@code periodoInicio + (N - parcelaInicial)}.
+ */
+@Entity
+@Table(
+        indexes = {
+                @Index(name = "idx_parcelamento_user_periodo", columnList = "user_id, periodo_inicio, periodo_fim")
+        },
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_parcelamento_user_assinatura", columnNames = {"user_id", "assinatura"})
+        }
+)
+public class Parcelamento {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", length = 128)
+    private String userId;
+
+    @Column(nullable = true, length = 255)
+    private String descricao;
+
+    // valor de cada parcela
+    @Column(nullable = false)
+    private Double valor;
+
+    @Column(nullable = false)
+    private Integer totalParcelas;
+
+    // primeira parcela importada (as anteriores já tinham passado)
+    @Column(nullable = false)
+    private Integer parcelaInicial;
+
+    @Column(name = "periodo_inicio", nullable = false)
+    private Integer periodoInicio;
+
+    @Column(name = "periodo_fim", nullable = false)
+    private Integer periodoFim;
+
+    @Column(length = 50)
+    private String categoria;
+
+    @Column(name = "referente_a", length = 50)
+    private String referenteA;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "cartao_id")
+    private Cartao cartao;
+
+    // descrição normalizada + valor + total + período da 1ª parcela: igual em faturas de meses diferentes
+    @JsonIgnore
+    @Column(length = 32)
+    private String assinatura;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public String getDescricao() { return descricao; }
+    public void setDescricao(String descricao) { this.descricao = descricao; }
+
+    public Double getValor() { return valor; }
+    public void setValor(Double valor) { this.valor = valor; }
+
+    public Integer getTotalParcelas() { return totalParcelas; }
+    public void setTotalParcelas(Integer totalParcelas) { this.totalParcelas = totalParcelas; }
+
+    public Integer getParcelaInicial() { return parcelaInicial; }
+    public void setParcelaInicial(Integer parcelaInicial) { this.parcelaInicial = parcelaInicial; }
+
+    public Integer getPeriodoInicio() { return periodoInicio; }
+    public void setPeriodoInicio(Integer periodoInicio) { this.periodoInicio = periodoInicio; }
+
+    public Integer getPeriodoFim() { return periodoFim; }
+    public void setPeriodoFim(Integer periodoFim) { this.periodoFim = periodoFim; }
+
+    public String getCategoria() { return categoria; }
+    public void setCategoria(String categoria) { this.categoria = categoria; }
+
+    public String getReferenteA() { return referenteA; }
+    public void setReferenteA(String referenteA) { this.referenteA = referenteA; }
+
+    public Cartao getCartao() { return cartao; }
+    public void setCartao(Cartao cartao) { this.cartao = cartao; }
+
+    public String getAssinatura() { return assinatura; }
+    public void setAssinatura(String assinatura) { this.assinatura = assinatura; }
+}
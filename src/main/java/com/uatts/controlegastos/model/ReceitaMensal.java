@@ -5,11 +5,17 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 
 @Entity
-@Table(name = "receita_mensal", uniqueConstraints = @UniqueConstraint(columnNames = {"ano", "mes", "usuario_id"}))
+@Table(
+        name = "receita_mensal",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"ano", "mes", "usuario_id"}),
+        // a unicidade começa pelo ano; os intervalos de um usuário (previsão, saldos) precisam do usuário antes
+        indexes = @Index(name = "idx_receita_mensal_usuario_periodo", columnList = "usuario_id, ano, mes")
+)
 public class ReceitaMensal {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
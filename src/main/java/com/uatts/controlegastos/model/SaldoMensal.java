@@ -0,0 +1,64 @@
+package com.uatts.controlegastos.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Receitas, despesas e saldo acumulado de um usuário por mês, mantidos pelo {@code SaldoMensalService} a cada
+ * receita gravada e a cada recálculo do {@link ConsolidadoMensal}. Só existem linhas para meses com receita
+ * ou despesa; o saldo acumulado de um mês sem linha é o da linha anterior.
+ */
+@Entity
+@Table(
+        name = "saldo_mensal",
+        uniqueConstraints = {
+                // uma linha por mês; o índice da restrição atende as consultas por usuário e período.
+                // A série do usuário é alterada sob a trava dele (TravasRepository)
+                @UniqueConstraint(name = "uk_saldo_user_periodo", columnNames = {"user_id", "ano", "mes"})
+        }
+)
+public class SaldoMensal {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false, length = 128)
+    private String userId;
+
+    @Column(nullable = false)
+    private Integer ano;
+
+    @Column(nullable = false)
+    private Integer mes;
+
+    @Column(nullable = false)
+    private Double receitas;
+
+    @Column(nullable = false)
+    private Double despesas;
+
+    // soma de (receitas - despesas) de todos os meses do usuário até este, inclusive
+    @Column(nullable = false)
+    private Double saldoAcumulado;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public Integer getAno() { return ano; }
+    public void setAno(Integer ano) { this.ano = ano; }
+
+    public Integer getMes() { return mes; }
+    public void setMes(Integer mes) { this.mes = mes; }
+
+    public Double getReceitas() { return receitas; }
+    public void setReceitas(Double receitas) { this.receitas = receitas; }
+
+    public Double getDespesas() { return despesas; }
+    public void setDespesas(Double despesas) { this.despesas = despesas; }
+
+    public Double getSaldoAcumulado() { return saldoAcumulado; }
+    public void setSaldoAcumulado(Double saldoAcumulado) { this.saldoAcumulado = saldoAcumulado; }
+}
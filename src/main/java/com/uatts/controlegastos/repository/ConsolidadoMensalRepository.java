@@ -0,0 +1,53 @@
+package com.uatts.controlegastos.repository;
+
+import com.uatts.controlegastos.model.ConsolidadoMensal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ConsolidadoMensalRepository extends JpaRepository<ConsolidadoMensal, Long> {
+
+        List<ConsolidadoMensal> findByUserIdAndAnoAndMes(String userId, Integer ano, Integer mes);
+
+        /** Linhas gravadas antes das contagens de lançamentos existirem. */
+        boolean existsByLinhasIsNull();
+
+        @Modifying
+        @Query("delete from ConsolidadoMensal c where c.userId = :uid and c.ano = :ano and c.mes = :mes")
+        int excluirPeriodo(@Param("uid") String uid, @Param("ano") Integer ano, @Param("mes") Integer mes);
+
+        /** Linhas do usuário entre dois períodos ({@code ano * 12 + mes - 1}), inclusive; o ano restringe pelo índice. */
+        @Query("""
+                select c from ConsolidadoMensal c
+                where c.userId = :uid
+                and c.ano between :anoDe and :anoAte
+                and c.ano * 12 + c.mes - 1 between :de and :ate
+                """)
+        List<ConsolidadoMensal> findEntre(@Param("uid") String uid, @Param("anoDe") Integer anoDe, @Param("anoAte") Integer anoAte,
+                                          @Param("de") Integer de, @Param("ate") Integer ate);
+
+        /** Por categoria: (categoria, total, totalPago, quantidade); mês/ano null somam todos os períodos. */
+        @Query("""
+                select c.categoria, sum(c.total), sum(c.totalPago), sum(c.quantidade)
+                from ConsolidadoMensal c
+                where (:mes is null or c.mes = :mes)
+                and (:ano is null or c.ano = :ano)
+                and c.userId = :uid
+                group by c.categoria
+                """)
+        List<Object[]> resumoPorCategoria(@Param("mes") Integer mes, @Param("ano") Integer ano, @Param("uid") String uid);
+
+        /** Meses com linhas no consolidado: (userId, ano, mes). */
+        @Query("select distinct c.userId, c.ano, c.mes from ConsolidadoMensal c")
+        List<Object[]> findPeriodos();
+
+        /** Despesas de cada mês do usuário: (ano, mes, total). */
+        @Query("select c.ano, c.mes, sum(c.total) from ConsolidadoMensal c where c.userId = :uid group by c.ano, c.mes")
+        List<Object[]> despesasPorMes(@Param("uid") String uid);
+
+        @Query("select distinct c.userId from ConsolidadoMensal c")
+        List<String> findUsuarios();
+}
@@ -0,0 +1,232 @@
+package com.uatts.controlegastos.repository;
+
+import com.uatts.controlegastos.model.Gasto;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Gravação em massa de gastos direto no PostgreSQL (COPY e INSERT multi-linhas com ON CONFLICT).
+ *
+ * Usa a conexão da transação corrente (a mesma do JPA). Os ids vêm da sequência gasto_seq em blocos
+ * de 50, como o otimizador pooled do Hibernate, então cargas por aqui e inserts via JPA não colidem.
+ * Em outros bancos {@link #disponivel()} é false e o chamador usa o caminho JPA.
+ */
+@Repository
+public class GastoCargaRepository {
+
+    private static final String COLUNAS = "id, mes_pagamento, mes_numero, ano_pagamento, referente_a, categoria, " +
+            "valor, descricao, pago, total_parcelas, parcela_atual, user_id, cartao_id, assinatura, parcelamento_id";
+
+    private static final String COPY_SQL = "COPY gasto (" + COLUNAS + ") FROM STDIN WITH (FORMAT csv)";
+
+    // tabela temporária da importação com COPY; o ON CONFLICT é aplicado ao passar para gasto
+    private static final String CRIAR_TEMPORARIA =
+            "CREATE TEMP TABLE IF NOT EXISTS gasto_carga (LIKE gasto INCLUDING DEFAULTS) ON COMMIT DELETE ROWS";
+    private static final String COPY_TEMPORARIA = "COPY gasto_carga (" + COLUNAS + ") FROM STDIN WITH (FORMAT csv)";
+    private static final String INSERIR_DA_TEMPORARIA = "INSERT INTO gasto (" + COLUNAS + ") SELECT " + COLUNAS +
+            " FROM gasto_carga ORDER BY id ON CONFLICT (user_id, assinatura) DO NOTHING RETURNING id";
+
+    // igual ao allocationSize de Gasto.id
+    private static final int BLOCO_IDS = 50;
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+    // linhas por INSERT multi-valores (o PostgreSQL aceita até 32767 parâmetros por comando)
+    private static final int LINHAS_POR_INSERT = 1000;
+
+    private final DataSource dataSource;
+    private volatile Boolean postgres;
+
+    public GastoCargaRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /** true se o banco configurado é PostgreSQL (verificado uma vez). */
+    public boolean disponivel() {
+        Boolean p = postgres;
+        if (p == null) {
+            try (Connection c = dataSource.getConnection()) {
+                p = "PostgreSQL".equalsIgnoreCase(c.getMetaData().getDatabaseProductName());
+            } catch (SQLException e) {
+                p = false;
+            }
+            postgres = p;
+        }
+        return p;
+    }
+
+    /**
+     * Insere os gastos (ainda sem id) com COPY e preenche os ids gerados.
+     * Os gastos devem chegar já normalizados ({@code GastoService.prepararParaSalvar}).
+     */
+    public void copiar(List<Gasto> gastos) throws SQLException {
+        if (gastos.isEmpty()) return;
+        Connection conn = DataSourceUtils.getConnection(dataSource);
+        try {
+            atribuirIds(conn, gastos);
+            copiar(conn, COPY_SQL, gastos);
+        } catch (SQLException e) {
+            gastos.forEach(g -> g.setId(null));
+            throw e;
+        } finally {
+            DataSourceUtils.releaseConnection(conn, dataSource);
+        }
+    }
+
+    /**
+     * Insere os gastos (sem id, com assinatura) ignorando os que violam a unicidade (user_id, assinatura):
+     * {@code INSERT ... ON CONFLICT DO NOTHING}. Retorna quantos foram gravados; os ignorados ficam sem id.
+     * Com {@code viaCopy}, as linhas entram por COPY em uma tabela temporária e passam para gasto em um único INSERT.
+     */
+    public int inserirIgnorandoDuplicados(List<Gasto> gastos, boolean viaCopy) throws SQLException {
+        if (gastos.isEmpty()) return 0;
+        Connection conn = DataSourceUtils.getConnection(dataSource);
+        try {
+            atribuirIds(conn, gastos);
+            Set<Long> inseridos = new HashSet<>();
+            if (viaCopy) {
+                try (Statement st = conn.createStatement()) {
+                    st.execute(CRIAR_TEMPORARIA);
+                    st.execute("TRUNCATE gasto_carga");
+                }
+                copiar(conn, COPY_TEMPORARIA, gastos);
+                try (Statement st = conn.createStatement();
+                     ResultSet rs = st.executeQuery(INSERIR_DA_TEMPORARIA)) {
+                    while (rs.next()) inseridos.add(rs.getLong(1));
+                }
+            } else {
+                for (int inicio = 0; inicio < gastos.size(); inicio += LINHAS_POR_INSERT) {
+                    inserirValores(conn, gastos.subList(inicio, Math.min(gastos.size(), inicio + LINHAS_POR_INSERT)), inseridos);
+                }
+            }
+            for (Gasto g : gastos) {
+                if (!inseridos.contains(g.getId())) g.setId(null);
+            }
+            return inseridos.size();
+        } catch (SQLException e) {
+            gastos.forEach(g -> g.setId(null));
+            throw e;
+        } finally {
+            DataSourceUtils.releaseConnection(conn, dataSource);
+        }
+    }
+
+    private static void inserirValores(Connection conn, List<Gasto> gastos, Set<Long> inseridos) throws SQLException {
+        StringBuilder sql = new StringBuilder("INSERT INTO gasto (").append(COLUNAS).append(") VALUES ");
+        for (int i = 0; i < gastos.size(); i++) {
+            if (i > 0) sql.append(',');
+            sql.append("(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)");
+        }
+        sql.append(" ON CONFLICT (user_id, assinatura) DO NOTHING RETURNING id");
+
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int p = 1;
+            for (Gasto g : gastos) {
+                ps.setLong(p++, g.getId());
+                ps.setString(p++, g.getMesPagamento());
+                ps.setObject(p++, g.getMesNumero(), Types.INTEGER);
+                ps.setObject(p++, g.getAnoPagamento(), Types.INTEGER);
+                ps.setString(p++, g.getReferenteA());
+                ps.setString(p++, g.getCategoria());
+                ps.setObject(p++, g.getValor(), Types.DOUBLE);
+                ps.setString(p++, g.getDescricao());
+                ps.setBoolean(p++, g.isPago());
+                ps.setObject(p++, g.getTotalParcelas(), Types.INTEGER);
+                ps.setObject(p++, g.getParcelaAtual(), Types.INTEGER);
+                ps.setString(p++, g.getUserId());
+                ps.setObject(p++, g.getCartao() != null ? g.getCartao().getId() : null, Types.BIGINT);
+                ps.setString(p++, g.getAssinatura());
+                ps.setObject(p++, g.getParcelamentoId(), Types.BIGINT);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) inseridos.add(rs.getLong(1));
+            }
+        }
+    }
+
+    /** Reserva ids da sequência (um nextval por bloco de 50) e os atribui aos gastos, na ordem da lista. */
+    private static void atribuirIds(Connection conn, List<Gasto> gastos) throws SQLException {
+        int blocos = (gastos.size() + BLOCO_IDS - 1) / BLOCO_IDS;
+        long[] fins = new long[blocos];
+        try (PreparedStatement ps = conn.prepareStatement("SELECT nextval('gasto_seq') FROM generate_series(1, ?)")) {
+            ps.setInt(1, blocos);
+            try (ResultSet rs = ps.executeQuery()) {
+                for (int i = 0; i < blocos && rs.next(); i++) fins[i] = rs.getLong(1);
+            }
+        }
+        for (int i = 0; i < gastos.size(); i++) {
+            // pooled: nextval devolve o fim do bloco; o bloco é (fim - 49 .. fim)
+            gastos.get(i).setId(fins[i / BLOCO_IDS] - (BLOCO_IDS - 1) + (i % BLOCO_IDS));
+        }
+    }
+
+    private static void copiar(Connection conn, String sql, List<Gasto> gastos) throws SQLException {
+        CopyIn copy = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+        try {
+            StringBuilder sb = new StringBuilder(TAMANHO_BUFFER + 1024);
+            for (Gasto g : gastos) {
+                linha(sb, g);
+                if (sb.length() >= TAMANHO_BUFFER) {
+                    escrever(copy, sb);
+                }
+            }
+            escrever(copy, sb);
+            copy.endCopy();
+        } finally {
+            if (copy.isActive()) copy.cancelCopy();
+        }
+    }
+
+    private static void escrever(CopyIn copy, StringBuilder sb) throws SQLException {
+        if (sb.length() == 0) return;
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        sb.setLength(0);
+    }
+
+    private static void linha(StringBuilder sb, Gasto g) {
+        sb.append(g.getId()).append(',');
+        texto(sb, g.getMesPagamento()).append(',');
+        numero(sb, g.getMesNumero()).append(',');
+        numero(sb, g.getAnoPagamento()).append(',');
+        texto(sb, g.getReferenteA()).append(',');
+        texto(sb, g.getCategoria()).append(',');
+        numero(sb, g.getValor()).append(',');
+        texto(sb, g.getDescricao()).append(',');
+        sb.append(g.isPago()).append(',');
+        numero(sb, g.getTotalParcelas()).append(',');
+        numero(sb, g.getParcelaAtual()).append(',');
+        texto(sb, g.getUserId()).append(',');
+        numero(sb, g.getCartao() != null ? g.getCartao().getId() : null).append(',');
+        texto(sb, g.getAssinatura()).append(',');
+        numero(sb, g.getParcelamentoId()).append('\n');
+    }
+
+    // no formato csv do COPY, campo vazio sem aspas é NULL; texto sempre vai entre aspas
+    private static StringBuilder texto(StringBuilder sb, String s) {
+        if (s == null) return sb;
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    private static StringBuilder numero(StringBuilder sb, Number n) {
+        return n == null ? sb : sb.append(n);
+    }
+}
@@ -2,16 +2,81 @@ package com.uatts.controlegastos.repository;
 
 import com.uatts.controlegastos.model.Gasto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface GastoRepository extends JpaRepository<Gasto, Long> {
         List<Gasto> findByMesPagamentoIgnoreCase(String mesPagamento);
 
+        @Query("select g.assinatura from Gasto g where g.userId = :uid and g.assinatura in :assinaturas")
+        List<String> findAssinaturasExistentes(@Param("uid") String uid, @Param("assinaturas") Collection<String> assinaturas);
+
+        @Query("select g.assinatura from Gasto g where g.userId = :uid and g.assinatura is not null")
+        List<String> findAssinaturasByUserId(@Param("uid") String uid);
+
+        long countByUserIdAndAssinaturaIsNotNull(String userId);
+
+        /**
+         * Página (por id, depois de {@code depois}) dos gastos sem assinatura com a marca do parser de CSV:
+         * cartão ou {@code referenteA} igual a {@code referente}. Os criados à mão não têm nenhum dos dois.
+         */
+        @Query("""
+                select g from Gasto g
+                where g.id > :depois and g.assinatura is null and g.userId is not null
+                and (g.cartao is not null or g.referenteA = :referente)
+                order by g.id
+                """)
+        List<Gasto> findImportadosSemAssinatura(@Param("depois") Long depois, @Param("referente") String referente,
+                                                Pageable pageable);
+
+        /** Lançamentos do usuário sem assinatura gravada (manuais e anteriores ao backfill) entre dois anos. */
+        @Query("""
+                select g from Gasto g
+                where g.userId = :uid and g.assinatura is null
+                and g.anoPagamento between :anoDe and :anoAte and g.mesNumero is not null
+                """)
+        List<Gasto> findSemAssinaturaEntre(@Param("uid") String uid, @Param("anoDe") Integer anoDe,
+                                           @Param("anoAte") Integer anoAte);
+
+        /** Pares (descricao, categoria) dos lançamentos do usuário com categoria diferente de {@code ignorar}. */
+        @Query("select g.descricao, g.categoria from Gasto g where g.userId = :uid and g.categoria is not null and g.categoria <> :ignorar")
+        List<Object[]> findDescricoesCategorizadas(@Param("uid") String uid, @Param("ignorar") String ignorar);
+
+        /** Pares (parcelamentoId, parcelaAtual) das parcelas que já viraram lançamento. */
+        @Query("select g.parcelamentoId, g.parcelaAtual from Gasto g where g.parcelamentoId in :ids")
+        List<Object[]> findParcelasMaterializadas(@Param("ids") Collection<Long> ids);
+
+        Optional<Gasto> findFirstByParcelamentoIdAndParcelaAtual(Long parcelamentoId, Integer parcelaAtual);
+
+        /**
+         * Parcelas não pagas do usuário entre dois períodos ({@code ano * 12 + mes - 1}), inclusive:
+         * (parcelamentoId, descricao, categoria, valor, parcelaAtual, totalParcelas, anoPagamento, mesNumero).
+         */
+        @Query("""
+                select g.parcelamentoId, g.descricao, g.categoria, g.valor, g.parcelaAtual, g.totalParcelas,
+                g.anoPagamento, g.mesNumero
+                from Gasto g
+                where g.userId = :uid and g.pago = false
+                and g.parcelaAtual is not null and g.totalParcelas > 1 and g.valor is not null
+                and g.anoPagamento between :anoDe and :anoAte
+                and g.anoPagamento * 12 + g.mesNumero - 1 between :de and :ate
+                """)
+        List<Object[]> findParcelasEmAbertoEntre(@Param("uid") String uid, @Param("anoDe") Integer anoDe,
+                                                 @Param("anoAte") Integer anoAte, @Param("de") Integer de,
+                                                 @Param("ate") Integer ate);
+
+        @Modifying
+        @Query("update Gasto g set g.parcelamentoId = :pid where g.userId = :uid and g.assinatura in :assinaturas")
+        int vincularParcelamento(@Param("pid") Long parcelamentoId, @Param("uid") String uid,
+                                 @Param("assinaturas") Collection<String> assinaturas);
+
         @Query("SELECT SUM(g.valor) FROM Gasto g WHERE LOWER(g.mesPagamento) = LOWER(:mes)")
         Optional<Double> sumValorByMes(@Param("mes") String mes);
 
@@ -49,6 +114,30 @@ public interface GastoRepository extends JpaRepository<Gasto, Long> {
                 """)
         List<Object[]> resumoPorCategoriaUser(@Param("mes") Integer mes, @Param("ano") Integer ano, @Param("uid") String uid);
 
+        /** Consolidado de um mês do usuário, por categoria: (categoria, total, totalPago, quantidade, linhas, linhasPagas). */
+        @Query("""
+                select coalesce(g.categoria, 'Sem Categoria'),
+                sum(case when g.valor > 0 then g.valor else 0 end),
+                sum(case when g.pago = true and g.valor > 0 then g.valor else 0 end),
+                count(case when g.valor > 0 then 1 end),
+                count(g.id),
+                count(case when g.pago = true then 1 end)
+                from Gasto g
+                where g.userId = :uid and g.anoPagamento = :ano and g.mesNumero = :mes
+                group by coalesce(g.categoria, 'Sem Categoria')
+                """)
+        List<Object[]> consolidarPeriodo(@Param("uid") String uid, @Param("ano") Integer ano, @Param("mes") Integer mes);
+
+        /** Meses com lançamentos: (userId, ano, mes). */
+        @Query("""
+                select distinct g.userId, g.anoPagamento, g.mesNumero from Gasto g
+                where g.userId is not null and g.anoPagamento is not null and g.mesNumero is not null
+                """)
+        List<Object[]> findPeriodos();
+
+        @Query("select g.userId, g.anoPagamento, g.mesNumero from Gasto g where g.id = :id")
+        List<Object[]> findPeriodoById(@Param("id") Long id);
+
         List<Gasto> findByMesPagamentoIgnoreCaseAndAnoPagamento(String mesPagamento, Integer anoPagamento);
 
         List<Gasto> findByMesPagamentoIgnoreCaseAndAnoPagamentoAndPago(String mesPagamento, Integer anoPagamento, boolean pago);
@@ -62,6 +151,28 @@ public interface GastoRepository extends JpaRepository<Gasto, Long> {
 
         List<Gasto> findByMesNumeroIsNullOrMesPagamentoIsNull();
 
+        /** (id, descricao, pago, categoria) dos lançamentos do mês do usuário, para o índice de busca. */
+        @Query("""
+                select g.id, g.descricao, g.pago, g.categoria from Gasto g
+                where g.userId = :uid and g.mesNumero = :mes and g.anoPagamento = :ano
+                """)
+        List<Object[]> findTextosDoMes(@Param("uid") String uid, @Param("mes") Integer mes, @Param("ano") Integer ano);
+
+        /** Ids dos lançamentos do mês do usuário na ordem do {@code sort}, para a busca paginar na ordem do banco. */
+        @Query("select g.id from Gasto g where g.userId = :uid and g.mesNumero = :mes and g.anoPagamento = :ano")
+        List<Long> findIdsDoMes(@Param("uid") String uid, @Param("mes") Integer mes, @Param("ano") Integer ano, Sort sort);
+
+        /** (descricao, quantidade) das descrições distintas do usuário, para as sugestões. */
+        @Query("""
+                select g.descricao, count(g) from Gasto g
+                where g.userId = :uid and g.descricao is not null
+                group by g.descricao
+                """)
+        List<Object[]> contarDescricoes(@Param("uid") String uid);
+
+        /** Lançamentos do usuário entre {@code ids}; quem chama limita a quantidade de ids por consulta. */
+        List<Gasto> findByUserIdAndIdIn(String userId, Collection<Long> ids, Pageable pageable);
+
         List<Gasto> findByMesNumeroAndAnoPagamentoAndCategoriaAndUserId(Integer mesNumero, Integer anoPagamento, String categoria, String userId);
 
         List<Gasto> findByCategoriaIgnoreCase(String categoria);
@@ -0,0 +1,7 @@
+package com.uatts.controlegastos.repository;
+
+import com.uatts.controlegastos.model.Manutencao;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ManutencaoRepository extends JpaRepository<Manutencao, String> {
+}
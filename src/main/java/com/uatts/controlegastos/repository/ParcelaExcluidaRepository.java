@@ -0,0 +1,18 @@
+package com.uatts.controlegastos.repository;
+
+import com.uatts.controlegastos.model.ParcelaExcluida;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ParcelaExcluidaRepository extends JpaRepository<ParcelaExcluida, Long> {
+
+        /** Pares (parcelamentoId, parcela) das parcelas excluídas dos planos. */
+        @Query("select e.parcelamentoId, e.parcela from ParcelaExcluida e where e.parcelamentoId in :ids")
+        List<Object[]> findExcluidas(@Param("ids") Collection<Long> ids);
+
+        boolean existsByParcelamentoIdAndParcela(Long parcelamentoId, Integer parcela);
+}
@@ -0,0 +1,24 @@
+package com.uatts.controlegastos.repository;
+
+import com.uatts.controlegastos.model.Parcelamento;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ParcelamentoRepository extends JpaRepository<Parcelamento, Long> {
+
+        /** Planos com alguma parcela entre os períodos {@code de} e {@code ate} (inclusive). */
+        @Query("""
+                select p from Parcelamento p
+                where p.userId = :uid and p.periodoInicio <= :ate and p.periodoFim >= :de
+                """)
+        List<Parcelamento> findAtivosEntre(@Param("uid") String uid, @Param("de") int de, @Param("ate") int ate);
+
+        List<Parcelamento> findByUserIdAndAssinaturaIn(String userId, Collection<String> assinaturas);
+
+        @Query("select distinct p.userId from Parcelamento p where p.userId is not null")
+        List<String> findUsuarios();
+}
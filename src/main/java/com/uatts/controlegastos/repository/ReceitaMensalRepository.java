@@ -1,9 +1,27 @@
 package com.uatts.controlegastos.repository;
 
 import com.uatts.controlegastos.model.ReceitaMensal;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface ReceitaMensalRepository extends JpaRepository<ReceitaMensal, Long> {
     Optional<ReceitaMensal> findByAnoAndMesAndUsuarioId(Integer ano, Integer mes, String usuarioId);
+
+    List<ReceitaMensal> findByUsuarioId(String usuarioId);
+
+    @Query("select distinct r.usuarioId from ReceitaMensal r where r.usuarioId is not null")
+    List<String> findUsuarios();
+
+    /** Receitas do usuário entre dois períodos ({@code ano * 12 + mes - 1}), inclusive. */
+    @Query("""
+        select r from ReceitaMensal r
+        where r.usuarioId = :uid
+        and r.ano between :anoDe and :anoAte
+        and r.ano * 12 + r.mes - 1 between :de and :ate
+        """)
+    List<ReceitaMensal> findEntre(@Param("uid") String uid, @Param("anoDe") Integer anoDe, @Param("anoAte") Integer anoAte,
+                                  @Param("de") Integer de, @Param("ate") Integer ate);
 }
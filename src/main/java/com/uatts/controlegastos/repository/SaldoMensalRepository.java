@@ -0,0 +1,68 @@
+package com.uatts.controlegastos.repository;
+
+import com.uatts.controlegastos.model.SaldoMensal;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface SaldoMensalRepository extends JpaRepository<SaldoMensal, Long> {
+
+        /** (receitas, despesas) do mês; lidos por projeção, sem depender de entidades já carregadas na sessão. */
+        @Query("select s.receitas, s.despesas from SaldoMensal s where s.userId = :uid and s.ano = :ano and s.mes = :mes")
+        List<Object[]> valores(@Param("uid") String uid, @Param("ano") Integer ano, @Param("mes") Integer mes);
+
+        /** Saldos acumulados dos meses anteriores ao período ({@code ano * 12 + mes - 1}), do mais recente ao mais antigo. */
+        @Query("""
+                select s.saldoAcumulado from SaldoMensal s
+                where s.userId = :uid and s.ano <= :ano and s.ano * 12 + s.mes - 1 < :periodo
+                order by s.ano desc, s.mes desc
+                """)
+        List<Double> acumuladosAntes(@Param("uid") String uid, @Param("ano") Integer ano, @Param("periodo") Integer periodo,
+                                     Pageable pageable);
+
+        /** Linhas do usuário entre dois períodos, inclusive, em ordem; o ano restringe pelo índice. */
+        @Query("""
+                select s from SaldoMensal s
+                where s.userId = :uid
+                and s.ano between :anoDe and :anoAte
+                and s.ano * 12 + s.mes - 1 between :de and :ate
+                order by s.ano, s.mes
+                """)
+        List<SaldoMensal> findEntre(@Param("uid") String uid, @Param("anoDe") Integer anoDe, @Param("anoAte") Integer anoAte,
+                                    @Param("de") Integer de, @Param("ate") Integer ate);
+
+        @Modifying
+        @Query("""
+                update SaldoMensal s set s.receitas = :receitas, s.despesas = :despesas,
+                s.saldoAcumulado = s.saldoAcumulado + :delta
+                where s.userId = :uid and s.ano = :ano and s.mes = :mes
+                """)
+        int atualizarMes(@Param("uid") String uid, @Param("ano") Integer ano, @Param("mes") Integer mes,
+                         @Param("receitas") Double receitas, @Param("despesas") Double despesas, @Param("delta") Double delta);
+
+        /** Soma {@code delta} ao saldo acumulado dos meses posteriores ao período. */
+        @Modifying
+        @Query("""
+                update SaldoMensal s set s.saldoAcumulado = s.saldoAcumulado + :delta
+                where s.userId = :uid and s.ano >= :ano and s.ano * 12 + s.mes - 1 > :periodo
+                """)
+        int deslocarDepois(@Param("uid") String uid, @Param("ano") Integer ano, @Param("periodo") Integer periodo,
+                           @Param("delta") Double delta);
+
+        @Modifying
+        @Query("delete from SaldoMensal s where s.userId = :uid and s.ano = :ano and s.mes = :mes")
+        int excluirMes(@Param("uid") String uid, @Param("ano") Integer ano, @Param("mes") Integer mes);
+
+        List<SaldoMensal> findByUserId(String userId);
+
+        @Query("select distinct s.userId from SaldoMensal s")
+        List<String> findUsuarios();
+
+        @Modifying
+        @Query("delete from SaldoMensal s where s.userId = :uid")
+        int excluirUsuario(@Param("uid") String uid);
+}
@@ -0,0 +1,85 @@
+package com.uatts.controlegastos.repository;
+
+import com.uatts.controlegastos.model.ConsolidadoMensal.Periodo;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Travas de transação (advisory locks do PostgreSQL) que serializam o recálculo dos agregados de um mês de um
+ * usuário (consolidado) e a série de saldos de um usuário. Ficam com a transação corrente (a mesma conexão do
+ * JPA) e são liberadas no commit/rollback.
+ *
+ * Os meses são travados sempre na mesma ordem (usuário, ano, mês) e antes da trava de saldos do usuário, para
+ * duas transações que tocam os mesmos meses não se bloquearem em ordem inversa. Em outros bancos não há trava; a restrição única das tabelas é a
+ * única proteção.
+ */
+@Repository
+public class TravasRepository {
+
+    private static final String TRAVAR_MES = "SELECT pg_advisory_xact_lock(hashtext(?), ?)";
+    // chave única de 64 bits: espaço separado do das chaves (usuário, período) acima
+    private static final String TRAVAR_USUARIO = "SELECT pg_advisory_xact_lock(hashtext(?))";
+
+    private static final Comparator<Periodo> ORDEM = Comparator.comparing(Periodo::userId)
+            .thenComparingInt(Periodo::ano).thenComparingInt(Periodo::mes);
+
+    private final DataSource dataSource;
+    private volatile Boolean postgres;
+
+    public TravasRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /** Trava os meses até o fim da transação corrente, que precisa existir. */
+    public void travarMeses(Collection<Periodo> periodos) {
+        if (periodos.isEmpty() || !postgres()) return;
+        List<Periodo> ordenados = periodos.stream().distinct().sorted(ORDEM).toList();
+        Connection conn = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement ps = conn.prepareStatement(TRAVAR_MES)) {
+            for (Periodo p : ordenados) {
+                ps.setString(1, p.userId());
+                ps.setInt(2, p.ano() * 12 + p.mes() - 1);
+                ps.executeQuery().close();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Falha ao travar os meses do consolidado", e);
+        } finally {
+            DataSourceUtils.releaseConnection(conn, dataSource);
+        }
+    }
+
+    /** Trava a série de saldos do usuário até o fim da transação corrente, que precisa existir. */
+    public void travarUsuario(String userId) {
+        if (userId == null || !postgres()) return;
+        Connection conn = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement ps = conn.prepareStatement(TRAVAR_USUARIO)) {
+            ps.setString(1, userId);
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Falha ao travar os saldos do usuário", e);
+        } finally {
+            DataSourceUtils.releaseConnection(conn, dataSource);
+        }
+    }
+
+    private boolean postgres() {
+        Boolean p = postgres;
+        if (p == null) {
+            try (Connection c = dataSource.getConnection()) {
+                p = "PostgreSQL".equalsIgnoreCase(c.getMetaData().getDatabaseProductName());
+            } catch (SQLException e) {
+                p = false;
+            }
+            postgres = p;
+        }
+        return p;
+    }
+}
@@ -0,0 +1,94 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.dto.CategoriaResumoDTO;
+import com.uatts.controlegastos.dto.PreviewItemDTO;
+import com.uatts.controlegastos.dto.PreviewResponseDTO;
+import com.uatts.controlegastos.dto.ResumoMensalDTO;
+import com.uatts.controlegastos.model.Gasto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Destino do preview: acumula os resumos por mês e por categoria à medida que os lançamentos chegam e
+ * mantém os {@value #TOP_ITENS} maiores valores em um heap, sem guardar nem ordenar a lista inteira.
+ */
+final class AgregadorPreview implements Consumer<Gasto> {
+
+    private static final int TOP_ITENS = 10;
+
+    private record Item(Gasto gasto, double valor, long ordem) {}
+
+    // maior valor primeiro; no empate, o que chegou antes (mesmo resultado de uma ordenação estável)
+    private static final Comparator<Item> MELHOR_PRIMEIRO =
+            Comparator.comparingDouble(Item::valor).reversed().thenComparingLong(Item::ordem);
+
+    // chave ano * 100 + mês: a iteração já sai em ordem cronológica
+    private final Map<Integer, ResumoMensalDTO> porMes = new TreeMap<>();
+    private final Map<String, CategoriaResumoDTO> porCategoria = new LinkedHashMap<>();
+    // raiz = o pior dos guardados, o primeiro a sair quando chega um melhor
+    private final PriorityQueue<Item> top = new PriorityQueue<>(TOP_ITENS + 1, MELHOR_PRIMEIRO.reversed());
+    private double totalValor;
+    private long quantidade;
+    private long qtdParcelados;
+
+    @Override
+    public void accept(Gasto g) {
+        double valor = g.getValor() != null ? g.getValor() : 0.0;
+        int mes = g.getMesNumero() != null ? g.getMesNumero() : 0;
+        int ano = g.getAnoPagamento() != null ? g.getAnoPagamento() : 0;
+
+        ResumoMensalDTO rm = porMes.computeIfAbsent(ano * 100 + mes, k -> new ResumoMensalDTO(mes, ano, 0.0, 0.0, 0.0, 0L));
+        rm.setTotal(rm.getTotal() + valor);
+        rm.setTotalAberto(rm.getTotal());
+        rm.setQuantidade(rm.getQuantidade() + 1);
+
+        String cat = g.getCategoria() != null ? g.getCategoria() : "Sem Categoria";
+        CategoriaResumoDTO rc = porCategoria.computeIfAbsent(cat.toLowerCase(Locale.ROOT),
+                k -> new CategoriaResumoDTO(cat, 0.0, 0.0, 0.0, 0L));
+        rc.setTotal(rc.getTotal() + valor);
+        rc.setTotalAberto(rc.getTotal());
+        rc.setQuantidade(rc.getQuantidade() + 1);
+
+        totalValor += valor;
+        if (g.getTotalParcelas() != null && g.getParcelaAtual() != null) {
+            qtdParcelados++;
+        }
+
+        Item item = new Item(g, valor, quantidade++);
+        if (top.size() < TOP_ITENS) {
+            top.add(item);
+        } else if (MELHOR_PRIMEIRO.compare(item, top.peek()) < 0) {
+            top.poll();
+            top.add(item);
+        }
+    }
+
+    /** Resposta do preview; {@code totalLidas} são os lançamentos antes da deduplicação. */
+    PreviewResponseDTO resultado(int totalLidas) {
+        int importadas = (int) quantidade;
+
+        List<CategoriaResumoDTO> resumoCategorias = new ArrayList<>(porCategoria.values());
+        resumoCategorias.sort((a, b) -> Double.compare(b.getTotal(), a.getTotal()));
+
+        List<Item> maiores = new ArrayList<>(top);
+        maiores.sort(MELHOR_PRIMEIRO);
+        List<PreviewItemDTO> topItens = new ArrayList<>(maiores.size());
+        for (Item i : maiores) {
+            Gasto g = i.gasto();
+            topItens.add(new PreviewItemDTO(
+                    g.getDescricao(), g.getCategoria(), g.getValor(), g.getMesNumero(), g.getAnoPagamento(), g.getParcelaAtual(), g.getTotalParcelas()
+            ));
+        }
+
+        return new PreviewResponseDTO(totalLidas, importadas, totalLidas - importadas, new ArrayList<>(porMes.values()),
+                resumoCategorias, totalValor, importadas - qtdParcelados, qtdParcelados, topItens);
+    }
+}
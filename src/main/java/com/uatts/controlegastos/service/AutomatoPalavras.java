@@ -0,0 +1,143 @@
+package com.uatts.controlegastos.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Autômato de Aho-Corasick sobre um conjunto de palavras: acha todas as ocorrências em uma única passada
+ * pelo texto, qualquer que seja o número de palavras. A comparação é sem caixa e sem acento
+ * ({@link NormalizadorDescricao#dobrar}) e só vale para palavras inteiras (letras/dígitos não encostam
+ * nas pontas). Imutável depois de montado; pode ser usado por várias threads.
+ */
+final class AutomatoPalavras {
+
+    /** Recebe cada ocorrência: dono da palavra, comprimento e índice logo após o fim no texto. */
+    interface Ocorrencia {
+        void encontrada(int dono, int comprimento, int fim);
+    }
+
+    // transições de cada estado: caracteres ordenados e estados de destino (busca binária)
+    private final char[][] caracteres;
+    private final int[][] destinos;
+    private final int[] falha;
+    // palavras reconhecidas em cada estado (inclusive as herdadas pela falha): pares dono, comprimento
+    private final int[][] saidas;
+
+    /** {@code donos[i]} é devolvido nas ocorrências de {@code palavras.get(i)}. Palavras vazias são ignoradas. */
+    AutomatoPalavras(List<String> palavras, int[] donos) {
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<List<int[]>> proprias = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        proprias.add(new ArrayList<>());
+
+        for (int p = 0; p < palavras.size(); p++) {
+            String palavra = normalizar(palavras.get(p));
+            if (palavra.isEmpty()) continue;
+            int estado = 0;
+            for (int i = 0; i < palavra.length(); i++) {
+                Integer proximo = trie.get(estado).get(palavra.charAt(i));
+                if (proximo == null) {
+                    proximo = trie.size();
+                    trie.add(new TreeMap<>());
+                    proprias.add(new ArrayList<>());
+                    trie.get(estado).put(palavra.charAt(i), proximo);
+                }
+                estado = proximo;
+            }
+            proprias.get(estado).add(new int[]{donos[p], palavra.length()});
+        }
+
+        int n = trie.size();
+        caracteres = new char[n][];
+        destinos = new int[n][];
+        falha = new int[n];
+        saidas = new int[n][];
+        for (int s = 0; s < n; s++) {
+            caracteres[s] = new char[trie.get(s).size()];
+            destinos[s] = new int[trie.get(s).size()];
+            int k = 0;
+            for (Map.Entry<Character, Integer> e : trie.get(s).entrySet()) {
+                caracteres[s][k] = e.getKey();
+                destinos[s][k++] = e.getValue();
+            }
+        }
+
+        // falhas em largura: o estado de falha de um nó sempre está mais perto da raiz
+        ArrayDeque<Integer> fila = new ArrayDeque<>();
+        saidas[0] = achatar(proprias.get(0), new int[0]);
+        for (int d : destinos[0]) {
+            falha[d] = 0;
+            fila.add(d);
+        }
+        while (!fila.isEmpty()) {
+            int s = fila.poll();
+            saidas[s] = achatar(proprias.get(s), saidas[falha[s]]);
+            for (int k = 0; k < caracteres[s].length; k++) {
+                char c = caracteres[s][k];
+                int d = destinos[s][k];
+                int f = falha[s];
+                while (f != 0 && transicao(f, c) < 0) f = falha[f];
+                int t = transicao(f, c);
+                falha[d] = (t >= 0 && t != d) ? t : 0;
+                fila.add(d);
+            }
+        }
+    }
+
+    boolean vazio() {
+        return caracteres[0].length == 0;
+    }
+
+    /** Percorre {@code texto[inicio, fim)} uma vez, avisando cada palavra inteira encontrada. */
+    void buscar(CharSequence texto, int inicio, int fim, Ocorrencia ocorrencia) {
+        int estado = 0;
+        for (int i = inicio; i < fim; i++) {
+            char c = NormalizadorDescricao.dobrar(texto.charAt(i));
+            int t;
+            while ((t = transicao(estado, c)) < 0 && estado != 0) estado = falha[estado];
+            estado = Math.max(t, 0);
+            int[] saida = saidas[estado];
+            for (int k = 0; k < saida.length; k += 2) {
+                int comprimento = saida[k + 1];
+                int comeco = i + 1 - comprimento;
+                if (isLimite(texto, comeco - 1, inicio, fim) && isLimite(texto, i + 1, inicio, fim)) {
+                    ocorrencia.encontrada(saida[k], comprimento, i + 1);
+                }
+            }
+        }
+    }
+
+    private int transicao(int estado, char c) {
+        int k = Arrays.binarySearch(caracteres[estado], c);
+        return k >= 0 ? destinos[estado][k] : -1;
+    }
+
+    private static boolean isLimite(CharSequence texto, int i, int inicio, int fim) {
+        return i < inicio || i >= fim || !Character.isLetterOrDigit(texto.charAt(i));
+    }
+
+    private static int[] achatar(List<int[]> proprias, int[] herdadas) {
+        int[] r = Arrays.copyOf(herdadas, herdadas.length + proprias.size() * 2);
+        int k = herdadas.length;
+        for (int[] p : proprias) {
+            r[k++] = p[0];
+            r[k++] = p[1];
+        }
+        return r;
+    }
+
+    // dobra caixa/acentos e junta espaços, como o texto será lido
+    private static String normalizar(String palavra) {
+        StringBuilder sb = new StringBuilder(palavra.length());
+        for (String parte : palavra.trim().split("\\s+")) {
+            if (parte.isEmpty()) continue;
+            if (sb.length() > 0) sb.append(' ');
+            for (int i = 0; i < parte.length(); i++) sb.append(NormalizadorDescricao.dobrar(parte.charAt(i)));
+        }
+        return sb.toString();
+    }
+}
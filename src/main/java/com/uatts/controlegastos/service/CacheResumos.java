@@ -0,0 +1,100 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.model.ConsolidadoMensal.Periodo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Cache dos resumos por usuário e mês ({@code /resumo} e {@code /resumo-por-categoria}).
+ *
+ * Guarda no máximo {@code app.resumos.cache.max-itens} resumos (os usados há mais tempo saem primeiro) por até
+ * {@code app.resumos.cache.minutos}. As escritas descartam só os meses que tocaram ({@link VersoesPeriodo#alterados}),
+ * depois do commit; um resumo calculado enquanto um descarte acontecia não é guardado.
+ *
+ * Métricas (actuator): {@code resumos.cache} por resultado (acerto/falta) e {@code resumos.cache.itens}.
+ */
+@Component
+public class CacheResumos {
+
+    /** Tipo de resumo guardado. */
+    public enum Tipo { MENSAL, POR_CATEGORIA }
+
+    private record Chave(Tipo tipo, String userId, int ano, int mes) {}
+
+    private record Entrada(Object valor, long expiraEm) {}
+
+    private final Map<Chave, Entrada> entradas;
+    private final Counter acertos;
+    private final Counter faltas;
+    private final long validadeNanos;
+    private final boolean habilitado;
+    // muda a cada invalidação: um cálculo que começou antes dela não é guardado
+    private long geracao;
+
+    public CacheResumos(MeterRegistry registry,
+                        @Value("${app.resumos.cache.habilitado:true}") boolean habilitado,
+                        @Value("${app.resumos.cache.max-itens:10000}") int maxItens,
+                        @Value("${app.resumos.cache.minutos:10}") long minutos) {
+        this.habilitado = habilitado;
+        this.validadeNanos = minutos * 60_000_000_000L;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Chave, Entrada> eldest) {
+                return size() > maxItens;
+            }
+        };
+        this.acertos = Counter.builder("resumos.cache").tag("resultado", "acerto")
+                .description("Resumos servidos do cache").register(registry);
+        this.faltas = Counter.builder("resumos.cache").tag("resultado", "falta")
+                .description("Resumos calculados no banco").register(registry);
+        Gauge.builder("resumos.cache.itens", this, CacheResumos::tamanho)
+                .description("Resumos no cache").register(registry);
+    }
+
+    /** Resumo do mês do usuário, do cache ou calculado por {@code calcular} (e guardado). */
+    @SuppressWarnings("unchecked")
+    public <T> T obter(Tipo tipo, String userId, Integer mes, Integer ano, Supplier<T> calcular) {
+        if (!habilitado || userId == null || mes == null || ano == null) return calcular.get();
+        Chave chave = new Chave(tipo, userId, ano, mes);
+        long geracaoInicial;
+        synchronized (this) {
+            Entrada e = entradas.get(chave);
+            if (e != null && e.expiraEm() - System.nanoTime() > 0) {
+                acertos.increment();
+                return (T) e.valor();
+            }
+            if (e != null) entradas.remove(chave);
+            geracaoInicial = geracao;
+        }
+        faltas.increment();
+        T valor = calcular.get();
+        synchronized (this) {
+            if (geracao == geracaoInicial) {
+                entradas.put(chave, new Entrada(valor, System.nanoTime() + validadeNanos));
+            }
+        }
+        return valor;
+    }
+
+    /** Descarta os resumos dos meses (chamado por {@link VersoesPeriodo} depois do commit das escritas). */
+    public synchronized void descartar(Collection<Periodo> periodos) {
+        geracao++;
+        for (Periodo p : periodos) {
+            for (Tipo t : Tipo.values()) {
+                entradas.remove(new Chave(t, p.userId(), p.ano(), p.mes()));
+            }
+        }
+    }
+
+    private synchronized int tamanho() {
+        return entradas.size();
+    }
+}
@@ -0,0 +1,114 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.repository.GastoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Categorização automática dos lançamentos importados, aprendida das categorias que cada usuário já atribuiu.
+ *
+ * O modelo de um usuário ({@link ModeloCategorias}) é montado na primeira importação dele, com todos os pares
+ * descrição/categoria em uma única query de projeção, e depois só é atualizado incrementalmente a cada
+ * categoria criada ou alterada ({@link #registrarAlteracao}). Na importação, a etapa {@link #etapa} troca a
+ * categoria padrão do parser ({@value #CATEGORIA_PADRAO}) pela sugerida, quando há uma confiável.
+ * Ficam em memória os modelos dos {@code app.categorizacao.max-usuarios} usuários usados mais recentemente.
+ *
+ * Métrica (actuator): {@code importacao.categorizacao} por origem da sugestão (comerciante/palavras/nenhuma).
+ */
+@Service
+public class CategorizacaoService {
+
+    /** Categoria que o parser dá a toda linha importada; é a única substituída e nunca é aprendida. */
+    public static final String CATEGORIA_PADRAO = "Cartão de Crédito";
+
+    private final GastoRepository gastoRepository;
+    private final Map<String, ModeloCategorias> modelos;
+    private final Counter porComerciante;
+    private final Counter porPalavras;
+    private final Counter semSugestao;
+
+    @Value("${app.categorizacao.habilitada:true}")
+    private boolean habilitada;
+
+    @Value("${app.categorizacao.confianca-minima:0.6}")
+    private double confiancaMinima;
+
+    public CategorizacaoService(GastoRepository gastoRepository, MeterRegistry registry,
+                                @Value("${app.categorizacao.max-usuarios:1000}") int maxUsuarios) {
+        this.gastoRepository = gastoRepository;
+        this.modelos = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ModeloCategorias> eldest) {
+                return size() > maxUsuarios;
+            }
+        };
+        this.porComerciante = Counter.builder("importacao.categorizacao").tag("origem", "comerciante")
+                .description("Linhas categorizadas pela categoria já usada no mesmo comerciante").register(registry);
+        this.porPalavras = Counter.builder("importacao.categorizacao").tag("origem", "palavras")
+                .description("Linhas categorizadas pelo modelo de palavras da descrição").register(registry);
+        this.semSugestao = Counter.builder("importacao.categorizacao").tag("origem", "nenhuma")
+                .description("Linhas que ficaram com a categoria padrão").register(registry);
+    }
+
+    /**
+     * Etapa da importação que categoriza as linhas do usuário (aquece o modelo dele, se preciso).
+     * Sem usuário ou com a categorização desligada, não altera nada.
+     */
+    public EtapaImportacao etapa(String userId) {
+        ModeloCategorias modelo = habilitada && userId != null ? modelo(userId) : null;
+        return EtapasImportacao.ajuste("categorizacao", g -> {
+            if (modelo == null || !isPadrao(g.getCategoria())) return;
+            ModeloCategorias.Sugestao sugestao = modelo.classificar(g.getDescricao(), confiancaMinima);
+            if (sugestao == null) {
+                semSugestao.increment();
+                return;
+            }
+            (sugestao.porComerciante() ? porComerciante : porPalavras).increment();
+            g.setCategoria(sugestao.categoria());
+        });
+    }
+
+    /**
+     * Atualiza o modelo do usuário (se estiver em memória) com a troca de descrição/categoria de um lançamento.
+     * Para um lançamento novo, {@code descricaoAntes}/{@code categoriaAntes} são null.
+     */
+    public void registrarAlteracao(String userId, String descricaoAntes, String categoriaAntes,
+                                   String descricaoDepois, String categoriaDepois) {
+        if (userId == null) return;
+        if (Objects.equals(descricaoAntes, descricaoDepois) && Objects.equals(categoriaAntes, categoriaDepois)) return;
+        ModeloCategorias modelo;
+        synchronized (modelos) {
+            modelo = modelos.get(userId);
+        }
+        if (modelo == null) return; // ainda não aquecido: a carga inicial já vai ler do banco
+        if (!isPadrao(categoriaAntes)) modelo.aprender(descricaoAntes, categoriaAntes, -1);
+        if (!isPadrao(categoriaDepois)) modelo.aprender(descricaoDepois, categoriaDepois, 1);
+    }
+
+    private static boolean isPadrao(String categoria) {
+        return categoria == null || categoria.isBlank() || NormalizadorDescricao.equivalentes(categoria, CATEGORIA_PADRAO);
+    }
+
+    private ModeloCategorias modelo(String userId) {
+        ModeloCategorias modelo;
+        synchronized (modelos) {
+            modelo = modelos.get(userId);
+        }
+        if (modelo != null) return modelo;
+
+        ModeloCategorias novo = new ModeloCategorias();
+        for (Object[] par : gastoRepository.findDescricoesCategorizadas(userId, CATEGORIA_PADRAO)) {
+            novo.aprender((String) par[0], (String) par[1], 1);
+        }
+        synchronized (modelos) {
+            modelo = modelos.putIfAbsent(userId, novo);
+        }
+        return modelo != null ? modelo : novo;
+    }
+}
@@ -0,0 +1,282 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.model.ConsolidadoMensal;
+import com.uatts.controlegastos.model.ConsolidadoMensal.Periodo;
+import com.uatts.controlegastos.model.Gasto;
+import com.uatts.controlegastos.model.Manutencao;
+import com.uatts.controlegastos.repository.ConsolidadoMensalRepository;
+import com.uatts.controlegastos.repository.GastoRepository;
+import com.uatts.controlegastos.repository.ManutencaoRepository;
+import com.uatts.controlegastos.repository.TravasRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Manutenção do consolidado mensal ({@link ConsolidadoMensal}) lido pelos resumos.
+ *
+ * Os caminhos de escrita avisam os lançamentos gravados/excluídos ({@link #alterado}); os meses tocados
+ * (o de antes e o de depois de cada alteração) são recalculados uma vez, com uma query agrupada por mês,
+ * logo antes do commit da transação, junto com as despesas deles na série de saldos ({@link SaldoMensalService});
+ * mudanças nas parcelas projetadas dos planos marcam os meses do plano ({@link #parcelasAlteradas});
+ * depois do commit, eles mudam de versão ({@link VersoesPeriodo}).
+ * Recalcular o mês em vez de somar diferenças mantém o consolidado exato também nas gravações em massa
+ * (COPY / ON CONFLICT), em que o banco decide o que entra. O recálculo acontece com o mês travado
+ * ({@link TravasRepository}): duas transações que gravam no mesmo mês o regravam uma depois da outra, e a
+ * segunda já lê os lançamentos da primeira.
+ *
+ * A verificação ({@code app.consolidado.verificacao.cron}) confere mês a mês, cada um em uma transação com o
+ * mês travado, o consolidado contra os lançamentos e corrige os divergentes (métrica
+ * {@code consolidado.divergencias}), e depois confere a série de saldos; com uma das tabelas vazia, roda na subida.
+ */
+@Service
+public class ConsolidadoMensalService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsolidadoMensalService.class);
+    // diferença aceita entre somas de double
+    private static final double TOLERANCIA = 0.005;
+    private static final String SALDOS_COM_PARCELAS = "saldos-com-parcelas";
+
+    private final ConsolidadoMensalRepository consolidadoRepository;
+    private final GastoRepository gastoRepository;
+    private final TravasRepository travas;
+    private final EntityManager entityManager;
+    private final VersoesPeriodo versoes;
+    private final SaldoMensalService saldos;
+    private final ManutencaoRepository manutencoes;
+    private final TransactionTemplate transacao;
+    private final Counter divergencias;
+
+    public ConsolidadoMensalService(ConsolidadoMensalRepository consolidadoRepository, GastoRepository gastoRepository,
+                                    TravasRepository travas, EntityManager entityManager, VersoesPeriodo versoes, SaldoMensalService saldos,
+                                    ManutencaoRepository manutencoes, PlatformTransactionManager transactionManager,
+                                    MeterRegistry registry) {
+        this.consolidadoRepository = consolidadoRepository;
+        this.gastoRepository = gastoRepository;
+        this.travas = travas;
+        this.entityManager = entityManager;
+        this.versoes = versoes;
+        this.saldos = saldos;
+        this.manutencoes = manutencoes;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.divergencias = Counter.builder("consolidado.divergencias")
+                .description("Meses do consolidado corrigidos pela verificação").register(registry);
+    }
+
+    /**
+     * Resultado da verificação: meses conferidos, meses que divergiam (e foram corrigidos) e usuários com a
+     * série de saldos remontada.
+     */
+    public record Verificacao(int periodos, int divergentes, int saldosRemontados) {}
+
+    /**
+     * Marca o mês atual do lançamento e o mês em que ele estava no banco para recálculo. Chamar antes da
+     * gravação (ou da exclusão); um lançamento que não veio do banco nesta sessão tem o mês anterior consultado.
+     */
+    public void alterado(Gasto g) {
+        Set<Periodo> periodos = new HashSet<>(2);
+        Periodo anterior = g.getPeriodoCarregado();
+        if (anterior == null && g.getId() != null) {
+            for (Object[] r : gastoRepository.findPeriodoById(g.getId())) {
+                anterior = periodo((String) r[0], (Integer) r[1], (Integer) r[2]);
+            }
+        }
+        if (anterior != null) periodos.add(anterior);
+        Periodo atual = Periodo.de(g);
+        if (atual != null) periodos.add(atual);
+        marcar(periodos);
+    }
+
+    /** Lançamentos novos gravados em massa (sem mês anterior). */
+    public void gravados(List<Gasto> gastos) {
+        Set<Periodo> periodos = new HashSet<>();
+        for (Gasto g : gastos) {
+            Periodo p = Periodo.de(g);
+            if (p != null) periodos.add(p);
+        }
+        marcar(periodos);
+    }
+
+    /**
+     * Parcelas projetadas do usuário mudaram entre dois períodos ({@code ano * 12 + mes - 1}), inclusive (plano
+     * gravado ou estendido, parcela excluída): os meses são recalculados como os de um lançamento alterado, para
+     * a série de saldos somar as parcelas de novo.
+     */
+    public void parcelasAlteradas(String userId, int de, int ate) {
+        if (userId == null) return;
+        Set<Periodo> periodos = new HashSet<>();
+        for (int p = de; p <= ate; p++) {
+            periodos.add(new Periodo(userId, p / 12, p % 12 + 1));
+        }
+        marcar(periodos);
+    }
+
+    private static Periodo periodo(String userId, Integer ano, Integer mes) {
+        return userId == null || ano == null || mes == null ? null : new Periodo(userId, ano, mes);
+    }
+
+    private void marcar(Set<Periodo> periodos) {
+        if (periodos.isEmpty()) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            transacao.executeWithoutResult(s -> {
+                travas.travarMeses(periodos);
+                periodos.forEach(this::recalcular);
+            });
+            versoes.incrementar(periodos);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<Periodo> pendentes = (Set<Periodo>) TransactionSynchronizationManager.getResource(this);
+        if (pendentes == null) {
+            Set<Periodo> novos = new LinkedHashSet<>();
+            pendentes = novos;
+            TransactionSynchronizationManager.bindResource(this, novos);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    entityManager.flush();
+                    travas.travarMeses(novos);
+                    novos.forEach(ConsolidadoMensalService.this::recalcular);
+                }
+
+                @Override
+                public void afterCommit() {
+                    versoes.incrementar(novos);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ConsolidadoMensalService.this);
+                }
+            });
+        }
+        pendentes.addAll(periodos);
+    }
+
+    private void recalcular(Periodo p) {
+        List<ConsolidadoMensal> linhas = new ArrayList<>();
+        for (Object[] r : gastoRepository.consolidarPeriodo(p.userId(), p.ano(), p.mes())) {
+            linhas.add(linha(p, r, 0));
+        }
+        substituir(p, linhas);
+    }
+
+    private void substituir(Periodo p, List<ConsolidadoMensal> linhas) {
+        consolidadoRepository.excluirPeriodo(p.userId(), p.ano(), p.mes());
+        consolidadoRepository.saveAll(linhas);
+        double despesas = 0;
+        for (ConsolidadoMensal c : linhas) despesas += c.getTotal();
+        saldos.despesasAlteradas(p, despesas);
+    }
+
+    // (categoria, total, totalPago, quantidade, linhas, linhasPagas) a partir da coluna inicio
+    private static ConsolidadoMensal linha(Periodo p, Object[] r, int inicio) {
+        ConsolidadoMensal c = new ConsolidadoMensal();
+        c.setUserId(p.userId());
+        c.setAno(p.ano());
+        c.setMes(p.mes());
+        c.setCategoria((String) r[inicio]);
+        c.setTotal(((Number) r[inicio + 1]).doubleValue());
+        c.setTotalPago(((Number) r[inicio + 2]).doubleValue());
+        c.setQuantidade(((Number) r[inicio + 3]).longValue());
+        c.setLinhas(((Number) r[inicio + 4]).longValue());
+        c.setLinhasPagas(((Number) r[inicio + 5]).longValue());
+        return c;
+    }
+
+    /**
+     * Compara o consolidado com os lançamentos mês a mês e corrige os meses divergentes. Cada mês é conferido
+     * em uma transação própria, com o mês travado, então gravações simultâneas não geram falsas divergências.
+     */
+    public Verificacao verificar() {
+        Set<Periodo> todos = new LinkedHashSet<>();
+        for (Object[] r : gastoRepository.findPeriodos()) todos.add(periodo(r));
+        for (Object[] r : consolidadoRepository.findPeriodos()) todos.add(periodo(r));
+
+        List<Periodo> divergentes = new ArrayList<>();
+        for (Periodo p : todos) {
+            if (Boolean.TRUE.equals(transacao.execute(s -> conferir(p)))) divergentes.add(p);
+        }
+        if (!divergentes.isEmpty()) {
+            divergencias.increment(divergentes.size());
+            log.warn("Consolidado mensal: {} de {} meses divergiam dos lançamentos e foram recalculados",
+                    divergentes.size(), todos.size());
+        }
+        return new Verificacao(todos.size(), divergentes.size(), saldos.verificar());
+    }
+
+    // confere o mês (dentro da transação) e o regrava se divergir; true se divergia
+    private boolean conferir(Periodo p) {
+        travas.travarMeses(List.of(p));
+        List<ConsolidadoMensal> linhas = new ArrayList<>();
+        for (Object[] r : gastoRepository.consolidarPeriodo(p.userId(), p.ano(), p.mes())) {
+            linhas.add(linha(p, r, 0));
+        }
+        if (iguais(linhas, consolidadoRepository.findByUserIdAndAnoAndMes(p.userId(), p.ano(), p.mes()))) return false;
+        substituir(p, linhas);
+        versoes.alterados(List.of(p));
+        return true;
+    }
+
+    private static Periodo periodo(Object[] r) {
+        return new Periodo((String) r[0], ((Number) r[1]).intValue(), ((Number) r[2]).intValue());
+    }
+
+    @Scheduled(cron = "${app.consolidado.verificacao.cron:0 30 3 * * *}")
+    public void verificarAgendado() {
+        verificar();
+    }
+
+    /**
+     * Com o consolidado ou a série de saldos vazios (primeira subida ou tabela nova), ou com linhas sem as
+     * contagens de lançamentos, monta-os a partir dos lançamentos e receitas existentes. Uma vez (marcada em
+     * "manutencao"), remonta as séries de saldos gravadas antes de elas somarem as parcelas projetadas.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        if (consolidadoRepository.count() == 0 || saldos.vazia() || consolidadoRepository.existsByLinhasIsNull()) {
+            Verificacao v = verificar();
+            log.info("Consolidado mensal montado: {} meses; saldos de {} usuários", v.divergentes(), v.saldosRemontados());
+        } else if (!manutencoes.existsById(SALDOS_COM_PARCELAS)) {
+            log.info("Saldos mensais com parcelas projetadas: série de {} usuários remontada", saldos.verificar());
+        }
+        if (!manutencoes.existsById(SALDOS_COM_PARCELAS)) {
+            manutencoes.save(new Manutencao(SALDOS_COM_PARCELAS, LocalDateTime.now()));
+        }
+    }
+
+    private static boolean iguais(List<ConsolidadoMensal> esperadas, List<ConsolidadoMensal> atuais) {
+        if (esperadas.size() != atuais.size()) return false;
+        Map<String, ConsolidadoMensal> porCategoria = new HashMap<>();
+        for (ConsolidadoMensal c : atuais) porCategoria.put(c.getCategoria(), c);
+        for (ConsolidadoMensal e : esperadas) {
+            ConsolidadoMensal a = porCategoria.get(e.getCategoria());
+            if (a == null || !a.getQuantidade().equals(e.getQuantidade())
+                    || !e.getLinhas().equals(a.getLinhas()) || !e.getLinhasPagas().equals(a.getLinhasPagas())
+                    || Math.abs(a.getTotal() - e.getTotal()) > TOLERANCIA
+                    || Math.abs(a.getTotalPago() - e.getTotalPago()) > TOLERANCIA) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,15 +1,19 @@
 package com.uatts.controlegastos.service;
 
+import com.uatts.controlegastos.model.Cartao;
 import com.uatts.controlegastos.model.Gasto;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.StringReader;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -20,8 +24,26 @@ public class CsvParserService {
     @org.springframework.beans.factory.annotation.Value("${app.cartao.dia-fechamento:3}")
     private int diaFechamento;
 
+    // a partir deste tamanho (em caracteres) o parse é feito em trechos paralelos; 0 desliga
+    @org.springframework.beans.factory.annotation.Value("${app.importacao.paralelo.limiar-bytes:1048576}")
+    private int limiarParalelo;
+
+    @org.springframework.beans.factory.annotation.Value("${app.importacao.paralelo.tamanho-trecho:262144}")
+    private int tamanhoTrecho;
+
     // detecta "Parcela X/Y"
     private static final Pattern PARCELA_PATTERN = Pattern.compile("(?i)\\bparcela\\s*(\\d+)\\/(\\d+)\\b");
+    // trecho " - Parcela X/Y" removido da descrição
+    private static final Pattern PARCELA_SUFIXO = Pattern.compile("(?i)\\s*-\\s*Parcela\\s*\\d+\\/\\d+\\s*");
+
+    // descrição alvo de um reembolso, na ordem de tentativa
+    private static final Pattern[] ALVO_REEMBOLSO = new Pattern[]{
+            Pattern.compile("(?i)estorno\\s+de\\s+\"([^\"]+)\""),           // Estorno de "Descrição"
+            Pattern.compile("(?i)estorno\\s+de\\s+(.+)"),                    // Estorno de Descrição
+            Pattern.compile("(?i)cancelamento\\s+de\\s+\"([^\"]+)\""),      // Cancelamento de "Descrição"
+            Pattern.compile("(?i)cancelamento\\s+de\\s+(.+)"),               // Cancelamento de Descrição
+            Pattern.compile("(?i)compra\\s+cancelada\\s*[:\\-]?\\s*(.+)")    // Compra cancelada: Descrição (ou com hífen)
+    };
 
     // textos que não devem virar despesa
     private static final String[] IGNORAR_TITULOS = new String[]{
@@ -51,10 +73,37 @@ public class CsvParserService {
     }
 
     public List<Gasto> parseWithDiaFechamento(String csvText, int diaFechamentoEfetivo) {
+        // índice de reembolsos (estornos/cancelamentos) por descricao normalizada e valor
+        return parseWithDiaFechamento(csvText, diaFechamentoEfetivo, prepararReembolsos(csvText));
+    }
+
+    /**
+     * Como {@link #parseWithDiaFechamento(String, int)}, usando um índice de reembolsos montado pelo chamador.
+     * Textos a partir de {@code app.importacao.paralelo.limiar-bytes} são interpretados em trechos paralelos.
+     */
+    public List<Gasto> parseWithDiaFechamento(String csvText, int diaFechamentoEfetivo, ReconciliacaoEstornos reembolsos) {
         List<Gasto> gastos = new ArrayList<>();
-        // mapa de reembolsos (estornos/cancelamentos) por descricao normalizada
-        java.util.Map<String, java.util.List<Double>> reembolsos = prepararReembolsos(csvText);
+        parseWithDiaFechamento(csvText, diaFechamentoEfetivo, reembolsos, gastos::add);
+        return gastos;
+    }
 
+    /** Como {@link #parseWithDiaFechamento(String, int, ReconciliacaoEstornos)}, entregando os lançamentos ao destino na ordem. */
+    public void parseWithDiaFechamento(String csvText, int diaFechamentoEfetivo, ReconciliacaoEstornos reembolsos,
+                                       Consumer<Gasto> destino) {
+        parseWithDiaFechamento(csvText, diaFechamentoEfetivo, null, reembolsos, destino);
+    }
+
+    /**
+     * Com {@code cartaoDaLinha} (pode ser null), cada linha vai para o cartão devolvido: os lançamentos recebem
+     * o cartão e a competência usa o dia de fechamento dele; sem cartão, vale {@code diaFechamentoEfetivo}.
+     * A função pode ser chamada por várias threads (parse paralelo).
+     */
+    public void parseWithDiaFechamento(String csvText, int diaFechamentoEfetivo, Function<String, Cartao> cartaoDaLinha,
+                                       ReconciliacaoEstornos reembolsos, Consumer<Gasto> destino) {
+        if (limiarParalelo > 0 && csvText.length() >= limiarParalelo) {
+            parseParalelo(csvText, diaFechamentoEfetivo, cartaoDaLinha, reembolsos, destino);
+            return;
+        }
         try (BufferedReader br = new BufferedReader(new StringReader(csvText))) {
             String line;
             boolean header = true;
@@ -64,77 +113,181 @@ public class CsvParserService {
                     header = false;
                     continue;
                 }
+                parseLinha(line, diaFechamentoEfetivo, cartaoDaLinha, reembolsos, destino);
+            }
+        } catch (IOException ignore) {
+            // StringReader não lança
+        }
+    }
 
-                if (line.isBlank()) continue;
+    /**
+     * Divide o texto em trechos terminados em quebra de linha e interpreta cada trecho no ForkJoinPool comum.
+     * Só a parte sem estado (split, valor, data, parcela, chave normalizada) roda em paralelo; o consumo dos
+     * reembolsos e a expansão das parcelas acontecem depois, na ordem original das linhas, então o resultado
+     * é o mesmo do parse sequencial.
+     */
+    private void parseParalelo(String csvText, int diaFechamentoEfetivo, Function<String, Cartao> cartaoDaLinha,
+                               ReconciliacaoEstornos reembolsos, Consumer<Gasto> destino) {
+        List<int[]> trechos = dividirEmTrechos(csvText, tamanhoTrecho);
+        List<List<LinhaCsv>> analisados = trechos.parallelStream()
+                .map(t -> analisarTrecho(csvText, t[0], t[1], diaFechamentoEfetivo, cartaoDaLinha, !reembolsos.isEmpty()))
+                .toList();
+
+        for (List<LinhaCsv> trecho : analisados) {
+            for (LinhaCsv l : trecho) {
+                emitir(l, reembolsos, destino);
+            }
+        }
+    }
 
-                // divide em 3 colunas no máximo (protege títulos com vírgulas)
-                String[] cols = line.split(",", 3);
-                if (cols.length < 3) continue;
+    /** Limites [início, fim) de trechos com cerca de {@code tamanho} caracteres, sempre cortados após um '\n'. */
+    private static List<int[]> dividirEmTrechos(String texto, int tamanho) {
+        List<int[]> trechos = new ArrayList<>();
+        int n = texto.length();
+        int inicio = 0;
+        while (inicio < n) {
+            int fim = Math.min(n, inicio + Math.max(1, tamanho));
+            if (fim < n) {
+                int quebra = texto.indexOf('\n', fim - 1);
+                fim = quebra < 0 ? n : quebra + 1;
+            }
+            trechos.add(new int[]{inicio, fim});
+            inicio = fim;
+        }
+        return trechos;
+    }
 
-                String dateStr   = cols[0].trim();          // yyyy-MM-dd
-                String titleOrig = limparCampoCsv(cols[1]);          // título/descrição
-                String amountStr = limparCampoCsv(cols[2]);          // valor (pode vir com vírgula/ponto)
+    /** Interpreta as linhas de um trecho (mesmas quebras do BufferedReader: \n, \r ou \r\n). */
+    private static List<LinhaCsv> analisarTrecho(String texto, int inicio, int fim, int diaFechamentoEfetivo,
+                                                 Function<String, Cartao> cartaoDaLinha, boolean comChave) {
+        List<LinhaCsv> linhas = new ArrayList<>();
+        boolean header = inicio == 0; // o cabeçalho é a primeira linha do primeiro trecho
+        int i = inicio;
+        while (i < fim) {
+            int j = i;
+            char c = 0;
+            while (j < fim && (c = texto.charAt(j)) != '\n' && c != '\r') j++;
+            String line = texto.substring(i, j);
+            i = j + 1;
+            if (j < fim && c == '\r' && i < fim && texto.charAt(i) == '\n') i++;
+
+            if (header) {
+                header = false;
+                continue;
+            }
+            LinhaCsv l = analisarLinha(line, diaFechamentoEfetivo, cartaoDaLinha, comChave);
+            if (l != null) linhas.add(l);
+        }
+        return linhas;
+    }
 
-                // 1) ignorar linhas por texto
-                if (deveIgnorarPorTitulo(titleOrig)) continue;
+    public int getDiaFechamentoPadrao() {
+        return diaFechamento;
+    }
 
-                // 2) valor
-                double valor;
-                try {
-                    valor = Double.parseDouble(amountStr.replace(",", "."));
-                } catch (NumberFormatException e) {
-                    continue; // linha malformada
-                }
-                // ignora linhas negativas (reembolsos) e não-despesas
-                if (valor <= 0.0) continue;
-
-                // Se existir reembolso correspondente para esta compra e valor, ignora a compra
-                String chaveCompra = normalizarDescricaoBase(titleOrig);
-                java.util.List<Double> lista = reembolsos.get(chaveCompra);
-                if (lista != null && !lista.isEmpty()) {
-                    int idx = findAmountIndex(lista, valor);
-                    if (idx >= 0) {
-                        lista.remove(idx);
-                        if (lista.isEmpty()) reembolsos.remove(chaveCompra);
-                        continue; // compra cancelada/estornada
-                    }
-                }
+    /**
+     * Interpreta uma linha de dados do CSV (sem o cabeçalho) e entrega ao destino os lançamentos gerados
+     * (um por parcela restante). Consome do índice de reembolsos a entrada que anular a compra.
+     */
+    public void parseLinha(String line, int diaFechamentoEfetivo, ReconciliacaoEstornos reembolsos,
+                           Consumer<Gasto> destino) {
+        parseLinha(line, diaFechamentoEfetivo, null, reembolsos, destino);
+    }
 
-                // 3) data da compra e mês/ano de competência (regra do fechamento)
-                LocalDate compra;
-                try {
-                    compra = LocalDate.parse(dateStr, ISO);
-                } catch (Exception e) {
-                    continue; // data inválida
-                }
-                LocalDate competenciaBase = calcularCompetencia(compra, diaFechamentoEfetivo);
-
-                // 4) parcelas
-                Integer parcelaAtual = null;
-                Integer totalParcelas = null;
-                String descricao = titleOrig;
-
-                Matcher m = PARCELA_PATTERN.matcher(titleOrig);
-                if (m.find()) {
-                    parcelaAtual = Integer.parseInt(m.group(1));
-                    totalParcelas = Integer.parseInt(m.group(2));
-                    // remove " - Parcela X/Y" do texto (se existir nesse formato)
-                    descricao = titleOrig.replaceAll("(?i)\\s*-\\s*Parcela\\s*\\d+\\/\\d+\\s*", "").trim();
-
-                    for (int p = parcelaAtual; p <= totalParcelas; p++) {
-                        LocalDate comp = competenciaBase.plusMonths(p - parcelaAtual);
-                        gastos.add(novoGasto(descricao, valor, comp, p, totalParcelas));
-                    }
-                } else {
-                    // não parcelado → 1 lançamento no mês de competência calculado
-                    gastos.add(novoGasto(descricao, valor, competenciaBase, null, null));
-                }
+    /** Como {@link #parseLinha(String, int, ReconciliacaoEstornos, Consumer)}, com o cartão da linha (veja o parse com roteamento). */
+    public void parseLinha(String line, int diaFechamentoEfetivo, Function<String, Cartao> cartaoDaLinha,
+                           ReconciliacaoEstornos reembolsos, Consumer<Gasto> destino) {
+        LinhaCsv l = analisarLinha(line, diaFechamentoEfetivo, cartaoDaLinha, !reembolsos.isEmpty());
+        if (l != null) emitir(l, reembolsos, destino);
+    }
+
+    /**
+     * Compra interpretada de uma linha, ainda sem consultar os reembolsos.
+     * {@code competencia} nula indica linha que só participa da conciliação (data ou parcela ilegível).
+     */
+    private record LinhaCsv(String titulo, String chave, double valor, LocalDate competencia,
+                            String descricao, Integer parcelaAtual, Integer totalParcelas, Cartao cartao) {}
+
+    /**
+     * Parte sem estado do parse de uma linha; null quando a linha não gera compra.
+     * {@code comChave} = false dispensa a normalização da descrição quando não há reembolsos a conciliar.
+     */
+    private static LinhaCsv analisarLinha(String line, int diaFechamentoPadrao, Function<String, Cartao> cartaoDaLinha,
+                                          boolean comChave) {
+        if (line.isBlank()) return null;
+
+        // divide em 3 colunas no máximo (protege títulos com vírgulas)
+        String[] cols = line.split(",", 3);
+        if (cols.length < 3) return null;
+
+        String dateStr   = cols[0].trim();          // yyyy-MM-dd
+        String titleOrig = limparCampoCsv(cols[1]);          // título/descrição
+        String amountStr = limparCampoCsv(cols[2]);          // valor (pode vir com vírgula/ponto)
+
+        // 1) ignorar linhas por texto
+        if (deveIgnorarPorTitulo(titleOrig)) return null;
+
+        // 2) valor
+        double valor;
+        try {
+            valor = Double.parseDouble(amountStr.replace(",", "."));
+        } catch (NumberFormatException e) {
+            return null; // linha malformada
+        }
+        // ignora linhas negativas (reembolsos) e não-despesas
+        if (valor <= 0.0) return null;
+
+        String chave = comChave ? NormalizadorDescricao.chave(titleOrig) : null;
+
+        // cartão da linha (roteamento de exportações com vários cartões) e o fechamento dele
+        Cartao cartao = cartaoDaLinha != null ? cartaoDaLinha.apply(line) : null;
+        int diaFechamentoEfetivo = cartao != null && cartao.getDiaFechamento() != null
+                ? cartao.getDiaFechamento() : diaFechamentoPadrao;
+
+        // 3) data da compra e mês/ano de competência (regra do fechamento)
+        LocalDate compra;
+        try {
+            compra = LocalDate.parse(dateStr, ISO);
+        } catch (Exception e) {
+            return new LinhaCsv(titleOrig, chave, valor, null, null, null, null, cartao); // data inválida
+        }
+        LocalDate competenciaBase = calcularCompetencia(compra, diaFechamentoEfetivo);
+
+        // 4) parcelas
+        Matcher m = PARCELA_PATTERN.matcher(titleOrig);
+        if (m.find()) {
+            int parcelaAtual;
+            int totalParcelas;
+            try {
+                parcelaAtual = Integer.parseInt(m.group(1));
+                totalParcelas = Integer.parseInt(m.group(2));
+            } catch (NumberFormatException e) {
+                return new LinhaCsv(titleOrig, chave, valor, null, null, null, null, cartao); // parcela ilegível
             }
-        } catch (Exception ignore) {
-            // se quiser, logar aqui
+            // remove " - Parcela X/Y" do texto (se existir nesse formato)
+            String descricao = PARCELA_SUFIXO.matcher(titleOrig).replaceAll("").trim();
+            return new LinhaCsv(titleOrig, chave, valor, competenciaBase, descricao, parcelaAtual, totalParcelas, cartao);
         }
+        return new LinhaCsv(titleOrig, chave, valor, competenciaBase, titleOrig, null, null, cartao);
+    }
 
-        return gastos;
+    /** Parte com estado: consome o reembolso da compra (se houver) e gera um lançamento por parcela restante. */
+    private static void emitir(LinhaCsv l, ReconciliacaoEstornos reembolsos, Consumer<Gasto> destino) {
+        // Se existir reembolso correspondente para esta compra e valor, ignora a compra
+        if (l.chave() != null && reembolsos.consumirChave(l.chave(), l.valor(), l.titulo())) {
+            return; // compra cancelada/estornada
+        }
+        if (l.competencia() == null) return;
+
+        if (l.totalParcelas() != null) {
+            for (int p = l.parcelaAtual(); p <= l.totalParcelas(); p++) {
+                LocalDate comp = l.competencia().plusMonths(p - l.parcelaAtual());
+                destino.accept(novoGasto(l.descricao(), l.valor(), comp, p, l.totalParcelas(), l.cartao()));
+            }
+        } else {
+            // não parcelado → 1 lançamento no mês de competência calculado
+            destino.accept(novoGasto(l.descricao(), l.valor(), l.competencia(), null, null, l.cartao()));
+        }
     }
 
     /** Regra do fechamento: se dia < fechamento → mesmo mês; senão → mês seguinte. */
@@ -146,33 +299,37 @@ public class CsvParserService {
         }
     }
 
-    // Constrói um índice de reembolsos (estornos/cancelamentos) por descrição normalizada
-    private static java.util.Map<String, java.util.List<Double>> prepararReembolsos(String csvText) {
-        java.util.Map<String, java.util.List<Double>> map = new java.util.HashMap<>();
+    // Constrói um índice de reembolsos (estornos/cancelamentos) por descrição normalizada e valor
+    public static ReconciliacaoEstornos prepararReembolsos(String csvText) {
+        ReconciliacaoEstornos reembolsos = new ReconciliacaoEstornos();
         try (BufferedReader br = new BufferedReader(new StringReader(csvText))) {
-            String line; boolean header = true;
+            String line; int linha = 0;
             while ((line = br.readLine()) != null) {
-                if (header) { header = false; continue; }
-                if (line.isBlank()) continue;
-                String[] cols = line.split(",", 3);
-                if (cols.length < 3) continue;
-                String titleOrig = limparCampoCsv(cols[1]);
-                String amountStr = limparCampoCsv(cols[2]);
-
-                // apenas linhas com palavras-chave e valor negativo
-                if (!contemEstornoOuCancelamento(titleOrig)) continue;
-                double valor;
-                try { valor = Double.parseDouble(amountStr.replace(",", ".")); }
-                catch (NumberFormatException e) { continue; }
-                if (valor >= 0.0) continue;
-
-                // tenta extrair a descrição alvo do reembolso; senão, usa o próprio título
-                String alvo = extrairDescricaoAlvoReembolso(titleOrig);
-                String chave = normalizarDescricaoBase(alvo != null ? alvo : titleOrig);
-                map.computeIfAbsent(chave, k -> new java.util.ArrayList<>()).add(Math.abs(valor));
+                if (linha++ == 0) continue; // cabeçalho
+                registrarReembolso(line, linha, reembolsos);
             }
         } catch (Exception ignore) {}
-        return map;
+        return reembolsos;
+    }
+
+    /** Registra no índice do parser a linha, se ela for um reembolso (palavra-chave e valor negativo). */
+    public static void registrarReembolso(String line, int linha, ReconciliacaoEstornos reembolsos) {
+        if (line.isBlank()) return;
+        String[] cols = line.split(",", 3);
+        if (cols.length < 3) return;
+        String titleOrig = limparCampoCsv(cols[1]);
+        String amountStr = limparCampoCsv(cols[2]);
+
+        // apenas linhas com palavras-chave e valor negativo
+        if (!contemEstornoOuCancelamento(titleOrig)) return;
+        double valor;
+        try { valor = Double.parseDouble(amountStr.replace(",", ".")); }
+        catch (NumberFormatException e) { return; }
+        if (valor >= 0.0) return;
+
+        // tenta extrair a descrição alvo do reembolso; senão, usa o próprio título
+        String alvo = extrairDescricaoAlvoReembolso(titleOrig);
+        reembolsos.registrar(linha, titleOrig, alvo != null ? alvo : titleOrig, valor);
     }
 
     private static boolean contemEstornoOuCancelamento(String title) {
@@ -187,43 +344,62 @@ public class CsvParserService {
 
     private static String extrairDescricaoAlvoReembolso(String title) {
         if (title == null) return null;
-        // Estorno de "Descrição"
-        Matcher m = Pattern.compile("(?i)estorno\\s+de\\s+\"([^\"]+)\"").matcher(title);
-        if (m.find()) return m.group(1).trim();
-        // Estorno de Descrição
-        m = Pattern.compile("(?i)estorno\\s+de\\s+(.+)").matcher(title);
-        if (m.find()) return m.group(1).trim();
-        // Cancelamento de "Descrição"
-        m = Pattern.compile("(?i)cancelamento\\s+de\\s+\"([^\"]+)\"").matcher(title);
-        if (m.find()) return m.group(1).trim();
-        // Cancelamento de Descrição
-        m = Pattern.compile("(?i)cancelamento\\s+de\\s+(.+)").matcher(title);
-        if (m.find()) return m.group(1).trim();
-        // Compra cancelada: Descrição (ou com hífen)
-        m = Pattern.compile("(?i)compra\\s+cancelada\\s*[:\\-]?\\s*(.+)").matcher(title);
-        if (m.find()) return m.group(1).trim();
+        for (Pattern p : ALVO_REEMBOLSO) {
+            Matcher m = p.matcher(title);
+            if (m.find()) return m.group(1).trim();
+        }
         return null;
     }
 
-    private static String normalizarDescricaoBase(String title) {
-        if (title == null) return "";
-        String semParcela = title.replaceAll("(?i)\\s*-\\s*Parcela\\s*\\d+\\/\\d+\\s*", " ");
-        String s = semParcela.toLowerCase(Locale.ROOT).trim();
-        s = s.replace('"', ' ').replace('\'', ' ');
-        s = s.replaceAll("\\s+", " ");
-        return s;
+    // ----------------------- Estornos sobre os lançamentos gerados -----------------------
+    // Diferente do índice do parser, considera estornos de qualquer sinal (alguns emissores trazem crédito
+    // positivo) e é aplicado depois da expansão das parcelas, sobre cada lançamento gerado.
+
+    /** Monta o índice de estornos do CSV (estornos de qualquer sinal). */
+    public static ReconciliacaoEstornos prepararEstornosCsv(String csvText) {
+        ReconciliacaoEstornos estornos = new ReconciliacaoEstornos();
+        try (BufferedReader br = new BufferedReader(new StringReader(csvText))) {
+            String line; int linha = 0;
+            while ((line = br.readLine()) != null) {
+                if (linha++ == 0) continue; // cabeçalho
+                registrarEstornoCsv(line, linha, estornos);
+            }
+        } catch (Exception ignore) {}
+        return estornos;
+    }
+
+    /** Registra a linha no índice de estornos do CSV se o título indicar estorno/cancelamento. */
+    public static void registrarEstornoCsv(String line, int linha, ReconciliacaoEstornos estornos) {
+        if (line.isBlank()) return;
+        String[] cols = line.split(",", 3);
+        if (cols.length < 3) return;
+        String titleOrig = cols[1] != null ? cols[1].trim() : "";
+        String amountStr = cols[2] != null ? cols[2].trim() : "0";
+        if (!contemEstornoOuCancelamentoTitulo(titleOrig)) return;
+        double valor;
+        try { valor = Double.parseDouble(amountStr.replace(",", ".")); }
+        catch (NumberFormatException e) { return; }
+        if (valor == 0.0) return;
+        String alvo = extrairDescricaoAlvoReembolso(titleOrig);
+        estornos.registrar(linha, titleOrig, alvo != null ? alvo : titleOrig, valor);
     }
 
-    private static int findAmountIndex(java.util.List<Double> valores, double alvo) {
-        for (int i = 0; i < valores.size(); i++) {
-            if (equalsTol(valores.get(i), alvo, 0.01)) return i;
-        }
-        return -1;
+    public static boolean isEstornoOuCancelamentoDescricao(Gasto g) {
+        return g.getDescricao() != null && contemEstornoOuCancelamentoTitulo(g.getDescricao());
     }
 
-    private static boolean equalsTol(double a, double b, double tol) {
-        return Math.abs(a - b) <= tol;
+    private static boolean contemEstornoOuCancelamentoTitulo(String title) {
+        if (title == null) return false;
+        String t = title.toLowerCase(Locale.ROOT);
+        return t.contains("estorno") ||
+               t.contains("cancelamento") ||
+               t.contains("cancelada") ||
+               t.contains("cancelado") ||
+               t.contains("compra cancelada") ||
+               t.contains("reversao") ||
+               t.contains("reversão");
     }
+
     private static boolean deveIgnorarPorTitulo(String title) {
         String t = title.toLowerCase(Locale.ROOT);
         for (String s : IGNORAR_TITULOS) {
@@ -233,7 +409,7 @@ public class CsvParserService {
     }
 
     private static Gasto novoGasto(String descricao, double valor, LocalDate competencia,
-                                   Integer parcelaAtual, Integer totalParcelas) {
+                                   Integer parcelaAtual, Integer totalParcelas, Cartao cartao) {
         Gasto g = new Gasto();
         int mes = competencia.getMonthValue();
         int ano = competencia.getYear();
@@ -248,6 +424,7 @@ public class CsvParserService {
         g.setParcelaAtual(parcelaAtual);
         g.setTotalParcelas(totalParcelas);
         g.setReferenteA("Pessoal");
+        g.setCartao(cartao);
 
         return g;
     }
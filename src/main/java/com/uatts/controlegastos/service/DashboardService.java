@@ -0,0 +1,74 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.dto.CategoriaResumoDTO;
+import com.uatts.controlegastos.dto.DashboardDTO;
+import com.uatts.controlegastos.dto.ReceitaMensalResponse;
+import com.uatts.controlegastos.dto.ResumoMensalDTO;
+import com.uatts.controlegastos.model.Gasto;
+import com.uatts.controlegastos.model.ReceitaMensal;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Leituras da tela do mês ({@code /api/dashboard}) em paralelo: página de gastos, resumo, resumo por categoria
+ * e receita do mês, cada uma em sua transação somente leitura no pool {@code dashboardExecutor}.
+ * O tempo da resposta fica próximo ao da leitura mais lenta em vez da soma delas.
+ */
+@Service
+public class DashboardService {
+
+    private final GastoService gastoService;
+    private final ReceitaMensalService receitaMensalService;
+    private final ThreadPoolTaskExecutor executor;
+    private final TransactionTemplate leitura;
+
+    public DashboardService(GastoService gastoService, ReceitaMensalService receitaMensalService,
+                            @Qualifier("dashboardExecutor") ThreadPoolTaskExecutor executor,
+                            PlatformTransactionManager transactionManager) {
+        this.gastoService = gastoService;
+        this.receitaMensalService = receitaMensalService;
+        this.executor = executor;
+        this.leitura = new TransactionTemplate(transactionManager);
+        this.leitura.setReadOnly(true);
+    }
+
+    public DashboardDTO carregar(String userId, Integer mesNumero, Integer anoPagamento, Boolean pago,
+                                 String excluirCategoria, Pageable pageable) {
+        CompletableFuture<Page<Gasto>> gastos = emParalelo(() -> {
+            Page<Gasto> page = (excluirCategoria != null && !excluirCategoria.isBlank())
+                    ? gastoService.buscarPaginadoExcluindoCategoria(userId, mesNumero, anoPagamento, pago, excluirCategoria, pageable)
+                    : gastoService.buscarPaginado(userId, mesNumero, anoPagamento, pago, pageable);
+            // o cartão é LAZY: carregado ainda na transação, que termina antes da serialização
+            page.forEach(g -> Hibernate.initialize(g.getCartao()));
+            return page;
+        });
+        CompletableFuture<ResumoMensalDTO> resumo = emParalelo(() -> gastoService.obterResumoMensal(userId, mesNumero, anoPagamento));
+        CompletableFuture<List<CategoriaResumoDTO>> categorias =
+                emParalelo(() -> gastoService.obterResumoPorCategoria(userId, mesNumero, anoPagamento));
+        CompletableFuture<ReceitaMensalResponse> receita = emParalelo(() -> new ReceitaMensalResponse(anoPagamento, mesNumero,
+                receitaMensalService.buscar(userId, anoPagamento, mesNumero).map(ReceitaMensal::getValor).orElse(0.0)));
+
+        try {
+            CompletableFuture.allOf(gastos, resumo, categorias, receita).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+        return new DashboardDTO(gastos.join(), resumo.join(), categorias.join(), receita.join());
+    }
+
+    private <T> CompletableFuture<T> emParalelo(Supplier<T> consulta) {
+        return CompletableFuture.supplyAsync(() -> leitura.execute(s -> consulta.get()), executor);
+    }
+}
@@ -0,0 +1,148 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.repository.GastoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Consulta de assinaturas já gravadas (deduplicação da importação) com um filtro de Bloom por usuário na frente.
+ *
+ * O filtro de um usuário é montado na primeira consulta, com todas as assinaturas dele em uma única query de
+ * projeção, e recebe as assinaturas gravadas depois ({@link #registrar}). Assinaturas que o filtro descarta
+ * não vão ao banco; as demais são confirmadas em uma única query por usuário. Ficam em memória os filtros
+ * dos {@code app.importacao.bloom.max-usuarios} usuários usados mais recentemente.
+ *
+ * Métricas (actuator): {@code importacao.deduplicacao.bloom} por resultado (negativo/positivo),
+ * {@code importacao.deduplicacao.falsos.positivos} e {@code importacao.deduplicacao.consultas}.
+ */
+@Service
+public class DeduplicacaoService {
+
+    private static final double TAXA_FALSO_POSITIVO = 0.01;
+    private static final int CAPACIDADE_MINIMA = 1024;
+    // ~12 MB de bits a 1% de falsos positivos
+    private static final int CAPACIDADE_MAXIMA = 10_000_000;
+    private static final int MAX_PARAMETROS = 10_000;
+
+    private final GastoRepository gastoRepository;
+    private final Map<String, FiltroUsuario> filtros;
+    private final Counter negativos;
+    private final Counter positivos;
+    private final Counter falsosPositivos;
+    private final Counter consultas;
+
+    public DeduplicacaoService(GastoRepository gastoRepository, MeterRegistry registry,
+                               @Value("${app.importacao.bloom.max-usuarios:1000}") int maxUsuarios) {
+        this.gastoRepository = gastoRepository;
+        this.filtros = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FiltroUsuario> eldest) {
+                return size() > maxUsuarios;
+            }
+        };
+        this.negativos = Counter.builder("importacao.deduplicacao.bloom").tag("resultado", "negativo")
+                .description("Assinaturas descartadas pelo filtro de Bloom (sem ir ao banco)").register(registry);
+        this.positivos = Counter.builder("importacao.deduplicacao.bloom").tag("resultado", "positivo")
+                .description("Assinaturas que o filtro de Bloom mandou conferir no banco").register(registry);
+        this.falsosPositivos = Counter.builder("importacao.deduplicacao.falsos.positivos")
+                .description("Positivos do filtro de Bloom que não existiam no banco").register(registry);
+        this.consultas = Counter.builder("importacao.deduplicacao.consultas")
+                .description("Queries de confirmação de assinaturas").register(registry);
+    }
+
+    private static final class FiltroUsuario {
+        private final FiltroBloom bloom;
+        private volatile boolean pronto;
+
+        private FiltroUsuario(int capacidade) {
+            this.bloom = new FiltroBloom(capacidade, TAXA_FALSO_POSITIVO);
+        }
+    }
+
+    /** Das assinaturas informadas, retorna as que já existem no banco para o usuário. */
+    public Set<String> existentes(String userId, Collection<String> assinaturas) {
+        Set<String> existentes = new HashSet<>();
+        if (userId == null || assinaturas.isEmpty()) return existentes;
+
+        FiltroUsuario filtro = filtro(userId);
+        boolean pronto = filtro.pronto;
+        List<String> candidatas = new ArrayList<>();
+        for (String a : assinaturas) {
+            if (pronto && !filtro.bloom.talvezContenha(a)) {
+                negativos.increment();
+            } else {
+                candidatas.add(a);
+            }
+        }
+        if (pronto) positivos.increment(candidatas.size());
+
+        for (int i = 0; i < candidatas.size(); i += MAX_PARAMETROS) {
+            consultas.increment();
+            existentes.addAll(gastoRepository.findAssinaturasExistentes(userId,
+                    candidatas.subList(i, Math.min(candidatas.size(), i + MAX_PARAMETROS))));
+        }
+        if (pronto) falsosPositivos.increment(candidatas.size() - existentes.size());
+        return existentes;
+    }
+
+    /** Inclui no filtro do usuário assinaturas recém-gravadas. */
+    public void registrar(String userId, Collection<String> assinaturas) {
+        if (userId == null || assinaturas.isEmpty()) return;
+        FiltroUsuario filtro;
+        synchronized (filtros) {
+            filtro = filtros.get(userId);
+        }
+        if (filtro == null) return; // ainda não aquecido: a carga inicial já vai trazê-las
+        for (String a : assinaturas) filtro.bloom.adicionar(a);
+        if (filtro.bloom.saturado()) descartar(userId); // remonta com capacidade maior na próxima consulta
+    }
+
+    /** Descarta os filtros em memória (ex.: depois de preencher assinaturas em massa). */
+    public void descartarTodos() {
+        synchronized (filtros) {
+            filtros.clear();
+        }
+    }
+
+    private void descartar(String userId) {
+        synchronized (filtros) {
+            filtros.remove(userId);
+        }
+    }
+
+    /**
+     * Filtro do usuário, aquecendo-o se necessário. O filtro é publicado antes da carga para que gravações
+     * concorrentes já o alimentem; até a carga terminar ele não é usado para descartar assinaturas.
+     */
+    private FiltroUsuario filtro(String userId) {
+        FiltroUsuario filtro;
+        synchronized (filtros) {
+            filtro = filtros.get(userId);
+        }
+        if (filtro != null) return filtro;
+
+        long total = gastoRepository.countByUserIdAndAssinaturaIsNotNull(userId);
+        FiltroUsuario novo = new FiltroUsuario((int) Math.min(CAPACIDADE_MAXIMA, Math.max(CAPACIDADE_MINIMA, total * 2)));
+        synchronized (filtros) {
+            filtro = filtros.putIfAbsent(userId, novo);
+        }
+        if (filtro != null) return filtro; // outra thread publicou primeiro
+        filtro = novo;
+        consultas.increment();
+        for (String a : gastoRepository.findAssinaturasByUserId(userId)) {
+            filtro.bloom.adicionar(a);
+        }
+        filtro.pronto = true;
+        return filtro;
+    }
+}
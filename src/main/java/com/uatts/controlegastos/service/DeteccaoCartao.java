@@ -0,0 +1,120 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.listener.CartaoListener;
+import com.uatts.controlegastos.model.Cartao;
+import com.uatts.controlegastos.repository.CartaoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Detecção automática do cartão de uma importação pelas {@code palavrasChave} dos cartões ativos
+ * (separadas por vírgula ou ponto e vírgula).
+ *
+ * Um único autômato ({@link AutomatoPalavras}) cobre as palavras de todos os cartões; ele é montado na
+ * primeira detecção e remontado só quando algum cartão muda ({@link CartaoListener#versao()}).
+ * Desligada com {@code app.importacao.detectar-cartao=false}.
+ */
+@Service
+public class DeteccaoCartao {
+
+    private record Indice(long versao, List<Cartao> cartoes, AutomatoPalavras automato) {}
+
+    private final CartaoRepository cartaoRepository;
+    private volatile Indice indice;
+
+    @Value("${app.importacao.detectar-cartao:true}")
+    private boolean habilitada;
+
+    public DeteccaoCartao(CartaoRepository cartaoRepository) {
+        this.cartaoRepository = cartaoRepository;
+    }
+
+    /**
+     * Nova análise de um arquivo; o texto é entregue por {@link Analise#registrar} (de uma vez ou por linha).
+     * Null se a detecção está desligada ou nenhum cartão ativo tem palavras-chave.
+     */
+    public Analise novaAnalise() {
+        if (!habilitada) return null;
+        Indice i = indice();
+        return i.automato().vazio() ? null : new Analise(i);
+    }
+
+    /**
+     * Ocorrências de palavras-chave em um arquivo. O cartão do arquivo é o de mais ocorrências (nenhum,
+     * se houver empate); uma linha com palavra-chave de outro cartão é roteada para ele.
+     * Depois de registrado o texto, {@link #cartaoDaLinha} pode ser chamado por várias threads.
+     */
+    public static final class Analise {
+        private final Indice indice;
+        private final int[] ocorrencias;
+        private Cartao doArquivo;
+
+        private Analise(Indice indice) {
+            this.indice = indice;
+            this.ocorrencias = new int[indice.cartoes().size()];
+        }
+
+        /** Conta as ocorrências no texto (uma passada). */
+        public void registrar(CharSequence texto) {
+            indice.automato().buscar(texto, 0, texto.length(), (dono, comprimento, fim) -> ocorrencias[dono]++);
+            doArquivo = maisFrequente();
+        }
+
+        /** Cartão com mais ocorrências no que foi registrado; null se nenhum ou empate. */
+        public Cartao cartaoDoArquivo() {
+            return doArquivo;
+        }
+
+        private Cartao maisFrequente() {
+            int melhor = -1;
+            boolean empate = false;
+            for (int i = 0; i < ocorrencias.length; i++) {
+                if (ocorrencias[i] == 0) continue;
+                if (melhor < 0 || ocorrencias[i] > ocorrencias[melhor]) {
+                    melhor = i;
+                    empate = false;
+                } else if (ocorrencias[i] == ocorrencias[melhor]) {
+                    empate = true;
+                }
+            }
+            return melhor < 0 || empate ? null : indice.cartoes().get(melhor);
+        }
+
+        /** Cartão da palavra-chave mais longa da linha (a primeira, em empate); senão, o do arquivo. */
+        public Cartao cartaoDaLinha(String linha) {
+            int[] melhor = {-1, 0};
+            indice.automato().buscar(linha, 0, linha.length(), (dono, comprimento, fim) -> {
+                if (comprimento > melhor[1]) {
+                    melhor[0] = dono;
+                    melhor[1] = comprimento;
+                }
+            });
+            return melhor[0] >= 0 ? indice.cartoes().get(melhor[0]) : cartaoDoArquivo();
+        }
+    }
+
+    private Indice indice() {
+        long versao = CartaoListener.versao();
+        Indice i = indice;
+        if (i != null && i.versao() == versao) return i;
+
+        List<Cartao> cartoes = new ArrayList<>();
+        List<String> palavras = new ArrayList<>();
+        List<Integer> donos = new ArrayList<>();
+        for (Cartao c : cartaoRepository.findByAtivoTrue()) {
+            if (c.getPalavrasChave() == null || c.getPalavrasChave().isBlank()) continue;
+            for (String p : c.getPalavrasChave().split("[,;]")) {
+                if (p.isBlank()) continue;
+                palavras.add(p);
+                donos.add(cartoes.size());
+            }
+            cartoes.add(c);
+        }
+        i = new Indice(versao, cartoes, new AutomatoPalavras(palavras, donos.stream().mapToInt(Integer::intValue).toArray()));
+        indice = i;
+        return i;
+    }
+}
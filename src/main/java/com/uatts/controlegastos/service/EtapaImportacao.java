@@ -0,0 +1,21 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.model.Gasto;
+
+import java.util.function.Consumer;
+
+/**
+ * Etapa de um {@link PipelineImportacao}: recebe um lançamento por vez e repassa ao próximo zero ou mais.
+ * Etapas que precisam ver a entrada inteira (ex.: colapso de parcelas) guardam os lançamentos e os liberam
+ * em {@link #concluir}.
+ */
+public interface EtapaImportacao {
+
+    /** Nome usado nos tempos por etapa. */
+    String nome();
+
+    void processar(Gasto g, Consumer<Gasto> proximo);
+
+    /** Fim da entrada: libera o que a etapa ainda guarda. */
+    default void concluir(Consumer<Gasto> proximo) {}
+}
@@ -0,0 +1,148 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.model.Gasto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Etapas comuns da importação de CSV, usadas pelo fluxo em memória (preview e importação)
+ * e pelo fluxo em streaming, na ordem de {@link #comuns}.
+ */
+public final class EtapasImportacao {
+
+    private EtapasImportacao() {}
+
+    /** Grupo de parcelas da mesma compra no colapso do statementMode (descrição sem caixa, valor, total). */
+    public record GrupoParcela(String descricao, Double valor, Integer totalParcelas) {
+        public static GrupoParcela de(Gasto g) {
+            return new GrupoParcela(g.getDescricao() != null ? g.getDescricao().toLowerCase(Locale.ROOT) : null,
+                    g.getValor(), g.getTotalParcelas());
+        }
+    }
+
+    /**
+     * Estornos do CSV, linhas de estorno, cartão/usuário, colapso de parcelas (statementMode, com a entrada
+     * inteira em memória) e âncora.
+     */
+    public static List<EtapaImportacao> comuns(OpcoesImportacao opcoes, ReconciliacaoEstornos estornos) {
+        List<EtapaImportacao> etapas = new ArrayList<>();
+        etapas.add(estornos(estornos));
+        etapas.add(linhasDeEstorno());
+        etapas.add(cartaoEUsuario(opcoes));
+        if (opcoes.statementMode()) etapas.add(fatura());
+        etapas.add(ancora(opcoes));
+        return etapas;
+    }
+
+    /** Descarta compras anuladas por um estorno/cancelamento do CSV (consome o estorno). */
+    public static EtapaImportacao estornos(ReconciliacaoEstornos estornos) {
+        return filtro("estornos", g -> estornos.isEmpty() || !estornos.consumir(g.getDescricao(), g.getValor()));
+    }
+
+    /** Remove as próprias linhas de estorno/cancelamento (alguns emissores trazem como crédito positivo). */
+    public static EtapaImportacao linhasDeEstorno() {
+        return filtro("linhas-estorno", g -> !CsvParserService.isEstornoOuCancelamentoDescricao(g));
+    }
+
+    public static EtapaImportacao cartaoEUsuario(OpcoesImportacao opcoes) {
+        return ajuste("cartao-usuario", g -> {
+            if (opcoes.cartao() != null) g.setCartao(opcoes.cartao());
+            if (opcoes.userId() != null) g.setUserId(opcoes.userId());
+        });
+    }
+
+    /** Se 'anchor' e mes/ano foram informados, ancora a competência de todos no mês selecionado. */
+    public static EtapaImportacao ancora(OpcoesImportacao opcoes) {
+        boolean ativa = opcoes.anchor() && opcoes.mesNumero() != null && opcoes.anoPagamento() != null;
+        return ajuste("ancora", g -> {
+            if (!ativa) return;
+            g.setMesNumero(opcoes.mesNumero());
+            g.setMesPagamento(String.valueOf(opcoes.mesNumero()));
+            g.setAnoPagamento(opcoes.anoPagamento());
+        });
+    }
+
+    /**
+     * Modo "fatura mensal": de cada compra parcelada mantém só a menor parcela gerada (a primeira, em empate).
+     * Guarda a entrada e libera ao concluir, na ordem original.
+     */
+    public static EtapaImportacao fatura() {
+        return new EtapaImportacao() {
+            private final List<Gasto> recebidos = new ArrayList<>();
+            private final Map<GrupoParcela, Gasto> menores = new HashMap<>();
+
+            @Override
+            public String nome() { return "fatura"; }
+
+            @Override
+            public void processar(Gasto g, Consumer<Gasto> proximo) {
+                recebidos.add(g);
+                if (g.getTotalParcelas() != null && g.getParcelaAtual() != null) {
+                    menores.merge(GrupoParcela.de(g), g,
+                            (atual, novo) -> novo.getParcelaAtual() < atual.getParcelaAtual() ? novo : atual);
+                }
+            }
+
+            @Override
+            public void concluir(Consumer<Gasto> proximo) {
+                Set<Gasto> manter = Collections.newSetFromMap(new IdentityHashMap<>());
+                manter.addAll(menores.values());
+                for (Gasto g : recebidos) {
+                    if (g.getTotalParcelas() == null || g.getParcelaAtual() == null || manter.contains(g)) {
+                        proximo.accept(g);
+                    }
+                }
+                recebidos.clear();
+                menores.clear();
+            }
+        };
+    }
+
+    /**
+     * Colapso do statementMode sem guardar a entrada: a menor parcela de cada grupo já foi descoberta
+     * em uma passada anterior; emite só a primeira ocorrência dela.
+     */
+    public static EtapaImportacao fatura(Map<GrupoParcela, Integer> menorParcela) {
+        Set<GrupoParcela> emitidos = new HashSet<>();
+        return filtro("fatura", g -> {
+            if (g.getTotalParcelas() == null || g.getParcelaAtual() == null) return true;
+            GrupoParcela grupo = GrupoParcela.de(g);
+            return g.getParcelaAtual().equals(menorParcela.get(grupo)) && emitidos.add(grupo);
+        });
+    }
+
+    public static EtapaImportacao filtro(String nome, Predicate<Gasto> manter) {
+        return new EtapaImportacao() {
+            @Override
+            public String nome() { return nome; }
+
+            @Override
+            public void processar(Gasto g, Consumer<Gasto> proximo) {
+                if (manter.test(g)) proximo.accept(g);
+            }
+        };
+    }
+
+    public static EtapaImportacao ajuste(String nome, Consumer<Gasto> ajuste) {
+        return new EtapaImportacao() {
+            @Override
+            public String nome() { return nome; }
+
+            @Override
+            public void processar(Gasto g, Consumer<Gasto> proximo) {
+                ajuste.accept(g);
+                proximo.accept(g);
+            }
+        };
+    }
+}
@@ -0,0 +1,165 @@
+package com.uatts.controlegastos.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uatts.controlegastos.model.Cartao;
+import com.uatts.controlegastos.model.Gasto;
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.Hibernate;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Exportação de todos os lançamentos de um usuário (CSV ou JSON Lines), escrita direto na saída.
+ *
+ * A leitura é um cursor só de ida ({@code ScrollMode.FORWARD_ONLY}) com {@code app.exportacao.fetch-size}
+ * linhas por ida ao banco, em uma transação somente leitura (no PostgreSQL o cursor só existe dentro de uma);
+ * a cada lote a sessão é limpa, então a memória fica constante qualquer que seja o tamanho do histórico.
+ * As parcelas projetadas dos planos ({@link ParcelamentoService#projetarEntre}), com id negativo, entram no mês
+ * delas, depois dos lançamentos gravados; só elas ficam em memória durante a escrita.
+ */
+@Service
+public class ExportacaoService {
+
+    /** Formato do arquivo exportado. */
+    public enum Formato { CSV, NDJSON }
+
+    private static final String CABECALHO_CSV = "id,mesPagamento,mesNumero,anoPagamento,descricao,categoria,referenteA," +
+            "valor,pago,parcelaAtual,totalParcelas,cartao\n";
+
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final ParcelamentoService parcelamentoService;
+    private final TransactionTemplate leitura;
+
+    @Value("${app.exportacao.fetch-size:500}")
+    private int fetchSize;
+
+    public ExportacaoService(EntityManager entityManager, ObjectMapper objectMapper,
+                             ParcelamentoService parcelamentoService, PlatformTransactionManager transactionManager) {
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.parcelamentoService = parcelamentoService;
+        this.leitura = new TransactionTemplate(transactionManager);
+        this.leitura.setReadOnly(true);
+    }
+
+    /**
+     * Escreve os lançamentos do usuário em {@code saida} (por mês de competência e, dentro do mês, na ordem de
+     * gravação: a ordem do índice {@code idx_gasto_user_periodo}, sem sort; depois, as parcelas projetadas do
+     * mês); retorna quantos foram escritos.
+     */
+    public long exportar(String userId, Formato formato, OutputStream saida) throws IOException {
+        try {
+            Long total = leitura.execute(s -> {
+                try {
+                    return escrever(userId, formato, saida);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return total != null ? total : 0;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private long escrever(String userId, Formato formato, OutputStream saida) throws IOException {
+        if (formato == Formato.CSV) saida.write(CABECALHO_CSV.getBytes(StandardCharsets.UTF_8));
+
+        // parcelas projetadas de todos os planos do usuário, por período; o cartão é carregado antes de a
+        // sessão ser limpa
+        List<Gasto> projetadas = new ArrayList<>(parcelamentoService.projetarEntre(userId, 0, Integer.MAX_VALUE));
+        projetadas.sort(Comparator.comparingInt(ExportacaoService::periodo));
+        for (Gasto p : projetadas) {
+            if (p.getCartao() != null) p.setCartao(Hibernate.unproxy(p.getCartao(), Cartao.class));
+        }
+        int proxima = 0;
+
+        Session session = entityManager.unwrap(Session.class);
+        var query = session.createQuery(
+                        """
+                                select g from Gasto g left join fetch g.cartao where g.userId = :uid
+                                order by g.anoPagamento, g.mesNumero, g.id""", Gasto.class)
+                .setParameter("uid", userId)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE);
+        long n = 0;
+        try (ScrollableResults<Gasto> cursor = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (cursor.next()) {
+                Gasto g = cursor.get();
+                if (g.getAnoPagamento() != null && g.getMesNumero() != null) {
+                    // projetadas dos meses anteriores ao deste lançamento
+                    int periodo = periodo(g);
+                    while (proxima < projetadas.size() && periodo(projetadas.get(proxima)) < periodo) {
+                        escrever(projetadas.get(proxima++), formato, saida);
+                        n++;
+                    }
+                }
+                escrever(g, formato, saida);
+                if (++n % fetchSize == 0) session.clear(); // solta os lançamentos já escritos
+            }
+        }
+        while (proxima < projetadas.size()) {
+            escrever(projetadas.get(proxima++), formato, saida);
+            n++;
+        }
+        return n;
+    }
+
+    private void escrever(Gasto g, Formato formato, OutputStream saida) throws IOException {
+        if (formato == Formato.CSV) {
+            saida.write(linhaCsv(g).getBytes(StandardCharsets.UTF_8));
+        } else {
+            saida.write(objectMapper.writeValueAsBytes(g));
+            saida.write('\n');
+        }
+    }
+
+    private static int periodo(Gasto g) {
+        return ParcelamentoService.periodo(g.getMesNumero(), g.getAnoPagamento());
+    }
+
+    private static String linhaCsv(Gasto g) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(g.getId()).append(',');
+        campo(sb, g.getMesPagamento()).append(',');
+        sb.append(valor(g.getMesNumero())).append(',');
+        sb.append(valor(g.getAnoPagamento())).append(',');
+        campo(sb, g.getDescricao()).append(',');
+        campo(sb, g.getCategoria()).append(',');
+        campo(sb, g.getReferenteA()).append(',');
+        sb.append(g.getValor() != null ? BigDecimal.valueOf(g.getValor()).toPlainString() : "").append(',');
+        sb.append(g.isPago()).append(',');
+        sb.append(valor(g.getParcelaAtual())).append(',');
+        sb.append(valor(g.getTotalParcelas())).append(',');
+        campo(sb, g.getCartao() != null ? g.getCartao().getNome() : null).append('\n');
+        return sb.toString();
+    }
+
+    private static String valor(Integer i) {
+        return i != null ? i.toString() : "";
+    }
+
+    // RFC 4180: entre aspas quando tem separador, aspas ou quebra de linha
+    private static StringBuilder campo(StringBuilder sb, String s) {
+        if (s == null) return sb;
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) return sb.append(s);
+        return sb.append('"').append(s.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,52 @@
+package com.uatts.controlegastos.service;
+
+/**
+ * Filtro de Bloom sobre assinaturas de gasto ({@link GastoService#assinatura}, hash hex de 128 bits).
+ * As duas metades do hash alimentam o double hashing, então não há custo de hash extra.
+ * Sem falsos negativos; a taxa de falsos positivos sobe se passar da capacidade.
+ */
+final class FiltroBloom {
+
+    private final long[] bits;
+    private final int m;
+    private final int k;
+    private final int capacidade;
+    private int inseridos;
+
+    FiltroBloom(int capacidade, double taxaFalsoPositivo) {
+        this.capacidade = Math.max(1, capacidade);
+        double ln2 = Math.log(2);
+        this.m = (int) Math.max(64, Math.ceil(-this.capacidade * Math.log(taxaFalsoPositivo) / (ln2 * ln2)));
+        this.k = (int) Math.max(1, Math.round((double) m / this.capacidade * ln2));
+        this.bits = new long[(m + 63) / 64];
+    }
+
+    synchronized void adicionar(String assinatura) {
+        long h1 = metade(assinatura, 0);
+        long h2 = metade(assinatura, 16);
+        for (int i = 0; i < k; i++) {
+            int pos = (int) Math.floorMod(h1 + i * h2, (long) m);
+            bits[pos >>> 6] |= 1L << pos;
+        }
+        inseridos++;
+    }
+
+    synchronized boolean talvezContenha(String assinatura) {
+        long h1 = metade(assinatura, 0);
+        long h2 = metade(assinatura, 16);
+        for (int i = 0; i < k; i++) {
+            int pos = (int) Math.floorMod(h1 + i * h2, (long) m);
+            if ((bits[pos >>> 6] & (1L << pos)) == 0) return false;
+        }
+        return true;
+    }
+
+    /** true quando já recebeu mais itens do que a capacidade planejada. */
+    synchronized boolean saturado() {
+        return inseridos > capacidade;
+    }
+
+    private static long metade(String hex, int inicio) {
+        return Long.parseUnsignedLong(hex, inicio, inicio + 16, 16);
+    }
+}
@@ -4,34 +4,109 @@ import com.uatts.controlegastos.dto.AtualizacaoGastoDTO;
 import com.uatts.controlegastos.dto.CategoriaResumoDTO;
 import com.uatts.controlegastos.dto.CriarGastoDTO;
 import com.uatts.controlegastos.dto.ResumoMensalDTO;
+import com.uatts.controlegastos.dto.TendenciaMensalDTO;
+import com.uatts.controlegastos.model.ConsolidadoMensal;
 import com.uatts.controlegastos.model.Gasto;
+import com.uatts.controlegastos.repository.ConsolidadoMensalRepository;
+import com.uatts.controlegastos.repository.GastoCargaRepository;
 import com.uatts.controlegastos.repository.GastoRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.text.Normalizer;
-import java.util.Locale;
 
 @Service
 public class GastoService {
 
     private final GastoRepository gastoRepository;
+    private final GastoCargaRepository gastoCargaRepository;
+    private final DeduplicacaoService deduplicacaoService;
+    private final ParcelamentoService parcelamentoService;
+    private final CategorizacaoService categorizacaoService;
+    private final ConsolidadoMensalService consolidadoService;
+    private final ConsolidadoMensalRepository consolidadoRepository;
+    private final CacheResumos cacheResumos;
+    private final IndiceDescricoes indiceDescricoes;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transacao;
     private static final String CATEGORIA_CARTAO = "Cartão de Crédito";
-
-    public GastoService(GastoRepository gastoRepository) {
+    // referenteA que o parser de CSV grava em todo lançamento importado
+    private static final String REFERENTE_IMPORTACAO = "Pessoal";
+    // gastos por transação no backfill de assinaturas
+    private static final int LOTE_BACKFILL = 1000;
+    // propriedades aceitas no sort de /paginado, com o getter usado para ordenar as parcelas projetadas;
+    // "data" (enviado pelo frontend) vira a ordem de gravação (id)
+    private static final Map<String, java.util.function.Function<Gasto, Comparable<?>>> ORDENAVEIS = Map.of(
+            "id", Gasto::getId,
+            "valor", Gasto::getValor,
+            "descricao", Gasto::getDescricao,
+            "categoria", Gasto::getCategoria,
+            "pago", Gasto::isPago,
+            "referenteA", Gasto::getReferenteA,
+            "parcelaAtual", Gasto::getParcelaAtual,
+            "totalParcelas", Gasto::getTotalParcelas);
+    // ids por consulta IN (bem abaixo do limite de parâmetros do PostgreSQL)
+    private static final int MAX_IDS_POR_CONSULTA = 1000;
+    // meses por consulta de /tendencia
+    public static final int MAX_MESES_TENDENCIA = 120;
+
+    // mesmo valor de hibernate.jdbc.batch_size: cada flush envia um batch completo de INSERTs
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int tamanhoBatch;
+
+    // grava importações com COPY quando o banco é PostgreSQL (app.importacao.copy)
+    @Value("${app.importacao.copy:false}")
+    private boolean usarCopy;
+
+    public GastoService(GastoRepository gastoRepository, GastoCargaRepository gastoCargaRepository,
+                        DeduplicacaoService deduplicacaoService, ParcelamentoService parcelamentoService,
+                        CategorizacaoService categorizacaoService, ConsolidadoMensalService consolidadoService,
+                        ConsolidadoMensalRepository consolidadoRepository, CacheResumos cacheResumos,
+                        IndiceDescricoes indiceDescricoes, EntityManager entityManager,
+                        PlatformTransactionManager transactionManager) {
         this.gastoRepository = gastoRepository;
+        this.gastoCargaRepository = gastoCargaRepository;
+        this.deduplicacaoService = deduplicacaoService;
+        this.parcelamentoService = parcelamentoService;
+        this.categorizacaoService = categorizacaoService;
+        this.consolidadoService = consolidadoService;
+        this.consolidadoRepository = consolidadoRepository;
+        this.cacheResumos = cacheResumos;
+        this.indiceDescricoes = indiceDescricoes;
+        this.entityManager = entityManager;
+        this.transacao = new TransactionTemplate(transactionManager);
     }
 
     @Transactional
     public Gasto salvar(Gasto gasto) {
+        if (ParcelamentoService.isVirtual(gasto.getId())) {
+            // parcela projetada: grava sobre o lançamento materializado
+            Gasto real = buscarOuLancarErro(gasto.getUserId(), gasto.getId());
+            gasto.setId(real.getId());
+            gasto.setParcelamentoId(real.getParcelamentoId());
+            gasto.setAssinatura(real.getAssinatura());
+        }
+        boolean novo = gasto.getId() == null;
         prepararParaSalvar(gasto);
-        return gastoRepository.save(gasto);
+        consolidadoService.alterado(gasto);
+        Gasto salvo = gastoRepository.save(gasto);
+        if (novo) {
+            categorizacaoService.registrarAlteracao(salvo.getUserId(), null, null, salvo.getDescricao(), salvo.getCategoria());
+        }
+        return salvo;
     }
 
     public List<Gasto> buscarPorMes(String mesPagamento) {
@@ -39,24 +114,78 @@ public class GastoService {
     }
 
     @Transactional
-    public void deletar(Long id) {
-        gastoRepository.deleteById(id);
+    public void deletar(String userId, Long id) {
+        if (ParcelamentoService.isVirtual(id)) {
+            // parcela projetada: exclui só ela (as demais parcelas do plano continuam)
+            parcelamentoService.excluirPorIdVirtual(userId, id);
+            return;
+        }
+        buscarDoUsuario(userId, id).ifPresent(g -> {
+            consolidadoService.alterado(g);
+            gastoRepository.delete(g);
+            categorizacaoService.registrarAlteracao(userId, g.getDescricao(), g.getCategoria(), null, null);
+            // parcela materializada: sem o registro, a projeção do plano voltaria a mostrá-la
+            parcelamentoService.excluirParcela(g);
+        });
     }
 
     @Transactional
-    public Gasto marcarComoPago(Long id) {
-        Gasto gasto = buscarOuLancarErro(id);
+    public Gasto marcarComoPago(String userId, Long id) {
+        Gasto gasto = buscarOuLancarErro(userId, id);
 
         gasto.setPago(true);
+        consolidadoService.alterado(gasto);
         return gastoRepository.save(gasto);
     }
 
+    /**
+     * Grava a lista em uma transação. Com {@code app.importacao.copy} e PostgreSQL, os itens novos vão
+     * por COPY; senão (e para itens que já têm id), pelo JPA com flush/clear a cada
+     * {@code hibernate.jdbc.batch_size} itens. Os itens gravados ficam desanexados ao final.
+     */
+    @Transactional
     public void salvarTodos(List<Gasto> gastos) {
         if (gastos == null || gastos.isEmpty()) {
             return;
         }
         gastos.forEach(this::prepararParaSalvar);
-        gastoRepository.saveAll(gastos);
+        gastos.forEach(consolidadoService::alterado);
+        if (usarCopy && gastoCargaRepository.disponivel()) {
+            List<Gasto> novos = new ArrayList<>();
+            List<Gasto> existentes = new ArrayList<>();
+            for (Gasto gasto : gastos) {
+                (gasto.getId() == null ? novos : existentes).add(gasto);
+            }
+            try {
+                gastoCargaRepository.copiar(novos);
+            } catch (SQLException e) {
+                throw new RuntimeException("Falha ao gravar gastos via COPY", e);
+            }
+            salvarViaJpa(existentes);
+        } else {
+            salvarViaJpa(gastos);
+        }
+    }
+
+    private void salvarViaJpa(List<Gasto> gastos) {
+        if (gastos.isEmpty()) {
+            return;
+        }
+        int pendentes = 0;
+        for (Gasto gasto : gastos) {
+            if (gasto.getId() == null) {
+                entityManager.persist(gasto);
+            } else {
+                entityManager.merge(gasto);
+            }
+            if (++pendentes >= tamanhoBatch) {
+                entityManager.flush();
+                entityManager.clear();
+                pendentes = 0;
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
     }
 
     private void prepararParaSalvar(Gasto gasto) {
@@ -96,74 +225,172 @@ public class GastoService {
         if (categoria == null) {
             return false;
         }
-        return normalizeSemAcento(categoria).equals(normalizeSemAcento(CATEGORIA_CARTAO));
+        return NormalizadorDescricao.equivalentes(categoria, CATEGORIA_CARTAO);
+    }
+
+    private Gasto buscarOuLancarErro(String userId, Long id) {
+        if (ParcelamentoService.isVirtual(id)) {
+            // editar uma parcela projetada a transforma em lançamento
+            return parcelamentoService.materializar(userId, id).orElseThrow(() -> new RuntimeException("Gasto não encontrado"));
+        }
+        return buscarDoUsuario(userId, id).orElseThrow(() -> new RuntimeException("Gasto não encontrado"));
+    }
+
+    // lançamentos sem usuário (anteriores ao login) seguem acessíveis a qualquer usuário, como antes
+    private Optional<Gasto> buscarDoUsuario(String userId, Long id) {
+        return gastoRepository.findById(id).filter(g -> g.getUserId() == null || g.getUserId().equals(userId));
     }
 
-    private String normalizeSemAcento(String valor) {
-        if (valor == null) {
-            return "";
+    /**
+     * Grava os gastos de uma importação ignorando os que já existem para o usuário (mesma assinatura) e os
+     * repetidos na própria lista. No PostgreSQL a checagem é do banco ({@code INSERT ... ON CONFLICT DO NOTHING}
+     * sobre a restrição única (user_id, assinatura)), o que também protege importações simultâneas.
+     * Retorna quantos foram gravados.
+     */
+    @Transactional
+    public int importarTodos(List<Gasto> gastos) {
+        if (gastos == null || gastos.isEmpty()) {
+            return 0;
+        }
+        java.util.Set<String> noLote = new java.util.HashSet<>();
+        List<Gasto> unicos = new ArrayList<>();
+        for (Gasto gasto : gastos) {
+            prepararParaSalvar(gasto);
+            gasto.setAssinatura(assinatura(gasto));
+            if (noLote.add(gasto.getUserId() + ":" + gasto.getAssinatura())) {
+                unicos.add(gasto);
+            }
+        }
+        // a restrição única não vê os lançamentos sem assinatura gravada (manuais): compara pelo cálculo
+        java.util.Set<String> semColuna = chavesSemAssinatura(unicos);
+        if (!semColuna.isEmpty()) {
+            unicos.removeIf(g -> semColuna.contains(g.getUserId() + ":" + g.getAssinatura()));
+        }
+        List<Gasto> gravados;
+        if (gastoCargaRepository.disponivel()) {
+            try {
+                gastoCargaRepository.inserirIgnorandoDuplicados(unicos, usarCopy);
+            } catch (SQLException e) {
+                throw new RuntimeException("Falha ao gravar gastos importados", e);
+            }
+            gravados = new ArrayList<>();
+            for (Gasto gasto : unicos) {
+                if (gasto.getId() != null) gravados.add(gasto); // os ignorados ficam sem id
+            }
+        } else {
+            // outros bancos: consulta as assinaturas existentes e grava o restante via JPA
+            gravados = novoFiltroDuplicados().filtrar(unicos);
+            salvarViaJpa(gravados);
         }
-        String trimmed = valor.trim();
-        String semAcento = Normalizer.normalize(trimmed, Normalizer.Form.NFD)
-                .replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
-        return semAcento.toLowerCase(Locale.ROOT);
+        registrarAssinaturas(gravados);
+        consolidadoService.gravados(gravados);
+        return gravados.size();
     }
 
-    private Gasto buscarOuLancarErro(Long id) {
-        return gastoRepository.findById(id).orElseThrow(() -> new RuntimeException("Gasto não encontrado"));
+    private void registrarAssinaturas(List<Gasto> gravados) {
+        java.util.Map<String, List<String>> porUsuario = new java.util.HashMap<>();
+        for (Gasto g : gravados) {
+            if (g.getUserId() != null) {
+                porUsuario.computeIfAbsent(g.getUserId(), k -> new ArrayList<>()).add(g.getAssinatura());
+            }
+        }
+        porUsuario.forEach(deduplicacaoService::registrar);
     }
 
     public List<Gasto> filtrarDuplicados(List<Gasto> novosGastos) {
-        // Agrupa por (mesNumero, ano) para buscar existentes em lote
-        java.util.Map<String, List<Gasto>> porPeriodo = new java.util.HashMap<>();
-        for (Gasto g : novosGastos) {
-            Integer mes = g.getMesNumero();
-            Integer ano = g.getAnoPagamento();
-            String key = (mes == null ? "" : mes.toString()) + ":" + (ano == null ? "" : ano.toString());
-            porPeriodo.computeIfAbsent(key, k -> new ArrayList<>()).add(g);
-        }
-
-        // Constrói um índice de chaves únicas a partir do banco por período
-        java.util.Set<String> chavesExistentes = new java.util.HashSet<>();
-        for (String k : porPeriodo.keySet()) {
-            String[] parts = k.split(":", -1);
-            Integer mes = parts[0].isEmpty() ? null : Integer.parseInt(parts[0]);
-            Integer ano = parts[1].isEmpty() ? null : Integer.parseInt(parts[1]);
-            if (mes == null || ano == null) continue;
-            List<Gasto> existentes = gastoRepository.findByMesNumeroAndAnoPagamento(mes, ano);
-            for (Gasto e : existentes) chavesExistentes.add(signature(e));
-        }
-
-        // Agora filtra novos removendo duplicados contra o banco e dentro do próprio lote
-        java.util.Set<String> chavesNoLote = new java.util.HashSet<>();
-        List<Gasto> result = new ArrayList<>();
-        for (Gasto g : novosGastos) {
-            String sig = signature(g);
-            if (chavesExistentes.contains(sig)) {
-                continue; // já existe no banco
+        return novoFiltroDuplicados().filtrar(novosGastos);
+    }
+
+    /**
+     * Filtro de duplicados que guarda estado entre chamadas: permite deduplicar uma importação
+     * entregue em lotes. As assinaturas do lote passam pelo {@link DeduplicacaoService} (filtro de Bloom + uma query por usuário).
+     */
+    public FiltroDuplicados novoFiltroDuplicados() {
+        return new FiltroDuplicados();
+    }
+
+    public class FiltroDuplicados {
+        private final java.util.Set<String> chavesNoLote = new java.util.HashSet<>();
+
+        private FiltroDuplicados() {}
+
+        public List<Gasto> filtrar(List<Gasto> novosGastos) {
+            // assinaturas do lote agrupadas por usuário (sem usuário não há restrição no banco)
+            java.util.Map<String, java.util.Set<String>> porUsuario = new java.util.HashMap<>();
+            for (Gasto g : novosGastos) {
+                g.setAssinatura(assinatura(g));
+                if (g.getUserId() != null) {
+                    porUsuario.computeIfAbsent(g.getUserId(), k -> new java.util.HashSet<>()).add(g.getAssinatura());
+                }
+            }
+            java.util.Set<String> chavesExistentes = new java.util.HashSet<>();
+            for (var e : porUsuario.entrySet()) {
+                for (String a : deduplicacaoService.existentes(e.getKey(), e.getValue())) {
+                    chavesExistentes.add(e.getKey() + ":" + a);
+                }
             }
-            if (chavesNoLote.contains(sig)) {
-                continue; // duplicado dentro do mesmo CSV
+            chavesExistentes.addAll(chavesSemAssinatura(novosGastos));
+
+            // filtra novos removendo duplicados contra o banco e dentro do próprio lote
+            List<Gasto> result = new ArrayList<>();
+            for (Gasto g : novosGastos) {
+                String chave = g.getUserId() + ":" + g.getAssinatura();
+                if (chavesExistentes.contains(chave)) {
+                    continue; // já existe no banco
+                }
+                if (!chavesNoLote.add(chave)) {
+                    continue; // duplicado dentro do mesmo CSV
+                }
+                result.add(g);
             }
-            chavesNoLote.add(sig);
-            result.add(g);
+            return result;
         }
-        return result;
     }
 
-    private String normalize(String s) {
-        if (s == null) return "";
-        String t = s.trim().toLowerCase();
-        t = t.replace('"', ' ').replace('\'', ' ');
-        t = t.replaceAll("\\s+", " ");
-        return t;
+    /**
+     * Chaves (usuário:assinatura) dos lançamentos já gravados sem a coluna assinatura (os manuais, e os legados
+     * até o backfill da subida) nos períodos dos candidatos, com a assinatura calculada na hora.
+     */
+    private java.util.Set<String> chavesSemAssinatura(List<Gasto> candidatos) {
+        java.util.Map<String, java.util.Set<Integer>> periodos = new java.util.HashMap<>();
+        for (Gasto g : candidatos) {
+            if (g.getUserId() != null && g.getMesNumero() != null && g.getAnoPagamento() != null) {
+                periodos.computeIfAbsent(g.getUserId(), k -> new java.util.HashSet<>())
+                        .add(ParcelamentoService.periodo(g.getMesNumero(), g.getAnoPagamento()));
+            }
+        }
+        java.util.Set<String> chaves = new java.util.HashSet<>();
+        periodos.forEach((uid, doUsuario) -> {
+            int de = java.util.Collections.min(doUsuario);
+            int ate = java.util.Collections.max(doUsuario);
+            for (Gasto g : gastoRepository.findSemAssinaturaEntre(uid, de / 12, ate / 12)) {
+                if (doUsuario.contains(ParcelamentoService.periodo(g.getMesNumero(), g.getAnoPagamento()))) {
+                    chaves.add(uid + ":" + assinatura(g));
+                }
+            }
+        });
+        return chaves;
+    }
+
+    /**
+     * Hash (128 bits, hex) da assinatura de deduplicação: usuário, período, descrição normalizada,
+     * valor em centavos e parcela. É o valor gravado em {@code gasto.assinatura}.
+     */
+    public static String assinatura(Gasto g) {
+        try {
+            byte[] hash = java.security.MessageDigest.getInstance("SHA-256")
+                    .digest(signature(g).getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            return java.util.HexFormat.of().formatHex(hash, 0, 16);
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
-    private String signature(Gasto g) {
+    private static String signature(Gasto g) {
         // chave: periodo + descricao normalizada + valor (2 casas) + parcela info
         int mes = g.getMesNumero() != null ? g.getMesNumero() : -1;
         int ano = g.getAnoPagamento() != null ? g.getAnoPagamento() : -1;
-        String desc = normalize(g.getDescricao());
+        String desc = NormalizadorDescricao.chave(g.getDescricao());
         long cents = Math.round((g.getValor() != null ? g.getValor() : 0.0) * 100.0);
         int parc = g.getParcelaAtual() != null ? g.getParcelaAtual() : 0;
         int tot = g.getTotalParcelas() != null ? g.getTotalParcelas() : 0;
@@ -180,28 +407,39 @@ public class GastoService {
     }
 
     @Transactional
-    public Gasto atualizarResponsavel(Long id, String responsavel) {
-        Gasto gasto = buscarOuLancarErro(id);
+    public Gasto atualizarResponsavel(String userId, Long id, String responsavel) {
+        Gasto gasto = buscarOuLancarErro(userId, id);
 
         gasto.setReferenteA(responsavel);
+        consolidadoService.alterado(gasto);
         return gastoRepository.save(gasto);
     }
 
-    public Optional<Gasto> buscarPorId(Long id) {
-        return gastoRepository.findById(id);
+    public Optional<Gasto> buscarPorId(String userId, Long id) {
+        if (ParcelamentoService.isVirtual(id)) {
+            return parcelamentoService.buscarProjetada(userId, id);
+        }
+        return buscarDoUsuario(userId, id);
     }
 
     @Transactional
-    public Gasto atualizarCategoria(Long id, String categoria) {
-        Gasto gasto = buscarOuLancarErro(id);
+    public Gasto atualizarCategoria(String userId, Long id, String categoria) {
+        Gasto gasto = buscarOuLancarErro(userId, id);
+        String categoriaAntes = gasto.getCategoria();
 
         gasto.setCategoria(categoria);
-        return gastoRepository.save(gasto);
+        consolidadoService.alterado(gasto);
+        Gasto salvo = gastoRepository.save(gasto);
+        categorizacaoService.registrarAlteracao(salvo.getUserId(), salvo.getDescricao(), categoriaAntes,
+                salvo.getDescricao(), salvo.getCategoria());
+        return salvo;
     }
 
     @Transactional
-    public Gasto atualizarParcialmente(Long id, AtualizacaoGastoDTO dto) {
-        Gasto gasto = buscarOuLancarErro(id);
+    public Gasto atualizarParcialmente(String userId, Long id, AtualizacaoGastoDTO dto) {
+        Gasto gasto = buscarOuLancarErro(userId, id);
+        String descricaoAntes = gasto.getDescricao();
+        String categoriaAntes = gasto.getCategoria();
 
         if (dto.getMesPagamento() != null) {
             gasto.setMesPagamento(dto.getMesPagamento());
@@ -224,35 +462,236 @@ public class GastoService {
             gasto.setMesPagamento(String.valueOf(gasto.getMesNumero()));
         }
 
-        return gastoRepository.save(gasto);
+        consolidadoService.alterado(gasto);
+        Gasto salvo = gastoRepository.save(gasto);
+        categorizacaoService.registrarAlteracao(salvo.getUserId(), descricaoAntes, categoriaAntes,
+                salvo.getDescricao(), salvo.getCategoria());
+        return salvo;
     }
 
     public Page<Gasto> buscarPaginado(String userId, Integer mesNumero, Integer anoPagamento, Boolean pago, Pageable pageable) {
+        pageable = ordenavel(pageable);
+        List<Gasto> projetadas = projetadas(userId, mesNumero, anoPagamento, pago);
         if (pago != null) {
-            return gastoRepository.findByMesNumeroAndAnoPagamentoAndPagoAndUserId(mesNumero, anoPagamento, pago, userId, pageable);
+            return comProjetadas(p -> gastoRepository.findByMesNumeroAndAnoPagamentoAndPagoAndUserId(mesNumero, anoPagamento, pago, userId, p), projetadas, pageable);
         }
-        return gastoRepository.findByMesNumeroAndAnoPagamentoAndUserId(mesNumero, anoPagamento, userId, pageable);
+        return comProjetadas(p -> gastoRepository.findByMesNumeroAndAnoPagamentoAndUserId(mesNumero, anoPagamento, userId, p), projetadas, pageable);
     }
 
     public Page<Gasto> buscarPaginadoExcluindoCategoria(String userId, Integer mesNumero, Integer anoPagamento, Boolean pago, String excluirCategoria, Pageable pageable) {
-        return gastoRepository.pageByPeriodoExcluindoCategoria(mesNumero, anoPagamento, pago, excluirCategoria, userId, pageable);
+        pageable = ordenavel(pageable);
+        List<Gasto> projetadas = new ArrayList<>(projetadas(userId, mesNumero, anoPagamento, pago));
+        projetadas.removeIf(g -> g.getCategoria() != null && g.getCategoria().equalsIgnoreCase(excluirCategoria));
+        return comProjetadas(p -> gastoRepository.pageByPeriodoExcluindoCategoria(mesNumero, anoPagamento, pago, excluirCategoria, userId, p), projetadas, pageable);
+    }
+
+    /**
+     * Mesma listagem de /paginado, só com os lançamentos cuja descrição contém {@code termo} (sem diferenciar
+     * maiúsculas nem acentos). Os ids saem do índice em memória ({@link IndiceDescricoes}) já na ordem pedida;
+     * o banco só lê as linhas da página.
+     */
+    public Page<Gasto> buscarPaginadoPorDescricao(String userId, Integer mesNumero, Integer anoPagamento, Boolean pago,
+                                                  String excluirCategoria, String termo, Pageable pageable) {
+        Pageable ordenada = ordenavel(pageable);
+        String excluir = excluirCategoria != null && !excluirCategoria.isBlank() ? excluirCategoria : null;
+        List<Long> ids = indiceDescricoes.buscar(userId, mesNumero, anoPagamento, termo, pago, excluir, ordenada.getSort());
+        List<Gasto> projetadas = new ArrayList<>(projetadas(userId, mesNumero, anoPagamento, pago));
+        projetadas.removeIf(g -> !IndiceDescricoes.contem(g.getDescricao(), termo)
+                || excluir != null && g.getCategoria() != null && g.getCategoria().equalsIgnoreCase(excluir));
+        return comProjetadas(p -> paginaDosIds(userId, ids, p), projetadas, ordenada);
+    }
+
+    // página dos ids (já ordenados) encontrados pela busca: lê só os da página, em consultas de até
+    // MAX_IDS_POR_CONSULTA ids (o PostgreSQL aceita até 32767 parâmetros por consulta)
+    private Page<Gasto> paginaDosIds(String userId, List<Long> ids, Pageable pageable) {
+        List<Long> daPagina = fatia(ids, pageable);
+        Map<Long, Gasto> lidos = new HashMap<>(daPagina.size());
+        for (int i = 0; i < daPagina.size(); i += MAX_IDS_POR_CONSULTA) {
+            for (Gasto g : gastoRepository.findByUserIdAndIdIn(userId,
+                    daPagina.subList(i, Math.min(daPagina.size(), i + MAX_IDS_POR_CONSULTA)), Pageable.unpaged())) {
+                lidos.put(g.getId(), g);
+            }
+        }
+        List<Gasto> itens = new ArrayList<>(daPagina.size());
+        for (Long id : daPagina) {
+            Gasto g = lidos.get(id);
+            if (g != null) itens.add(g); // excluído depois da montagem do índice
+        }
+        return new org.springframework.data.domain.PageImpl<>(itens, pageable, ids.size());
+    }
+
+    private static <T> List<T> fatia(List<T> lista, Pageable pageable) {
+        if (pageable.isUnpaged()) return lista;
+        int inicio = (int) Math.min(pageable.getOffset(), lista.size());
+        return new ArrayList<>(lista.subList(inicio, Math.min(inicio + pageable.getPageSize(), lista.size())));
     }
 
     public List<Gasto> buscarPorCategoria(String userId, Integer mesNumero, Integer anoPagamento, String categoria) {
-        return gastoRepository.findByMesNumeroAndAnoPagamentoAndCategoriaAndUserId(mesNumero, anoPagamento, categoria, userId);
+        List<Gasto> gastos = gastoRepository.findByMesNumeroAndAnoPagamentoAndCategoriaAndUserId(mesNumero, anoPagamento, categoria, userId);
+        List<Gasto> projetadas = projetadas(userId, mesNumero, anoPagamento, null);
+        if (projetadas.isEmpty()) {
+            return gastos;
+        }
+        List<Gasto> todos = new ArrayList<>(gastos);
+        for (Gasto g : projetadas) {
+            if (java.util.Objects.equals(g.getCategoria(), categoria)) todos.add(g);
+        }
+        return todos;
+    }
+
+    // sort só com propriedades conhecidas (as outras seriam erro na consulta), desempatado pelo id na direção da
+    // última propriedade: páginas com OFFSET diferentes veem os empates na mesma ordem
+    private static Pageable ordenavel(Pageable pageable) {
+        if (pageable.getSort().isUnsorted()) return pageable;
+        List<org.springframework.data.domain.Sort.Order> ordens = new ArrayList<>();
+        for (org.springframework.data.domain.Sort.Order o : pageable.getSort()) {
+            String propriedade = o.getProperty().equals("data") ? "id" : o.getProperty();
+            if (ORDENAVEIS.containsKey(propriedade)) ordens.add(o.withProperty(propriedade));
+        }
+        if (!ordens.isEmpty() && ordens.stream().noneMatch(o -> o.getProperty().equals("id"))) {
+            ordens.add(new org.springframework.data.domain.Sort.Order(ordens.get(ordens.size() - 1).getDirection(), "id"));
+        }
+        org.springframework.data.domain.Sort sort = org.springframework.data.domain.Sort.by(ordens);
+        return pageable.isPaged()
+                ? org.springframework.data.domain.PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort)
+                : Pageable.unpaged(sort);
+    }
+
+    // parcelas projetadas dos planos de parcelamento no mês (nunca estão pagas)
+    private List<Gasto> projetadas(String userId, Integer mesNumero, Integer anoPagamento, Boolean pago) {
+        if (mesNumero == null || anoPagamento == null || Boolean.TRUE.equals(pago)) {
+            return List.of();
+        }
+        return parcelamentoService.projetar(userId, mesNumero, anoPagamento);
+    }
+
+    /**
+     * Intercala as parcelas projetadas (poucas: uma por plano ativo no mês) nas linhas do banco, que ficam na
+     * ordem do banco: cada projetada entra antes da primeira linha que ela precede pelo {@link #comparador}.
+     * Com K projetadas, a página lê do banco só a janela dela mais as K linhas anteriores, que dizem quantas
+     * projetadas já ficaram para trás.
+     */
+    private static Page<Gasto> comProjetadas(java.util.function.Function<Pageable, Page<Gasto>> consulta,
+                                             List<Gasto> projetadas, Pageable pageable) {
+        if (projetadas.isEmpty()) {
+            return consulta.apply(pageable);
+        }
+        java.util.Comparator<Gasto> comparador = comparador(pageable.getSort());
+        List<Gasto> ordenadas = new ArrayList<>(projetadas);
+        ordenadas.sort(comparador);
+        if (pageable.isUnpaged()) {
+            Page<Gasto> banco = consulta.apply(pageable);
+            List<Gasto> todos = intercalar(banco.getContent(), ordenadas, 0, true, comparador);
+            return new org.springframework.data.domain.PageImpl<>(todos, pageable, todos.size());
+        }
+
+        long inicio = Math.max(0, pageable.getOffset() - ordenadas.size());
+        Page<Gasto> banco = consulta.apply(new Janela(inicio, (int) (pageable.getOffset() + pageable.getPageSize() - inicio),
+                pageable.getSort()));
+        List<Gasto> linhas = banco.getContent();
+        long totalBanco = banco.getTotalElements();
+        if (linhas.isEmpty() && inicio > 0 && totalBanco > 0) {
+            // página depois da última linha do banco: ela diz quantas projetadas ficam no fim
+            inicio = totalBanco - 1;
+            linhas = consulta.apply(new Janela(inicio, 1, pageable.getSort())).getContent();
+        }
+        // antes da primeira linha lida: as linhas anteriores do banco e as projetadas que as precedem
+        int antes = inicio == 0 || linhas.isEmpty() ? 0 : precedentes(ordenadas, linhas.get(0), comparador);
+        List<Gasto> sequencia = intercalar(linhas, ordenadas, antes, inicio + linhas.size() >= totalBanco, comparador);
+        long primeiro = inicio + antes;
+        int de = (int) Math.min(Math.max(0, pageable.getOffset() - primeiro), sequencia.size());
+        int ate = Math.min(de + pageable.getPageSize(), sequencia.size());
+        return new org.springframework.data.domain.PageImpl<>(new ArrayList<>(sequencia.subList(de, ate)), pageable,
+                totalBanco + ordenadas.size());
+    }
+
+    // linhas do banco com as projetadas a partir de "desde" intercaladas; as restantes no fim se as linhas
+    // chegaram ao fim do banco
+    private static List<Gasto> intercalar(List<Gasto> linhas, List<Gasto> projetadas, int desde, boolean ultimas,
+                                          java.util.Comparator<Gasto> comparador) {
+        List<Gasto> sequencia = new ArrayList<>(linhas.size() + projetadas.size());
+        int j = desde;
+        for (Gasto linha : linhas) {
+            while (j < projetadas.size() && comparador.compare(projetadas.get(j), linha) < 0) {
+                sequencia.add(projetadas.get(j++));
+            }
+            sequencia.add(linha);
+        }
+        if (ultimas) sequencia.addAll(projetadas.subList(j, projetadas.size()));
+        return sequencia;
+    }
+
+    // quantas projetadas (ordenadas) ficam antes da linha
+    private static int precedentes(List<Gasto> projetadas, Gasto linha, java.util.Comparator<Gasto> comparador) {
+        int n = 0;
+        while (n < projetadas.size() && comparador.compare(projetadas.get(n), linha) < 0) n++;
+        return n;
+    }
+
+    // Pageable por deslocamento (o PageRequest só pula páginas inteiras)
+    private record Janela(long offset, int tamanho, org.springframework.data.domain.Sort sort) implements Pageable {
+        @Override public int getPageNumber() { return (int) (offset / tamanho); }
+        @Override public int getPageSize() { return tamanho; }
+        @Override public long getOffset() { return offset; }
+        @Override public org.springframework.data.domain.Sort getSort() { return sort; }
+        @Override public Pageable next() { return new Janela(offset + tamanho, tamanho, sort); }
+        @Override public Pageable previousOrFirst() { return hasPrevious() ? new Janela(Math.max(0, offset - tamanho), tamanho, sort) : first(); }
+        @Override public Pageable first() { return new Janela(0, tamanho, sort); }
+        @Override public Pageable withPage(int pagina) { return new Janela((long) pagina * tamanho, tamanho, sort); }
+        @Override public boolean hasPrevious() { return offset > 0; }
+    }
+
+    // ordenação em memória equivalente ao Sort da consulta; nulos como o maior valor (como no PostgreSQL:
+    // por último no asc, primeiro no desc)
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static java.util.Comparator<Gasto> comparador(org.springframework.data.domain.Sort sort) {
+        java.util.Comparator<Gasto> c = (a, b) -> 0;
+        for (org.springframework.data.domain.Sort.Order o : sort) {
+            java.util.function.Function<Gasto, Comparable<?>> valor = ORDENAVEIS.get(o.getProperty());
+            java.util.Comparator<Gasto> campo = (a, b) -> {
+                Comparable va = valor.apply(a);
+                Comparable vb = valor.apply(b);
+                if (va == null || vb == null) return va == null ? (vb == null ? 0 : 1) : -1;
+                if (va instanceof String sa && o.isIgnoreCase()) return sa.compareToIgnoreCase((String) vb);
+                return va.compareTo(vb);
+            };
+            c = c.thenComparing(o.isAscending() ? campo : campo.reversed());
+        }
+        return c;
     }
 
     public ResumoMensalDTO obterResumoMensal(String userId, Integer mesNumero, Integer anoPagamento) {
-        double total      = gastoRepository.sumValorByMesNumeroEAnoAndUser(mesNumero, anoPagamento, userId);
-        double totalPago  = gastoRepository.sumValorPagoByMesNumeroEAnoAndUser(mesNumero, anoPagamento, userId);
+        return cacheResumos.obter(CacheResumos.Tipo.MENSAL, userId, mesNumero, anoPagamento,
+                () -> calcularResumoMensal(userId, mesNumero, anoPagamento));
+    }
+
+    private ResumoMensalDTO calcularResumoMensal(String userId, Integer mesNumero, Integer anoPagamento) {
+        // uma leitura das linhas do mês no consolidado (uma por categoria)
+        double total = 0;
+        double totalPago = 0;
+        long quantidade = 0;
+        for (ConsolidadoMensal c : consolidadoRepository.findByUserIdAndAnoAndMes(userId, anoPagamento, mesNumero)) {
+            total += c.getTotal();
+            totalPago += c.getTotalPago();
+            quantidade += c.getQuantidade();
+        }
         double totalAberto = total - totalPago;
-        long quantidade   = gastoRepository.countByMesNumeroEAnoAndUser(mesNumero, anoPagamento, userId);
+        for (Gasto g : projetadas(userId, mesNumero, anoPagamento, null)) {
+            total += g.getValor();
+            totalAberto += g.getValor();
+            quantidade++;
+        }
 
         return new ResumoMensalDTO(mesNumero, anoPagamento, total, totalPago, totalAberto, quantidade);
     }
 
     public List<CategoriaResumoDTO> obterResumoPorCategoria(String userId, Integer mesNumero, Integer anoPagamento) {
-        List<Object[]> rows = gastoRepository.resumoPorCategoriaUser(mesNumero, anoPagamento, userId);
+        return cacheResumos.obter(CacheResumos.Tipo.POR_CATEGORIA, userId, mesNumero, anoPagamento,
+                () -> calcularResumoPorCategoria(userId, mesNumero, anoPagamento));
+    }
+
+    private List<CategoriaResumoDTO> calcularResumoPorCategoria(String userId, Integer mesNumero, Integer anoPagamento) {
+        List<Object[]> rows = consolidadoRepository.resumoPorCategoria(mesNumero, anoPagamento, userId);
 
         List<CategoriaResumoDTO> lista = new ArrayList<>();
         for (Object[] r : rows) {
@@ -264,12 +703,73 @@ public class GastoService {
 
             lista.add(new CategoriaResumoDTO(categoria, total, totalPago, totalAberto, quantidade));
         }
+        for (Gasto g : projetadas(userId, mesNumero, anoPagamento, null)) {
+            String categoria = g.getCategoria() != null ? g.getCategoria() : "Sem Categoria";
+            CategoriaResumoDTO dto = lista.stream().filter(c -> categoria.equals(c.getCategoria())).findFirst().orElse(null);
+            if (dto == null) {
+                dto = new CategoriaResumoDTO(categoria, 0.0, 0.0, 0.0, 0L);
+                lista.add(dto);
+            }
+            dto.setTotal(dto.getTotal() + g.getValor());
+            dto.setTotalAberto(dto.getTotalAberto() + g.getValor());
+            dto.setQuantidade(dto.getQuantidade() + 1);
+        }
 
         // opcional: ordenar por total desc
         lista.sort((a, b) -> Double.compare(b.getTotal(), a.getTotal()));
         return lista;
     }
 
+    /**
+     * Resumo de cada mês entre {@code de} e {@code ate} (inclusive, meses sem lançamentos zerados), com o
+     * detalhe por categoria: uma leitura do consolidado no intervalo mais as parcelas projetadas dele.
+     */
+    public List<TendenciaMensalDTO> obterTendencia(String userId, YearMonth de, YearMonth ate) {
+        int inicio = ParcelamentoService.periodo(de.getMonthValue(), de.getYear());
+        int fim = ParcelamentoService.periodo(ate.getMonthValue(), ate.getYear());
+        if (fim < inicio) {
+            throw new IllegalArgumentException("'de' deve ser anterior ou igual a 'ate'");
+        }
+        if (fim - inicio + 1 > MAX_MESES_TENDENCIA) {
+            throw new IllegalArgumentException("Intervalo máximo da tendência: " + MAX_MESES_TENDENCIA + " meses");
+        }
+
+        List<TendenciaMensalDTO> meses = new ArrayList<>(fim - inicio + 1);
+        List<java.util.Map<String, CategoriaResumoDTO>> categorias = new ArrayList<>(fim - inicio + 1);
+        for (int p = inicio; p <= fim; p++) {
+            meses.add(new TendenciaMensalDTO(p % 12 + 1, p / 12));
+            categorias.add(new java.util.HashMap<>());
+        }
+        for (ConsolidadoMensal c : consolidadoRepository.findEntre(userId, de.getYear(), ate.getYear(), inicio, fim)) {
+            int i = ParcelamentoService.periodo(c.getMes(), c.getAno()) - inicio;
+            somar(meses.get(i), categorias.get(i), c.getCategoria(), c.getTotal(), c.getTotalPago(), c.getQuantidade());
+        }
+        for (Gasto g : parcelamentoService.projetarEntre(userId, inicio, fim)) {
+            int i = ParcelamentoService.periodo(g.getMesNumero(), g.getAnoPagamento()) - inicio;
+            String categoria = g.getCategoria() != null ? g.getCategoria() : "Sem Categoria";
+            somar(meses.get(i), categorias.get(i), categoria, g.getValor(), 0.0, 1L);
+        }
+        for (int i = 0; i < meses.size(); i++) {
+            List<CategoriaResumoDTO> lista = new ArrayList<>(categorias.get(i).values());
+            lista.sort((a, b) -> Double.compare(b.getTotal(), a.getTotal()));
+            meses.get(i).setCategorias(lista);
+        }
+        return meses;
+    }
+
+    private static void somar(TendenciaMensalDTO mes, java.util.Map<String, CategoriaResumoDTO> categorias,
+                              String categoria, double total, double totalPago, long quantidade) {
+        mes.setTotal(mes.getTotal() + total);
+        mes.setTotalPago(mes.getTotalPago() + totalPago);
+        mes.setTotalAberto(mes.getTotalAberto() + total - totalPago);
+        mes.setQuantidade(mes.getQuantidade() + quantidade);
+        CategoriaResumoDTO dto = categorias.computeIfAbsent(categoria, k -> new CategoriaResumoDTO(k, 0.0, 0.0, 0.0, 0L));
+        dto.setTotal(dto.getTotal() + total);
+        dto.setTotalPago(dto.getTotalPago() + totalPago);
+        dto.setTotalAberto(dto.getTotalAberto() + total - totalPago);
+        dto.setQuantidade(dto.getQuantidade() + quantidade);
+    }
+
     public Gasto criar(CriarGastoDTO dto, String userId) {
         var g = new Gasto();
         g.setMesNumero(dto.mesNumero());
@@ -354,11 +854,56 @@ public class GastoService {
         }
 
         if (!pendentes.isEmpty()) {
+            pendentes.forEach(consolidadoService::alterado);
             gastoRepository.saveAll(pendentes);
         }
         return updates;
     }
 
+    /**
+     * Preenche a assinatura dos gastos importados antes da coluna existir, para que reimportações os
+     * reconheçam. Só entram os que têm a marca do parser (cartão ou referenteA "Pessoal"): os criados à mão
+     * seguem sem assinatura. Quando dois gastos do mesmo usuário têm a mesma assinatura, só o de menor id a
+     * recebe. Percorre por id em páginas de {@value #LOTE_BACKFILL}, cada uma na própria transação.
+     */
+    public int backfillAssinaturas() {
+        int updates = 0;
+        long depois = 0;
+        while (true) {
+            long inicio = depois;
+            long[] pagina = transacao.execute(s -> backfillPagina(inicio)); // [último id, preenchidas]
+            if (pagina == null || pagina[0] < 0) break;
+            depois = pagina[0];
+            updates += (int) pagina[1];
+        }
+        deduplicacaoService.descartarTodos();
+        return updates;
+    }
+
+    private long[] backfillPagina(long depois) {
+        List<Gasto> gastos = gastoRepository.findImportadosSemAssinatura(depois, REFERENTE_IMPORTACAO,
+                org.springframework.data.domain.PageRequest.of(0, LOTE_BACKFILL));
+        if (gastos.isEmpty()) return new long[]{-1, 0};
+
+        // assinaturas já gravadas (inclusive pelas páginas anteriores) e as desta página, por usuário
+        Map<String, Map<String, Gasto>> porUsuario = new HashMap<>();
+        for (Gasto g : gastos) {
+            porUsuario.computeIfAbsent(g.getUserId(), k -> new java.util.LinkedHashMap<>())
+                    .putIfAbsent(assinatura(g), g);
+        }
+        int updates = 0;
+        for (Map.Entry<String, Map<String, Gasto>> e : porUsuario.entrySet()) {
+            java.util.Set<String> usadas = new java.util.HashSet<>(
+                    gastoRepository.findAssinaturasExistentes(e.getKey(), e.getValue().keySet()));
+            for (Map.Entry<String, Gasto> a : e.getValue().entrySet()) {
+                if (usadas.contains(a.getKey())) continue;
+                a.getValue().setAssinatura(a.getKey());
+                updates++;
+            }
+        }
+        return new long[]{gastos.get(gastos.size() - 1).getId(), updates};
+    }
+
 
 }
 
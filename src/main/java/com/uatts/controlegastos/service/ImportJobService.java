@@ -0,0 +1,247 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.dto.ImportJobStatusDTO;
+import com.uatts.controlegastos.dto.ImportacaoResponseDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Jobs de importação/preview de CSV executados fora da thread da requisição.
+ * O estado fica em memória; jobs finalizados são descartados após {@code app.importacao.jobs.retencao-minutos}.
+ *
+ * A importação relê o arquivo em streaming; o preview interpreta o arquivo inteiro em memória (e guarda os
+ * lançamentos preparados para a confirmação), então só aceita arquivos até {@code app.importacao.jobs.preview-max-bytes}.
+ */
+@Service
+public class ImportJobService {
+
+    public enum Tipo { IMPORTACAO, PREVIEW }
+
+    public enum Etapa { NA_FILA, LENDO, ANALISANDO, GRAVANDO, CONCLUIDO, CANCELADO, ERRO }
+
+    private final ImportacaoStreamingService importacaoStreamingService;
+    private final ImportacaoCsvService importacaoCsvService;
+    private final ThreadPoolTaskExecutor importacaoExecutor;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${app.importacao.jobs.retencao-minutos:60}")
+    private long retencaoMinutos;
+
+    @Value("${app.importacao.jobs.preview-max-bytes:20971520}")
+    private long previewMaxBytes;
+
+    public ImportJobService(ImportacaoStreamingService importacaoStreamingService,
+                            ImportacaoCsvService importacaoCsvService,
+                            ThreadPoolTaskExecutor importacaoExecutor) {
+        this.importacaoStreamingService = importacaoStreamingService;
+        this.importacaoCsvService = importacaoCsvService;
+        this.importacaoExecutor = importacaoExecutor;
+    }
+
+    /** Agenda a importação de um arquivo já copiado para disco; o job apaga o arquivo ao terminar. */
+    public ImportJobStatusDTO submeterImportacao(Path spool, OpcoesImportacao opcoes) {
+        ImportJob job = new ImportJob(Tipo.IMPORTACAO, opcoes.userId(), spool);
+        return submeter(job, spool, () -> {
+            ImportacaoResponseDTO resp = importacaoStreamingService.importar(spool, opcoes, job);
+            job.totalLidas = resp.getTotalLidas();
+            job.importadas = resp.getImportadas();
+            return resp;
+        });
+    }
+
+    /** Agenda o preview; arquivos acima de {@code app.importacao.jobs.preview-max-bytes} são recusados (413). */
+    public ImportJobStatusDTO submeterPreview(Path spool, OpcoesImportacao opcoes) {
+        long tamanho = tamanho(spool);
+        if (tamanho > previewMaxBytes) {
+            apagar(spool);
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Arquivo grande demais para preview (máximo "
+                    + previewMaxBytes / (1024 * 1024) + " MB); use a importação direta, que processa em streaming");
+        }
+        ImportJob job = new ImportJob(Tipo.PREVIEW, opcoes.userId(), spool);
+        return submeter(job, spool, () -> {
+            job.mudarEtapa(Etapa.LENDO);
+            StringBuilder csv = new StringBuilder((int) tamanho);
+            try (BufferedReader br = Files.newBufferedReader(spool, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (job.cancelado()) throw new CancellationException("Preview cancelado");
+                    csv.append(line).append('\n');
+                    job.linhas.incrementAndGet();
+                }
+            }
+            job.mudarEtapa(Etapa.ANALISANDO);
+            var resp = importacaoCsvService.preview(csv.toString(), opcoes);
+            job.totalLidas = resp.getTotalLidas();
+            job.importadas = resp.getImportadas();
+            return resp;
+        });
+    }
+
+    public Optional<ImportJobStatusDTO> buscar(String id, String userId) {
+        return doUsuario(id, userId).map(ImportJob::status);
+    }
+
+    /** Pede o cancelamento; retorna vazio se o job não existir (ou for de outro usuário). */
+    public Optional<ImportJobStatusDTO> cancelar(String id, String userId) {
+        Optional<ImportJob> job = doUsuario(id, userId);
+        job.ifPresent(j -> {
+            // ainda na fila: a tarefa não chega a executar, então o arquivo é apagado aqui
+            if (j.cancelar()) apagar(j.spool);
+        });
+        return job.map(ImportJob::status);
+    }
+
+    private Optional<ImportJob> doUsuario(String id, String userId) {
+        ImportJob job = jobs.get(id);
+        if (job == null || !Objects.equals(job.userId, userId)) return Optional.empty();
+        return Optional.of(job);
+    }
+
+    private interface Tarefa {
+        Object executar() throws IOException;
+    }
+
+    private ImportJobStatusDTO submeter(ImportJob job, Path spool, Tarefa tarefa) {
+        descartarFinalizados();
+        jobs.put(job.id, job);
+        try {
+            job.future = importacaoExecutor.submit(() -> executar(job, tarefa));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.id);
+            apagar(spool);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Fila de importação cheia, tente novamente em instantes");
+        }
+        return job.status();
+    }
+
+    private void executar(ImportJob job, Tarefa tarefa) {
+        try {
+            job.mudarEtapa(Etapa.LENDO);
+            if (job.cancelado()) throw new CancellationException();
+            job.resultado = tarefa.executar();
+            job.finalizar(Etapa.CONCLUIDO, null);
+        } catch (CancellationException e) {
+            job.finalizar(Etapa.CANCELADO, null);
+        } catch (Exception e) {
+            job.finalizar(job.cancelado() ? Etapa.CANCELADO : Etapa.ERRO, e.getMessage());
+        } finally {
+            apagar(job.spool);
+        }
+    }
+
+    private void descartarFinalizados() {
+        Instant limite = Instant.now().minus(Duration.ofMinutes(retencaoMinutos));
+        jobs.values().removeIf(j -> j.finalizadoEm != null && j.finalizadoEm.isBefore(limite));
+    }
+
+    private static long tamanho(Path spool) {
+        try {
+            return Files.size(spool);
+        } catch (IOException e) {
+            apagar(spool);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void apagar(Path spool) {
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException ignore) {}
+    }
+
+    private static final class ImportJob implements ImportacaoStreamingService.Acompanhamento {
+        private final String id = UUID.randomUUID().toString();
+        private final Tipo tipo;
+        private final String userId;
+        private final Path spool;
+        private final Instant criadoEm = Instant.now();
+        private final AtomicLong linhas = new AtomicLong();
+        private volatile Etapa etapa = Etapa.NA_FILA;
+        private volatile int totalLidas;
+        private volatile int importadas;
+        private volatile boolean cancelamentoPedido;
+        private volatile Object resultado;
+        private volatile String erro;
+        private volatile Instant finalizadoEm;
+        private volatile Future<?> future;
+
+        private ImportJob(Tipo tipo, String userId, Path spool) {
+            this.tipo = tipo;
+            this.userId = userId;
+            this.spool = spool;
+        }
+
+        @Override
+        public void etapa(ImportacaoStreamingService.Etapa etapa) {
+            mudarEtapa(Etapa.valueOf(etapa.name()));
+        }
+
+        @Override
+        public void linhasProcessadas(long linhas) {
+            this.linhas.set(linhas);
+        }
+
+        @Override
+        public void contadores(int lidas, int importadas) {
+            this.totalLidas = lidas;
+            this.importadas = importadas;
+        }
+
+        @Override
+        public boolean cancelado() {
+            return cancelamentoPedido || Thread.currentThread().isInterrupted();
+        }
+
+        /** Marca o cancelamento; retorna true se o job ainda estava na fila e foi finalizado aqui. */
+        private synchronized boolean cancelar() {
+            if (finalizadoEm != null) return false;
+            cancelamentoPedido = true;
+            Future<?> f = future;
+            if (f != null) f.cancel(false);
+            if (etapa == Etapa.NA_FILA) {
+                finalizar(Etapa.CANCELADO, null);
+                return true;
+            }
+            return false; // em execução: a tarefa percebe o pedido na próxima linha
+        }
+
+        private synchronized void mudarEtapa(Etapa nova) {
+            if (finalizadoEm == null) this.etapa = nova;
+        }
+
+        private synchronized void finalizar(Etapa etapaFinal, String mensagemErro) {
+            if (finalizadoEm != null) return;
+            this.etapa = etapaFinal;
+            this.erro = mensagemErro;
+            this.finalizadoEm = Instant.now();
+        }
+
+        private ImportJobStatusDTO status() {
+            int lidas = totalLidas;
+            int imp = importadas;
+            return new ImportJobStatusDTO(id, tipo.name(), etapa.name(), linhas.get(), lidas, imp, lidas - imp,
+                    erro, criadoEm, finalizadoEm, etapa == Etapa.CONCLUIDO ? resultado : null);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.dto.ImportacaoResponseDTO;
+import com.uatts.controlegastos.dto.PreviewResponseDTO;
+import com.uatts.controlegastos.model.Cartao;
+import com.uatts.controlegastos.model.Gasto;
+import com.uatts.controlegastos.model.Parcelamento;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Fluxo de importação/preview de CSV com o arquivo inteiro em memória
+ * (usado por /importar-csv, /preview-csv e pelos jobs de preview).
+ *
+ * Preview e importação rodam o mesmo {@link PipelineImportacao} ({@link EtapasImportacao#comuns} e a
+ * categorização de {@link CategorizacaoService#etapa}) e diferem só no destino: a importação junta os
+ * lançamentos para gravar; o preview os guarda (token) e, depois da deduplicação em lotes, acumula os
+ * resumos em um {@link AgregadorPreview}.
+ */
+@Service
+public class ImportacaoCsvService {
+
+    // lançamentos por consulta de duplicados no preview
+    private static final int LOTE_DEDUPLICACAO = 1000;
+
+    private final CsvParserService csvParserService;
+    private final GastoService gastoService;
+    private final PreviasImportacao previas;
+    private final ParcelamentoService parcelamentoService;
+    private final MetricasImportacao metricas;
+    private final DeteccaoCartao deteccaoCartao;
+    private final CategorizacaoService categorizacaoService;
+
+    public ImportacaoCsvService(CsvParserService csvParserService, GastoService gastoService, PreviasImportacao previas,
+                                ParcelamentoService parcelamentoService, MetricasImportacao metricas,
+                                DeteccaoCartao deteccaoCartao, CategorizacaoService categorizacaoService) {
+        this.csvParserService = csvParserService;
+        this.gastoService = gastoService;
+        this.previas = previas;
+        this.parcelamentoService = parcelamentoService;
+        this.metricas = metricas;
+        this.deteccaoCartao = deteccaoCartao;
+        this.categorizacaoService = categorizacaoService;
+    }
+
+    public ImportacaoResponseDTO importar(String csvText, OpcoesImportacao opcoes) {
+        // mesmo conteúdo/opções de um preview recente: grava o que o preview já preparou
+        ParcelamentoService.Separacao lancamentos = previas.retirarPorConteudo(opcoes.userId(), PreviasImportacao.hash(csvText, opcoes))
+                .orElseGet(() -> {
+                    List<Gasto> gastos = new ArrayList<>();
+                    Execucao execucao = executar(csvText, opcoes, List.of(), gastos::add);
+                    ParcelamentoService.Separacao separacao = separar(gastos, opcoes, execucao.tempos());
+                    metricas.registrar("importacao", execucao.tempos());
+                    return separacao;
+                });
+        return gravar(lancamentos);
+    }
+
+    /** Grava os lançamentos guardados por um preview; vazio se o token não existir, expirou ou é de outro usuário. */
+    public Optional<ImportacaoResponseDTO> importarPreview(String token, String userId) {
+        return previas.retirar(token, userId).map(this::gravar);
+    }
+
+    private ImportacaoResponseDTO gravar(ParcelamentoService.Separacao lancamentos) {
+        List<Gasto> gastos = lancamentos.avulsos();
+        int totalLidas = gastos.size();
+        for (Parcelamento p : lancamentos.planos()) {
+            totalLidas += p.getTotalParcelas() - p.getParcelaInicial() + 1;
+        }
+
+        // parcelas de fatura cujo plano já existe passam a valer no lugar da projeção
+        parcelamentoService.vincular(gastos);
+        // duplicados (no banco ou no próprio CSV) são ignorados na gravação; a contagem vem do banco
+        int importadas = gastoService.importarTodos(gastos) + parcelamentoService.importar(lancamentos.planos());
+        int ignoradas = totalLidas - importadas;
+
+        return new ImportacaoResponseDTO(totalLidas, importadas, ignoradas);
+    }
+
+    /**
+     * Resumo do que a importação gravaria. Os lançamentos preparados ficam guardados (token na resposta)
+     * para a confirmação via {@link #importarPreview} ou um /importar-csv com o mesmo conteúdo.
+     */
+    public PreviewResponseDTO preview(String csvText, OpcoesImportacao opcoes) {
+        List<Gasto> gastos = new ArrayList<>();
+        AgregadorPreview agregador = new AgregadorPreview();
+        boolean planos = parcelamentoService.usarPlanos(opcoes);
+
+        // mesmo preparo da importação, sem salvar; o resumo só conta o que seria realmente gravado
+        Execucao execucao = executar(csvText, opcoes,
+                List.of(EtapasImportacao.ajuste("guardar", gastos::add), deduplicacao(planos)), agregador);
+
+        PreviewResponseDTO resp = agregador.resultado(gastos.size());
+        resp.setEstornos(ReconciliacaoEstornos.relatorio(execucao.reembolsos(), execucao.estornos()));
+        resp.setToken(previas.guardar(opcoes.userId(), PreviasImportacao.hash(csvText, opcoes),
+                separar(gastos, opcoes, execucao.tempos())));
+        metricas.registrar("preview", execucao.tempos());
+        return resp;
+    }
+
+    private record Execucao(ReconciliacaoEstornos reembolsos, ReconciliacaoEstornos estornos, Map<String, Long> tempos) {}
+
+    /** Parse + etapas comuns (+ as extras do fluxo) em uma passada, entregando ao destino. */
+    private Execucao executar(String csvText, OpcoesImportacao opcoes, List<EtapaImportacao> extras, Consumer<Gasto> destino) {
+        long t = System.nanoTime();
+        ReconciliacaoEstornos reembolsos = CsvParserService.prepararReembolsos(csvText);
+        ReconciliacaoEstornos estornos = CsvParserService.prepararEstornosCsv(csvText);
+        long indices = System.nanoTime() - t;
+
+        // sem cartão nem dia de fechamento informados: detecta pelo conteúdo (uma passada pelo texto)
+        t = System.nanoTime();
+        DeteccaoCartao.Analise analise = opcoes.cartao() == null && opcoes.diaFechamento() == null
+                ? deteccaoCartao.novaAnalise() : null;
+        if (analise != null) analise.registrar(csvText);
+        Function<String, Cartao> cartaoDaLinha = analise != null ? analise::cartaoDaLinha : null;
+        long deteccao = System.nanoTime() - t;
+
+        List<EtapaImportacao> etapas = new ArrayList<>(EtapasImportacao.comuns(opcoes, estornos));
+        etapas.add(categorizacaoService.etapa(opcoes.userId()));
+        etapas.addAll(extras);
+        int dia = diaFechamentoEfetivo(opcoes);
+        Map<String, Long> tempos = new PipelineImportacao(etapas).executar("parse",
+                d -> csvParserService.parseWithDiaFechamento(csvText, dia, cartaoDaLinha, reembolsos, d), destino);
+        tempos.put("indices", indices);
+        tempos.put("deteccao-cartao", deteccao);
+        return new Execucao(reembolsos, estornos, tempos);
+    }
+
+    /** Compras parceladas agrupadas em planos, quando {@link ParcelamentoService#usarPlanos}. */
+    private ParcelamentoService.Separacao separar(List<Gasto> gastos, OpcoesImportacao opcoes, Map<String, Long> tempos) {
+        if (!parcelamentoService.usarPlanos(opcoes)) {
+            return new ParcelamentoService.Separacao(gastos, List.of());
+        }
+        long t = System.nanoTime();
+        ParcelamentoService.Separacao separacao = ParcelamentoService.separar(gastos);
+        tempos.put("planos", System.nanoTime() - t);
+        return separacao;
+    }
+
+    /**
+     * Remove duplicados contra o banco e dentro do CSV, consultando em lotes de {@value #LOTE_DEDUPLICACAO};
+     * com planos, também as parcelas de planos já gravados.
+     */
+    private EtapaImportacao deduplicacao(boolean planos) {
+        GastoService.FiltroDuplicados filtro = gastoService.novoFiltroDuplicados();
+        List<Gasto> pendentes = new ArrayList<>(LOTE_DEDUPLICACAO);
+        return new EtapaImportacao() {
+            @Override
+            public String nome() { return "deduplicacao"; }
+
+            @Override
+            public void processar(Gasto g, Consumer<Gasto> proximo) {
+                pendentes.add(g);
+                if (pendentes.size() >= LOTE_DEDUPLICACAO) concluir(proximo);
+            }
+
+            @Override
+            public void concluir(Consumer<Gasto> proximo) {
+                if (pendentes.isEmpty()) return;
+                List<Gasto> novos = filtro.filtrar(pendentes);
+                Set<Gasto> cobertos = planos ? parcelamentoService.cobertos(novos) : Set.of();
+                pendentes.clear();
+                for (Gasto g : novos) {
+                    if (!cobertos.contains(g)) proximo.accept(g);
+                }
+            }
+        };
+    }
+
+    private int diaFechamentoEfetivo(OpcoesImportacao opcoes) {
+        if (opcoes.cartao() != null && opcoes.cartao().getDiaFechamento() != null) {
+            return opcoes.cartao().getDiaFechamento();
+        }
+        if (opcoes.diaFechamento() != null) {
+            return opcoes.diaFechamento();
+        }
+        return csvParserService.getDiaFechamentoPadrao();
+    }
+}
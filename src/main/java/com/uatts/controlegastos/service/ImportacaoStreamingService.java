@@ -0,0 +1,238 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.dto.ImportacaoResponseDTO;
+import com.uatts.controlegastos.model.Cartao;
+import com.uatts.controlegastos.model.Gasto;
+import com.uatts.controlegastos.model.Parcelamento;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Importação de CSV em modo streaming: o arquivo nunca fica inteiro em memória.
+ *
+ * O conteúdo recebido é copiado linha a linha para um arquivo temporário; as passadas necessárias
+ * (índices de estorno, colapso de parcelas no statementMode e a importação em si) releem esse arquivo.
+ * Os lançamentos são gravados (e deduplicados pelo banco) em lotes de {@code app.importacao.tamanho-lote}.
+ * As regras e os contadores são os mesmos de {@code /api/gastos/importar-csv}.
+ */
+@Service
+public class ImportacaoStreamingService {
+
+    private final CsvParserService csvParserService;
+    private final GastoService gastoService;
+    private final ParcelamentoService parcelamentoService;
+    private final MetricasImportacao metricas;
+    private final DeteccaoCartao deteccaoCartao;
+    private final CategorizacaoService categorizacaoService;
+
+    @Value("${app.importacao.tamanho-lote:500}")
+    private int tamanhoLote;
+
+    public ImportacaoStreamingService(CsvParserService csvParserService, GastoService gastoService,
+                                      ParcelamentoService parcelamentoService, MetricasImportacao metricas,
+                                      DeteccaoCartao deteccaoCartao, CategorizacaoService categorizacaoService) {
+        this.csvParserService = csvParserService;
+        this.gastoService = gastoService;
+        this.parcelamentoService = parcelamentoService;
+        this.metricas = metricas;
+        this.deteccaoCartao = deteccaoCartao;
+        this.categorizacaoService = categorizacaoService;
+    }
+
+    /** Etapas reportadas durante a importação. */
+    public enum Etapa { LENDO, ANALISANDO, GRAVANDO }
+
+    /** Recebe o progresso da importação e pode pedir o cancelamento (checado a cada linha). */
+    public interface Acompanhamento {
+        Acompanhamento NENHUM = new Acompanhamento() {};
+
+        default void etapa(Etapa etapa) {}
+        default void linhasProcessadas(long linhas) {}
+        default void contadores(int lidas, int importadas) {}
+        default boolean cancelado() { return false; }
+    }
+
+    public ImportacaoResponseDTO importar(InputStream in, Charset charset, OpcoesImportacao opcoes) throws IOException {
+        Path spool = spool(in, charset);
+        try {
+            return importar(spool, opcoes, Acompanhamento.NENHUM);
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    /** Copia o conteúdo para um arquivo temporário (o chamador é responsável por apagá-lo). */
+    public Path spool(InputStream in, Charset charset) throws IOException {
+        Path spool = Files.createTempFile("importacao-", ".csv");
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(in, charset != null ? charset : StandardCharsets.UTF_8));
+             BufferedWriter w = Files.newBufferedWriter(spool, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                w.write(line);
+                w.newLine();
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+        return spool;
+    }
+
+    /**
+     * Importa um arquivo já copiado por {@link #spool}. Se o acompanhamento pedir cancelamento, lança
+     * {@link CancellationException}; os lotes gravados até ali permanecem (reimportar não duplica).
+     */
+    public ImportacaoResponseDTO importar(Path spool, OpcoesImportacao opcoes, Acompanhamento acompanhamento) throws IOException {
+        int dia = diaFechamentoEfetivo(opcoes);
+
+        // statementMode: uma passada prévia descobre a menor parcela de cada grupo
+        Map<EtapasImportacao.GrupoParcela, Integer> menorParcela = new HashMap<>();
+        if (opcoes.statementMode()) {
+            acompanhamento.etapa(Etapa.ANALISANDO);
+            percorrer(spool, dia, opcoes, acompanhamento, List.of(), g -> {
+                if (g.getTotalParcelas() != null && g.getParcelaAtual() != null) {
+                    menorParcela.merge(EtapasImportacao.GrupoParcela.de(g), g.getParcelaAtual(), Math::min);
+                }
+            });
+        }
+
+        List<EtapaImportacao> etapas = new ArrayList<>();
+        if (opcoes.statementMode()) etapas.add(EtapasImportacao.fatura(menorParcela));
+        etapas.add(EtapasImportacao.cartaoEUsuario(opcoes));
+        etapas.add(EtapasImportacao.ancora(opcoes));
+        etapas.add(categorizacaoService.etapa(opcoes.userId()));
+
+        boolean planos = parcelamentoService.usarPlanos(opcoes);
+        List<Gasto> lote = new ArrayList<>(tamanhoLote);
+        int[] contadores = new int[2]; // [0] lidas, [1] importadas
+        // parcelas já contadas por plano (usuário:assinatura): a mesma compra repetida em outro lote conta uma vez
+        Map<String, Integer> parcelasContadas = new HashMap<>();
+
+        acompanhamento.etapa(Etapa.GRAVANDO);
+        Map<String, Long> tempos = percorrer(spool, dia, opcoes, acompanhamento, etapas, g -> {
+            lote.add(g);
+            // com planos, o lote só fecha depois da última parcela gerada da compra
+            boolean meioDaCompra = planos && g.getTotalParcelas() != null && g.getParcelaAtual() != null
+                    && g.getParcelaAtual() < g.getTotalParcelas();
+            if (lote.size() >= tamanhoLote && !meioDaCompra) {
+                gravarLote(lote, planos, contadores, parcelasContadas);
+                acompanhamento.contadores(contadores[0], contadores[1]);
+            }
+        });
+        long t = System.nanoTime();
+        gravarLote(lote, planos, contadores, parcelasContadas);
+        tempos.merge("destino", System.nanoTime() - t, Long::sum);
+        acompanhamento.contadores(contadores[0], contadores[1]);
+        metricas.registrar("streaming", tempos);
+
+        int totalLidas = contadores[0];
+        int importadas = contadores[1];
+        return new ImportacaoResponseDTO(totalLidas, importadas, totalLidas - importadas);
+    }
+
+    // grava o lote e soma lidas/importadas em contadores; as lidas contam depois de agrupar os planos, como em
+    // ImportacaoCsvService (avulsos + parcelas de cada plano), para os dois endpoints darem os mesmos totais
+    private void gravarLote(List<Gasto> lote, boolean planos, int[] contadores, Map<String, Integer> parcelasContadas) {
+        if (lote.isEmpty()) return;
+        if (planos) {
+            ParcelamentoService.Separacao separacao = ParcelamentoService.separar(lote);
+            contadores[0] += separacao.avulsos().size();
+            for (Parcelamento p : separacao.planos()) {
+                String chave = p.getUserId() + ":" + p.getAssinatura();
+                int parcelas = p.getTotalParcelas() - p.getParcelaInicial() + 1;
+                int antes = parcelasContadas.getOrDefault(chave, 0);
+                if (parcelas > antes) {
+                    contadores[0] += parcelas - antes;
+                    parcelasContadas.put(chave, parcelas);
+                }
+            }
+            contadores[1] += gastoService.importarTodos(separacao.avulsos())
+                    + parcelamentoService.importar(separacao.planos());
+        } else {
+            contadores[0] += lote.size();
+            parcelamentoService.vincular(lote);
+            // duplicados contra o banco (inclusive lotes anteriores) são ignorados pela restrição única
+            contadores[1] += gastoService.importarTodos(lote);
+        }
+        lote.clear();
+    }
+
+    /**
+     * Relê o arquivo aplicando parse, estornos do parser e do CSV, remoção das linhas de estorno e as etapas
+     * informadas, entregando ao destino os lançamentos na mesma ordem do fluxo em memória. Retorna os tempos por etapa.
+     */
+    private Map<String, Long> percorrer(Path spool, int dia, OpcoesImportacao opcoes, Acompanhamento acompanhamento,
+                                        List<EtapaImportacao> etapas, Consumer<Gasto> destino) throws IOException {
+        long t = System.nanoTime();
+        ReconciliacaoEstornos reembolsos = new ReconciliacaoEstornos();
+        ReconciliacaoEstornos estornos = new ReconciliacaoEstornos();
+        // sem cartão nem dia de fechamento informados: detecta pelo conteúdo
+        DeteccaoCartao.Analise analise = opcoes.cartao() == null && opcoes.diaFechamento() == null
+                ? deteccaoCartao.novaAnalise() : null;
+        try (BufferedReader br = Files.newBufferedReader(spool, StandardCharsets.UTF_8)) {
+            String line; int linha = 0;
+            while ((line = br.readLine()) != null) {
+                if (analise != null) analise.registrar(line);
+                if (linha++ == 0) continue; // cabeçalho
+                CsvParserService.registrarReembolso(line, linha, reembolsos);
+                CsvParserService.registrarEstornoCsv(line, linha, estornos);
+            }
+        }
+        long indices = System.nanoTime() - t;
+
+        List<EtapaImportacao> todas = new ArrayList<>();
+        todas.add(EtapasImportacao.estornos(estornos));
+        todas.add(EtapasImportacao.linhasDeEstorno());
+        todas.addAll(etapas);
+        Function<String, Cartao> cartaoDaLinha = analise != null ? analise::cartaoDaLinha : null;
+        Map<String, Long> tempos;
+        try {
+            tempos = new PipelineImportacao(todas).executar("parse", d -> {
+                long linhas = 0;
+                try (BufferedReader br = Files.newBufferedReader(spool, StandardCharsets.UTF_8)) {
+                    String line; boolean header = true;
+                    while ((line = br.readLine()) != null) {
+                        if (acompanhamento.cancelado()) throw new CancellationException("Importação cancelada");
+                        if (header) { header = false; continue; }
+                        csvParserService.parseLinha(line, dia, cartaoDaLinha, reembolsos, d);
+                        acompanhamento.linhasProcessadas(++linhas);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, destino);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        tempos.put("indices", indices);
+        return tempos;
+    }
+
+    private int diaFechamentoEfetivo(OpcoesImportacao opcoes) {
+        if (opcoes.cartao() != null && opcoes.cartao().getDiaFechamento() != null) {
+            return opcoes.cartao().getDiaFechamento();
+        }
+        if (opcoes.diaFechamento() != null) {
+            return opcoes.diaFechamento();
+        }
+        return csvParserService.getDiaFechamentoPadrao();
+    }
+}
@@ -0,0 +1,354 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.repository.GastoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Busca por trecho da descrição (sem diferenciar maiúsculas nem acentos) e sugestões de descrições, em memória.
+ *
+ * Cada mês de um usuário tem um índice de trigramas das descrições (trigrama → posições, em ordem): uma busca
+ * intersecta as listas dos trigramas do termo, começando pela menor, e confirma o trecho só nas candidatas; termos
+ * com menos de três letras percorrem os textos do mês já em memória. O banco só é lido para montar o índice (uma
+ * query pelo usuário e mês) e, depois, para a página dos ids encontrados; nunca há {@code LIKE '%x%'}. Para ordenar
+ * por outro campo que não o id, o mês guarda também a ordem dos ids que o banco devolve para aquele ORDER BY (uma
+ * query só de ids por ordenação, no máximo {@value #MAX_ORDENS} ordenações por mês).
+ *
+ * As sugestões usam, por usuário, as descrições distintas ordenadas pelo início de cada palavra, então um prefixo
+ * é uma busca binária; saem as mais usadas primeiro.
+ *
+ * Os índices ficam marcados com a versão dos dados ({@link VersoesPeriodo}) e são remontados quando ela muda.
+ * Ficam em memória os dos {@code app.busca.max-meses} meses e {@code app.busca.max-usuarios} usuários usados
+ * mais recentemente. Métrica (actuator): {@code busca.indices} por resultado (acerto/falta).
+ */
+@Component
+public class IndiceDescricoes {
+
+    // mais sugestões por consulta
+    public static final int MAX_SUGESTOES = 50;
+
+    // ordenações guardadas por mês (as mais usadas recentemente)
+    static final int MAX_ORDENS = 4;
+
+    private record ChaveMes(String userId, int ano, int mes) {}
+
+    // textos[i] é a descrição dobrada do lançamento ids[i]; trigramas aponta para posições i crescentes;
+    // ordens: ids do mês na ordem do banco, por Sort
+    private record Mes(long versao, long[] ids, String[] textos, boolean[] pagos, String[] categorias,
+                       Map<Long, int[]> trigramas, Map<Sort, long[]> ordens) {}
+
+    // chaves[k] é o texto a partir do início de uma palavra de descricoes[posicoes[k]], em ordem
+    private record Sugestoes(long versao, String[] chaves, int[] posicoes, String[] descricoes, long[] quantidades) {}
+
+    private final GastoRepository gastoRepository;
+    private final VersoesPeriodo versoes;
+    private final TransactionTemplate leitura;
+    private final Map<ChaveMes, Mes> meses;
+    private final Map<String, Sugestoes> sugestoes;
+    private final Counter acertos;
+    private final Counter faltas;
+
+    public IndiceDescricoes(GastoRepository gastoRepository, VersoesPeriodo versoes,
+                            PlatformTransactionManager transactionManager, MeterRegistry registry,
+                            @Value("${app.busca.max-meses:5000}") int maxMeses,
+                            @Value("${app.busca.max-usuarios:1000}") int maxUsuarios) {
+        this.gastoRepository = gastoRepository;
+        this.versoes = versoes;
+        this.leitura = new TransactionTemplate(transactionManager);
+        this.leitura.setReadOnly(true);
+        this.meses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ChaveMes, Mes> eldest) {
+                return size() > maxMeses;
+            }
+        };
+        this.sugestoes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Sugestoes> eldest) {
+                return size() > maxUsuarios;
+            }
+        };
+        this.acertos = Counter.builder("busca.indices").tag("resultado", "acerto")
+                .description("Buscas e sugestões atendidas pelo índice em memória").register(registry);
+        this.faltas = Counter.builder("busca.indices").tag("resultado", "falta")
+                .description("Índices de busca montados no banco").register(registry);
+    }
+
+    /**
+     * Ids dos lançamentos do mês cuja descrição contém {@code termo}, com os mesmos filtros de /paginado
+     * ({@code pago}; {@code excluirCategoria} sem diferenciar maiúsculas, categoria nula sempre entra), na ordem
+     * do {@code sort}: por id, ordenados aqui; por outro campo, na ordem em que o banco devolve os ids do mês.
+     */
+    public List<Long> buscar(String userId, int mes, int ano, String termo, Boolean pago, String excluirCategoria,
+                             Sort sort) {
+        Mes m = mes(userId, mes, ano);
+        String q = dobrar(termo);
+        List<Long> ids = new ArrayList<>();
+        if (q.length() < 3) {
+            for (int i = 0; i < m.ids().length; i++) {
+                if (m.textos()[i].contains(q) && aceita(m, i, pago, excluirCategoria)) ids.add(m.ids()[i]);
+            }
+        } else {
+            for (int i : candidatas(m, q)) {
+                if (m.textos()[i].contains(q) && aceita(m, i, pago, excluirCategoria)) ids.add(m.ids()[i]);
+            }
+        }
+        if (sort.isUnsorted() || ids.size() < 2) return ids;
+        if (sort.stream().allMatch(o -> o.getProperty().equals("id"))) {
+            Sort.Order o = sort.getOrderFor("id");
+            ids.sort(o != null && o.isDescending() ? Comparator.reverseOrder() : Comparator.naturalOrder());
+            return ids;
+        }
+        Set<Long> encontrados = new LinkedHashSet<>(ids);
+        List<Long> ordenados = new ArrayList<>(ids.size());
+        for (long id : ordem(m, userId, mes, ano, sort)) {
+            if (encontrados.remove(id)) ordenados.add(id);
+        }
+        ordenados.addAll(encontrados); // gravados depois da leitura da ordem
+        return ordenados;
+    }
+
+    /** Mesmo critério da busca, para textos fora do índice (ex.: parcelas projetadas). */
+    public static boolean contem(String descricao, String termo) {
+        return dobrar(descricao).contains(dobrar(termo));
+    }
+
+    /** Até {@code limite} descrições do usuário com alguma palavra começando por {@code prefixo}, mais usadas antes. */
+    public List<String> sugerir(String userId, String prefixo, int limite) {
+        if (limite < 1 || limite > MAX_SUGESTOES) {
+            throw new IllegalArgumentException("'limite' deve estar entre 1 e " + MAX_SUGESTOES);
+        }
+        String p = dobrar(prefixo);
+        if (p.isEmpty()) {
+            throw new IllegalArgumentException("Parâmetro 'prefixo' é obrigatório");
+        }
+        Sugestoes s = sugestoes(userId);
+        int k = Arrays.binarySearch(s.chaves(), p);
+        if (k < 0) k = -k - 1;
+        boolean[] vistas = new boolean[s.descricoes().length];
+        List<Integer> encontradas = new ArrayList<>();
+        for (; k < s.chaves().length && s.chaves()[k].startsWith(p); k++) {
+            int d = s.posicoes()[k];
+            if (!vistas[d]) {
+                vistas[d] = true;
+                encontradas.add(d);
+            }
+        }
+        encontradas.sort(Comparator.<Integer>comparingLong(d -> -s.quantidades()[d]).thenComparing(d -> s.descricoes()[d]));
+        List<String> resultado = new ArrayList<>(Math.min(limite, encontradas.size()));
+        for (int i = 0; i < encontradas.size() && i < limite; i++) resultado.add(s.descricoes()[encontradas.get(i)]);
+        return resultado;
+    }
+
+    private static boolean aceita(Mes m, int i, Boolean pago, String excluirCategoria) {
+        if (pago != null && m.pagos()[i] != pago) return false;
+        return excluirCategoria == null || m.categorias()[i] == null || !m.categorias()[i].equalsIgnoreCase(excluirCategoria);
+    }
+
+    // posições com todos os trigramas do termo: interseção das listas, da menor para a maior
+    private static int[] candidatas(Mes m, String q) {
+        List<int[]> listas = new ArrayList<>();
+        for (int i = 0; i + 3 <= q.length(); i++) {
+            int[] l = m.trigramas().get(trigrama(q, i));
+            if (l == null) return new int[0];
+            listas.add(l);
+        }
+        listas.sort(Comparator.comparingInt(l -> l.length));
+        int[] atual = listas.get(0);
+        for (int j = 1; j < listas.size() && atual.length > 0; j++) {
+            int[] outra = listas.get(j);
+            int[] r = new int[atual.length];
+            int n = 0;
+            for (int a = 0, b = 0; a < atual.length && b < outra.length; ) {
+                if (atual[a] < outra[b]) a++;
+                else if (atual[a] > outra[b]) b++;
+                else {
+                    r[n++] = atual[a];
+                    a++;
+                    b++;
+                }
+            }
+            atual = Arrays.copyOf(r, n);
+        }
+        return atual;
+    }
+
+    private Mes mes(String userId, int mes, int ano) {
+        ChaveMes chave = new ChaveMes(userId, ano, mes);
+        // versão lida antes da query: uma escrita durante a montagem deixa o índice já desatualizado
+        long versao = versoes.versao(userId, mes, ano);
+        synchronized (meses) {
+            Mes m = meses.get(chave);
+            if (m != null && m.versao() == versao) {
+                acertos.increment();
+                return m;
+            }
+        }
+        faltas.increment();
+        List<Object[]> linhas = leitura.execute(s -> gastoRepository.findTextosDoMes(userId, mes, ano));
+        Mes m = montarMes(versao, linhas != null ? linhas : List.of());
+        synchronized (meses) {
+            meses.put(chave, m);
+        }
+        return m;
+    }
+
+    // ids do mês na ordem do sort, lidos do banco uma vez por versão do índice
+    private long[] ordem(Mes m, String userId, int mes, int ano, Sort sort) {
+        synchronized (m.ordens()) {
+            long[] ordem = m.ordens().get(sort);
+            if (ordem != null) return ordem;
+        }
+        List<Long> lidos = leitura.execute(s -> gastoRepository.findIdsDoMes(userId, mes, ano, sort));
+        long[] ordem = lidos != null ? lidos.stream().mapToLong(Long::longValue).toArray() : new long[0];
+        synchronized (m.ordens()) {
+            m.ordens().put(sort, ordem);
+        }
+        return ordem;
+    }
+
+    private static Mes montarMes(long versao, List<Object[]> linhas) {
+        int n = linhas.size();
+        long[] ids = new long[n];
+        String[] textos = new String[n];
+        boolean[] pagos = new boolean[n];
+        String[] categorias = new String[n];
+        Map<Long, int[]> listas = new HashMap<>();
+        Map<Long, Integer> tamanhos = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Object[] r = linhas.get(i);
+            ids[i] = (Long) r[0];
+            textos[i] = dobrar((String) r[1]);
+            pagos[i] = Boolean.TRUE.equals(r[2]);
+            categorias[i] = (String) r[3];
+            String t = textos[i];
+            for (int j = 0; j + 3 <= t.length(); j++) {
+                long tri = trigrama(t, j);
+                int[] l = listas.get(tri);
+                int tam = tamanhos.getOrDefault(tri, 0);
+                if (tam > 0 && l[tam - 1] == i) continue; // trigrama repetido na mesma descrição
+                if (l == null || tam == l.length) {
+                    l = l == null ? new int[4] : Arrays.copyOf(l, l.length * 2);
+                    listas.put(tri, l);
+                }
+                l[tam] = i;
+                tamanhos.put(tri, tam + 1);
+            }
+        }
+        listas.replaceAll((tri, l) -> Arrays.copyOf(l, tamanhos.get(tri)));
+        Map<Sort, long[]> ordens = new LinkedHashMap<>(8, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Sort, long[]> eldest) {
+                return size() > MAX_ORDENS;
+            }
+        };
+        return new Mes(versao, ids, textos, pagos, categorias, listas, ordens);
+    }
+
+    private Sugestoes sugestoes(String userId) {
+        long versao = versoes.versaoUsuario(userId);
+        synchronized (sugestoes) {
+            Sugestoes s = sugestoes.get(userId);
+            if (s != null && s.versao() == versao) {
+                acertos.increment();
+                return s;
+            }
+        }
+        faltas.increment();
+        List<Object[]> linhas = leitura.execute(t -> gastoRepository.contarDescricoes(userId));
+        Sugestoes s = montarSugestoes(versao, linhas != null ? linhas : List.of());
+        synchronized (sugestoes) {
+            sugestoes.put(userId, s);
+        }
+        return s;
+    }
+
+    private static Sugestoes montarSugestoes(long versao, List<Object[]> linhas) {
+        // descrições que só diferem em maiúsculas/acentos/espaços viram uma; mostra a grafia mais usada
+        Map<String, Integer> porTexto = new HashMap<>();
+        List<String> textos = new ArrayList<>();
+        List<String> descricoes = new ArrayList<>();
+        List<long[]> quantidades = new ArrayList<>(); // {total, da grafia mostrada}
+        for (Object[] r : linhas) {
+            String descricao = (String) r[0];
+            long quantidade = ((Number) r[1]).longValue();
+            String texto = dobrar(descricao);
+            if (texto.isEmpty()) continue;
+            Integer d = porTexto.putIfAbsent(texto, textos.size());
+            if (d == null) {
+                textos.add(texto);
+                descricoes.add(descricao.trim());
+                quantidades.add(new long[]{quantidade, quantidade});
+                continue;
+            }
+            long[] q = quantidades.get(d);
+            q[0] += quantidade;
+            if (quantidade > q[1]) {
+                q[1] = quantidade;
+                descricoes.set(d, descricao.trim());
+            }
+        }
+
+        List<String> chaves = new ArrayList<>();
+        List<Integer> posicoes = new ArrayList<>();
+        for (int d = 0; d < textos.size(); d++) {
+            String t = textos.get(d);
+            for (int i = 0; i < t.length(); i++) {
+                if (i == 0 || t.charAt(i - 1) == ' ') {
+                    chaves.add(t.substring(i));
+                    posicoes.add(d);
+                }
+            }
+        }
+        Integer[] ordem = new Integer[chaves.size()];
+        for (int k = 0; k < ordem.length; k++) ordem[k] = k;
+        Arrays.sort(ordem, Comparator.comparing(chaves::get));
+        String[] chavesOrdenadas = new String[ordem.length];
+        int[] posicoesOrdenadas = new int[ordem.length];
+        for (int k = 0; k < ordem.length; k++) {
+            chavesOrdenadas[k] = chaves.get(ordem[k]);
+            posicoesOrdenadas[k] = posicoes.get(ordem[k]);
+        }
+        long[] totais = new long[quantidades.size()];
+        for (int d = 0; d < totais.length; d++) totais[d] = quantidades.get(d)[0];
+        return new Sugestoes(versao, chavesOrdenadas, posicoesOrdenadas, descricoes.toArray(new String[0]), totais);
+    }
+
+    // minúsculas sem acento (mesma dobra do NormalizadorDescricao), espaços simples e sem espaços nas pontas
+    static String dobrar(String texto) {
+        if (texto == null) return "";
+        StringBuilder sb = new StringBuilder(texto.length());
+        boolean espaco = false;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c <= ' ' || Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                espaco = true;
+                continue;
+            }
+            if (c >= 0x0300 && c <= 0x036F) continue; // acento combinante
+            if (espaco && sb.length() > 0) sb.append(' ');
+            espaco = false;
+            sb.append(NormalizadorDescricao.dobrar(c));
+        }
+        return sb.toString();
+    }
+
+    private static long trigrama(String t, int i) {
+        return ((long) t.charAt(i) << 32) | ((long) t.charAt(i + 1) << 16) | t.charAt(i + 2);
+    }
+}
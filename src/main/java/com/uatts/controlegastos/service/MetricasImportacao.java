@@ -0,0 +1,39 @@
+package com.uatts.controlegastos.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tempos por etapa das importações ({@link PipelineImportacao#executar}): timer
+ * {@code importacao.etapa} no actuator, com as tags {@code fluxo} e {@code etapa}, e log em debug.
+ */
+@Component
+public class MetricasImportacao {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricasImportacao.class);
+
+    private final MeterRegistry registry;
+
+    public MetricasImportacao(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void registrar(String fluxo, Map<String, Long> tempos) {
+        tempos.forEach((etapa, nanos) -> Timer.builder("importacao.etapa")
+                .description("Tempo próprio de cada etapa da importação de CSV")
+                .tag("fluxo", fluxo)
+                .tag("etapa", etapa)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS));
+        if (log.isDebugEnabled()) {
+            log.debug("Importação ({}) - tempos por etapa (ms): {}", fluxo,
+                    tempos.entrySet().stream().map(e -> e.getKey() + "=" + e.getValue() / 1_000_000).toList());
+        }
+    }
+}
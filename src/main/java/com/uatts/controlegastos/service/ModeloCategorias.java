@@ -0,0 +1,138 @@
+package com.uatts.controlegastos.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modelo de categorias de um usuário, aprendido das categorias que ele atribuiu.
+ *
+ * Duas camadas: uma tabela de comerciantes (descrição normalizada inteira → categoria mais usada) e, para
+ * descrições nunca vistas, um naive Bayes multinomial sobre as palavras da descrição (suavização de Laplace).
+ * Aprender/desaprender é incremental (só soma contadores). Os métodos são sincronizados no próprio modelo.
+ */
+final class ModeloCategorias {
+
+    /** Categoria sugerida e de onde veio. */
+    record Sugestao(String categoria, boolean porComerciante) {}
+
+    private final List<String> categorias = new ArrayList<>();
+    private final Map<String, Integer> indices = new HashMap<>();
+    // por categoria: descrições aprendidas e total de palavras
+    private int[] documentos = new int[4];
+    private int[] palavrasPorCategoria = new int[4];
+    private int totalDocumentos;
+    // contadores por categoria (arrays crescem com as categorias)
+    private final Map<String, int[]> palavras = new HashMap<>();
+    private final Map<String, int[]> comerciantes = new HashMap<>();
+
+    /** Soma ({@code delta} = 1) ou retira ({@code delta} = -1) uma descrição da categoria. */
+    synchronized void aprender(String descricao, String categoria, int delta) {
+        String chave = NormalizadorDescricao.chave(descricao);
+        if (chave.isEmpty() || categoria == null || categoria.isBlank()) return;
+        int c = indice(categoria.trim());
+
+        int[] porComerciante = contadores(comerciantes, chave);
+        porComerciante[c] = Math.max(0, porComerciante[c] + delta);
+
+        int n = 0;
+        for (String p : palavras(chave)) {
+            int[] porPalavra = contadores(palavras, p);
+            porPalavra[c] = Math.max(0, porPalavra[c] + delta);
+            n++;
+        }
+        documentos[c] = Math.max(0, documentos[c] + delta);
+        palavrasPorCategoria[c] = Math.max(0, palavrasPorCategoria[c] + delta * n);
+        totalDocumentos = Math.max(0, totalDocumentos + delta);
+    }
+
+    /**
+     * Categoria da descrição: a mais usada para o mesmo comerciante ou, se ele é novo, a do naive Bayes
+     * quando a probabilidade dela passa de {@code confiancaMinima}. Null sem palpite confiável.
+     */
+    synchronized Sugestao classificar(String descricao, double confiancaMinima) {
+        if (totalDocumentos == 0) return null;
+        String chave = NormalizadorDescricao.chave(descricao);
+        if (chave.isEmpty()) return null;
+
+        int[] porComerciante = comerciantes.get(chave);
+        int melhor = porComerciante != null ? maior(porComerciante) : -1;
+        if (melhor >= 0) return new Sugestao(categorias.get(melhor), true);
+
+        int k = categorias.size();
+        double[] log = new double[k];
+        int vocabulario = Math.max(1, palavras.size());
+        for (int c = 0; c < k; c++) {
+            log[c] = documentos[c] == 0 ? Double.NEGATIVE_INFINITY : Math.log((double) documentos[c] / totalDocumentos);
+        }
+        boolean conhecida = false;
+        for (String p : palavras(chave)) {
+            int[] porPalavra = palavras.get(p);
+            if (porPalavra == null) continue; // palavra nunca vista não separa as categorias
+            conhecida = true;
+            for (int c = 0; c < k; c++) {
+                if (documentos[c] == 0) continue;
+                int contagem = c < porPalavra.length ? porPalavra[c] : 0;
+                log[c] += Math.log((contagem + 1.0) / (palavrasPorCategoria[c] + vocabulario));
+            }
+        }
+        if (!conhecida) return null;
+
+        // probabilidade da melhor categoria (log-sum-exp)
+        melhor = 0;
+        for (int c = 1; c < k; c++) if (log[c] > log[melhor]) melhor = c;
+        double soma = 0;
+        for (int c = 0; c < k; c++) soma += Math.exp(log[c] - log[melhor]);
+        return 1.0 / soma >= confiancaMinima ? new Sugestao(categorias.get(melhor), false) : null;
+    }
+
+    private int indice(String categoria) {
+        Integer i = indices.get(categoria);
+        if (i != null) return i;
+        i = categorias.size();
+        categorias.add(categoria);
+        indices.put(categoria, i);
+        if (i >= documentos.length) {
+            documentos = Arrays.copyOf(documentos, i * 2);
+            palavrasPorCategoria = Arrays.copyOf(palavrasPorCategoria, i * 2);
+        }
+        return i;
+    }
+
+    private int[] contadores(Map<String, int[]> mapa, String chave) {
+        int[] atual = mapa.get(chave);
+        if (atual == null || atual.length < categorias.size()) {
+            atual = atual == null ? new int[categorias.size()] : Arrays.copyOf(atual, categorias.size());
+            mapa.put(chave, atual);
+        }
+        return atual;
+    }
+
+    private static int maior(int[] contagens) {
+        int melhor = -1;
+        for (int c = 0; c < contagens.length; c++) {
+            if (contagens[c] > 0 && (melhor < 0 || contagens[c] > contagens[melhor])) melhor = c;
+        }
+        return melhor;
+    }
+
+    // palavras da chave normalizada, sem números soltos (códigos de transação, datas)
+    private static List<String> palavras(String chave) {
+        List<String> r = new ArrayList<>();
+        int n = chave.length();
+        int i = 0;
+        while (i < n) {
+            while (i < n && !Character.isLetterOrDigit(chave.charAt(i))) i++;
+            int inicio = i;
+            boolean letra = false;
+            while (i < n && Character.isLetterOrDigit(chave.charAt(i))) {
+                if (Character.isLetter(chave.charAt(i))) letra = true;
+                i++;
+            }
+            if (letra && i - inicio >= 2) r.add(chave.substring(inicio, i));
+        }
+        return r;
+    }
+}
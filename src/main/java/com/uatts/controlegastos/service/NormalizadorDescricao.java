@@ -0,0 +1,121 @@
+package com.uatts.controlegastos.service;
+
+import java.text.Normalizer;
+
+/**
+ * Normalização de descrições usada como chave de comparação (estornos, deduplicação, categorias).
+ *
+ * Em uma única passada pelos caracteres: converte para minúsculas, remove acentos, trata aspas como
+ * espaço, junta espaços repetidos, apara as pontas e descarta o trecho " - Parcela X/Y".
+ * Não usa regex; quando a entrada já está normalizada, devolve a própria instância.
+ */
+public final class NormalizadorDescricao {
+
+    // minúscula sem acento para cada caractere até U+1EFF (latim, grego, cirílico e latim estendido)
+    private static final char[] LATINO = new char[0x1F00];
+
+    static {
+        for (char c = 0; c < LATINO.length; c++) {
+            String nfd = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            LATINO[c] = Character.toLowerCase(nfd.charAt(0));
+        }
+    }
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[256]);
+
+    private NormalizadorDescricao() {}
+
+    /** Chave de comparação completa: minúsculas, sem acento, sem aspas, espaços simples e sem "- Parcela X/Y". */
+    public static String chave(String texto) {
+        if (texto == null) return "";
+        int n = texto.length();
+        char[] buf = BUFFER.get();
+        if (buf.length < n) {
+            buf = new char[Math.max(n, buf.length * 2)];
+            if (buf.length <= 4096) BUFFER.set(buf); // textos enormes não ficam presos na thread
+        }
+
+        int len = 0;
+        boolean espacoPendente = false;
+        for (int i = 0; i < n; i++) {
+            char c = texto.charAt(i);
+            if (c == '-') {
+                int fim = fimSufixoParcela(texto, i);
+                if (fim > 0) {
+                    espacoPendente = true;
+                    i = fim - 1;
+                    continue;
+                }
+            }
+            if (isSeparador(c)) {
+                espacoPendente = true;
+                continue;
+            }
+            if (c >= 0x0300 && c <= 0x036F) {
+                continue; // acento combinante (texto já decomposto)
+            }
+            char m = c < LATINO.length ? LATINO[c] : Character.toLowerCase(c);
+            if (espacoPendente && len > 0) {
+                buf[len++] = ' ';
+            }
+            espacoPendente = false;
+            buf[len++] = m;
+        }
+
+        if (len == n && mesmoConteudo(texto, buf, len)) {
+            return texto;
+        }
+        return new String(buf, 0, len);
+    }
+
+    /** Compara duas descrições pela chave normalizada. */
+    public static boolean equivalentes(String a, String b) {
+        return chave(a).equals(chave(b));
+    }
+
+    /** Minúscula sem acento de um caractere (a mesma dobra usada em {@link #chave}). */
+    public static char dobrar(char c) {
+        return c < LATINO.length ? LATINO[c] : Character.toLowerCase(c);
+    }
+
+    private static boolean mesmoConteudo(String texto, char[] buf, int len) {
+        for (int i = 0; i < len; i++) {
+            if (texto.charAt(i) != buf[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean isSeparador(char c) {
+        return c <= ' ' || c == '"' || c == '\'' || Character.isWhitespace(c) || Character.isSpaceChar(c);
+    }
+
+    private static boolean isEspaco(char c) {
+        return c <= ' ' || Character.isWhitespace(c);
+    }
+
+    /**
+     * Se em {@code inicio} (um '-') começa "- Parcela X/Y" (espaços opcionais, sem diferenciar maiúsculas),
+     * retorna o índice logo após o trecho e os espaços seguintes; senão, -1.
+     */
+    private static int fimSufixoParcela(String s, int inicio) {
+        int n = s.length();
+        int i = inicio + 1;
+        while (i < n && isEspaco(s.charAt(i))) i++;
+        if (!s.regionMatches(true, i, "parcela", 0, 7)) return -1;
+        i += 7;
+        while (i < n && isEspaco(s.charAt(i))) i++;
+        int digitos = i;
+        while (i < n && isDigito(s.charAt(i))) i++;
+        if (i == digitos || i >= n || s.charAt(i) != '/') return -1;
+        i++;
+        digitos = i;
+        while (i < n && isDigito(s.charAt(i))) i++;
+        if (i == digitos) return -1;
+        while (i < n && isEspaco(s.charAt(i))) i++;
+        return i;
+    }
+
+    private static boolean isDigito(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,7 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.model.Cartao;
+
+/** Parâmetros de uma importação/preview de CSV (equivalentes aos query params dos endpoints). */
+public record OpcoesImportacao(String userId, Cartao cartao, Integer diaFechamento, boolean statementMode,
+                               boolean anchor, Integer mesNumero, Integer anoPagamento) {}
@@ -0,0 +1,295 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.dto.PaginaCursorDTO;
+import com.uatts.controlegastos.model.ConsolidadoMensal;
+import com.uatts.controlegastos.model.Gasto;
+import com.uatts.controlegastos.repository.ConsolidadoMensalRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Listagem dos lançamentos de um mês por cursor (keyset): cada página continua do último item da anterior
+ * ({@code where (chave, id) > (ultimaChave, ultimoId)}) em vez de pular {@code OFFSET} linhas, então qualquer
+ * página custa o tamanho dela. As chaves de ordenação aceitas são {@link Campo}; o id desempata. Cada chave tem
+ * um índice (usuário, ano, mês, chave, id) em Gasto. Descrições nulas vêm depois de qualquer texto (antes, na
+ * ordem decrescente), como no índice, e são lidas em uma consulta à parte.
+ *
+ * O total é opcional e vem do consolidado ({@code linhas}/{@code linhasPagas} por categoria), sem {@code count(*)}.
+ * As parcelas projetadas dos planos são intercaladas na página, mas o cursor guarda a posição dos lançamentos
+ * e a das projetadas separadamente: a ordem dos lançamentos é a do banco (collation dele) e a das projetadas a
+ * do Java, e nenhum dos dois lados é reordenado pelo outro, então nada se repete nem é pulado entre páginas.
+ */
+@Service
+public class PaginacaoCursorService {
+
+    /** Chaves de ordenação aceitas. */
+    public enum Campo { VALOR, DESCRICAO, ID }
+
+    // maior página por consulta
+    public static final int MAX_TAMANHO = 200;
+    private static final String SEM_CATEGORIA = "Sem Categoria";
+
+    /** Último item lido de um dos lados: id e chave de ordenação (null para id ou descrição nula). */
+    private record Chave(long id, String valor) {}
+
+    /** Ordenação e posição em cada lado (null: nada lido ainda daquele lado). */
+    private record Posicao(Campo campo, boolean decrescente, Chave banco, Chave projetada) {}
+
+    private final EntityManager entityManager;
+    private final ParcelamentoService parcelamentoService;
+    private final ConsolidadoMensalRepository consolidadoRepository;
+
+    public PaginacaoCursorService(EntityManager entityManager, ParcelamentoService parcelamentoService,
+                                  ConsolidadoMensalRepository consolidadoRepository) {
+        this.entityManager = entityManager;
+        this.parcelamentoService = parcelamentoService;
+        this.consolidadoRepository = consolidadoRepository;
+    }
+
+    /**
+     * Página do mês ordenada por {@code ordem} ({@code campo} ou {@code campo,asc|desc}; padrão {@code id,desc}),
+     * a partir de {@code cursor} (null na primeira). Com {@code comTotal}, inclui o total de itens do filtro.
+     */
+    @Transactional(readOnly = true)
+    public PaginaCursorDTO<Gasto> buscar(String userId, int mesNumero, int anoPagamento, Boolean pago,
+                                         String excluirCategoria, String ordem, String cursor, int tamanho,
+                                         boolean comTotal) {
+        if (tamanho < 1 || tamanho > MAX_TAMANHO) {
+            throw new IllegalArgumentException("'tamanho' deve estar entre 1 e " + MAX_TAMANHO);
+        }
+        Posicao inicio = ordem(ordem);
+        Posicao depois = cursor != null && !cursor.isBlank() ? decodificar(cursor) : inicio;
+        if (depois.campo() != inicio.campo() || depois.decrescente() != inicio.decrescente()) {
+            throw new IllegalArgumentException("Cursor de outra ordenação");
+        }
+        String excluir = excluirCategoria != null && !excluirCategoria.isBlank() ? excluirCategoria : null;
+        Comparator<Gasto> comparador = comparador(inicio);
+
+        List<Gasto> projetadas = new ArrayList<>();
+        long totalProjetadas = 0;
+        if (!Boolean.TRUE.equals(pago)) { // projetadas nunca estão pagas
+            for (Gasto g : parcelamentoService.projetar(userId, mesNumero, anoPagamento)) {
+                if (excluir != null && g.getCategoria() != null && g.getCategoria().equalsIgnoreCase(excluir)) continue;
+                totalProjetadas++;
+                if (depois.projetada() == null || comparador.compare(g, referencia(depois, depois.projetada())) > 0) {
+                    projetadas.add(g);
+                }
+            }
+        }
+        projetadas.sort(comparador);
+        Long total = comTotal ? contar(userId, mesNumero, anoPagamento, pago, excluir) + totalProjetadas : null;
+
+        List<Gasto> banco = consultar(userId, mesNumero, anoPagamento, pago, excluir, inicio, depois.banco(), tamanho + 1);
+
+        // intercala os dois lados, cada um na própria ordem; só as posições na página são comparadas
+        List<Gasto> itens = new ArrayList<>(tamanho);
+        int b = 0, p = 0;
+        Chave ultimoBanco = depois.banco(), ultimaProjetada = depois.projetada();
+        while (itens.size() < tamanho && (b < banco.size() || p < projetadas.size())) {
+            if (p >= projetadas.size() || b < banco.size() && comparador.compare(banco.get(b), projetadas.get(p)) <= 0) {
+                Gasto g = banco.get(b++);
+                itens.add(g);
+                ultimoBanco = chave(inicio, g);
+            } else {
+                Gasto g = projetadas.get(p++);
+                itens.add(g);
+                ultimaProjetada = chave(inicio, g);
+            }
+        }
+        boolean haMais = b < banco.size() || p < projetadas.size();
+        String proximo = haMais
+                ? codificar(new Posicao(inicio.campo(), inicio.decrescente(), ultimoBanco, ultimaProjetada))
+                : null;
+        return new PaginaCursorDTO<>(itens, proximo, total);
+    }
+
+    // lançamentos depois de "depois", na ordem do banco; descrições preenchidas e nulas vêm de consultas separadas
+    private List<Gasto> consultar(String userId, int mes, int ano, Boolean pago, String excluir,
+                                  Posicao ordem, Chave depois, int limite) {
+        if (ordem.campo() != Campo.DESCRICAO) {
+            return consultar(userId, mes, ano, pago, excluir, ordem, depois, false, limite);
+        }
+        boolean depoisDeNula = depois != null && depois.valor() == null;
+        List<Gasto> itens = new ArrayList<>();
+        if (ordem.decrescente()) {
+            // nulas primeiro
+            if (depois == null || depoisDeNula) {
+                itens.addAll(consultar(userId, mes, ano, pago, excluir, ordem, depois, true, limite));
+            }
+            if (itens.size() < limite) {
+                itens.addAll(consultar(userId, mes, ano, pago, excluir, ordem, depoisDeNula ? null : depois, false,
+                        limite - itens.size()));
+            }
+        } else {
+            // nulas por último
+            if (!depoisDeNula) {
+                itens.addAll(consultar(userId, mes, ano, pago, excluir, ordem, depois, false, limite));
+            }
+            if (itens.size() < limite) {
+                itens.addAll(consultar(userId, mes, ano, pago, excluir, ordem, depoisDeNula ? depois : null, true,
+                        limite - itens.size()));
+            }
+        }
+        return itens;
+    }
+
+    // uma consulta keyset: (chave, id) depois do cursor, na ordem do índice; "nulas" lê só as descrições nulas
+    private List<Gasto> consultar(String userId, int mes, int ano, Boolean pago, String excluir,
+                                  Posicao ordem, Chave depois, boolean nulas, int limite) {
+        String dir = ordem.decrescente() ? "desc" : "asc";
+        String op = ordem.decrescente() ? "<" : ">";
+        StringBuilder jpql = new StringBuilder("""
+                select g from Gasto g left join fetch g.cartao
+                where g.userId = :uid and g.mesNumero = :mes and g.anoPagamento = :ano""");
+        if (pago != null) jpql.append(" and g.pago = :pago");
+        if (excluir != null) jpql.append(" and (g.categoria is null or lower(g.categoria) <> lower(:categoria))");
+        if (ordem.campo() == Campo.DESCRICAO) jpql.append(nulas ? " and g.descricao is null" : " and g.descricao is not null");
+        boolean porChave = depois != null && ordem.campo() != Campo.ID && !nulas;
+        if (depois != null) {
+            jpql.append(porChave
+                    ? " and (g." + campo(ordem.campo()) + ", g.id) " + op + " (:chave, :id)"
+                    : " and g.id " + op + " :id");
+        }
+        jpql.append(ordem.campo() == Campo.ID || nulas
+                ? " order by g.id " + dir
+                : " order by g." + campo(ordem.campo()) + " " + dir + ", g.id " + dir);
+
+        TypedQuery<Gasto> q = entityManager.createQuery(jpql.toString(), Gasto.class)
+                .setParameter("uid", userId)
+                .setParameter("mes", mes)
+                .setParameter("ano", ano)
+                .setMaxResults(limite);
+        if (pago != null) q.setParameter("pago", pago);
+        if (excluir != null) q.setParameter("categoria", excluir);
+        if (depois != null) {
+            q.setParameter("id", depois.id());
+            if (porChave) q.setParameter("chave", ordem.campo() == Campo.VALOR ? Double.valueOf(depois.valor()) : depois.valor());
+        }
+        return q.getResultList();
+    }
+
+    private static String campo(Campo campo) {
+        return switch (campo) {
+            case ID -> "id";
+            case VALOR -> "valor";
+            case DESCRICAO -> "descricao";
+        };
+    }
+
+    // lançamentos do filtro pelas contagens do consolidado (uma linha por categoria); count(*) se não der
+    private long contar(String userId, int mes, int ano, Boolean pago, String excluir) {
+        List<ConsolidadoMensal> linhas = consolidadoRepository.findByUserIdAndAnoAndMes(userId, ano, mes);
+        boolean cobre = excluir == null || !excluir.equalsIgnoreCase(SEM_CATEGORIA); // junta categoria nula e a literal
+        long n = 0;
+        for (ConsolidadoMensal c : linhas) {
+            if (c.getLinhas() == null || c.getLinhasPagas() == null) cobre = false;
+            if (!cobre) break;
+            if (excluir != null && c.getCategoria().equalsIgnoreCase(excluir)) continue;
+            n += pago == null ? c.getLinhas() : pago ? c.getLinhasPagas() : c.getLinhas() - c.getLinhasPagas();
+        }
+        if (cobre) return n;
+
+        StringBuilder jpql = new StringBuilder(
+                "select count(g) from Gasto g where g.userId = :uid and g.mesNumero = :mes and g.anoPagamento = :ano");
+        if (pago != null) jpql.append(" and g.pago = :pago");
+        if (excluir != null) jpql.append(" and (g.categoria is null or lower(g.categoria) <> lower(:categoria))");
+        TypedQuery<Long> q = entityManager.createQuery(jpql.toString(), Long.class)
+                .setParameter("uid", userId)
+                .setParameter("mes", mes)
+                .setParameter("ano", ano);
+        if (pago != null) q.setParameter("pago", pago);
+        if (excluir != null) q.setParameter("categoria", excluir);
+        return q.getSingleResult();
+    }
+
+    private static Posicao ordem(String ordem) {
+        if (ordem == null || ordem.isBlank()) return new Posicao(Campo.ID, true, null, null);
+        String[] partes = ordem.trim().split("\\s*,\\s*");
+        Campo campo;
+        try {
+            campo = Campo.valueOf(partes[0].toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Parâmetro 'ordem' aceita valor, descricao ou id");
+        }
+        boolean decrescente = partes.length > 1 && partes[1].equalsIgnoreCase("desc");
+        return new Posicao(campo, decrescente, null, null);
+    }
+
+    // ordem das projetadas: chave (descrições nulas depois de qualquer texto, como no banco), depois id;
+    // decrescente inverte tudo
+    private static Comparator<Gasto> comparador(Posicao ordem) {
+        Comparator<Gasto> c = switch (ordem.campo()) {
+            case ID -> Comparator.comparing(Gasto::getId);
+            case VALOR -> Comparator.comparing(Gasto::getValor).thenComparing(Gasto::getId);
+            case DESCRICAO -> Comparator.comparing(Gasto::getDescricao, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(Gasto::getId);
+        };
+        return ordem.decrescente() ? c.reversed() : c;
+    }
+
+    private static Chave chave(Posicao ordem, Gasto g) {
+        return new Chave(g.getId(), switch (ordem.campo()) {
+            case ID -> null;
+            case VALOR -> g.getValor().toString();
+            case DESCRICAO -> g.getDescricao();
+        });
+    }
+
+    // Gasto com a chave e o id do cursor, para comparar as projetadas
+    private static Gasto referencia(Posicao ordem, Chave c) {
+        Gasto g = new Gasto();
+        g.setId(c.id());
+        if (ordem.campo() == Campo.VALOR) g.setValor(Double.valueOf(c.valor()));
+        if (ordem.campo() == Campo.DESCRICAO) g.setDescricao(c.valor());
+        return g;
+    }
+
+    // cursor opaco: base64url de "campo,asc|desc,banco,projetada"; cada posição é vazia (nada lido daquele lado),
+    // "id:-" (chave nula) ou "id:+chave" com a chave em base64url
+    private static String codificar(Posicao p) {
+        String texto = p.campo().name() + "," + (p.decrescente() ? "desc" : "asc") + "," + posicao(p.banco()) + ","
+                + posicao(p.projetada());
+        return base64(texto);
+    }
+
+    private static String posicao(Chave c) {
+        if (c == null) return "";
+        return c.id() + ":" + (c.valor() == null ? "-" : "+" + base64(c.valor()));
+    }
+
+    private static String base64(String s) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Posicao decodificar(String cursor) {
+        try {
+            String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",", -1);
+            if (partes.length != 4) throw new IllegalArgumentException();
+            Campo campo = Campo.valueOf(partes[0]);
+            return new Posicao(campo, partes[1].equals("desc"), chave(campo, partes[2]), chave(campo, partes[3]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+
+    private static Chave chave(Campo campo, String posicao) {
+        if (posicao.isEmpty()) return null;
+        int sep = posicao.indexOf(':');
+        long id = Long.parseLong(posicao.substring(0, sep));
+        String resto = posicao.substring(sep + 1);
+        String valor = resto.startsWith("+")
+                ? new String(Base64.getUrlDecoder().decode(resto.substring(1)), StandardCharsets.UTF_8)
+                : null;
+        if (campo == Campo.VALOR) Double.parseDouble(valor); // também recusa chave nula
+        return new Chave(id, valor);
+    }
+}
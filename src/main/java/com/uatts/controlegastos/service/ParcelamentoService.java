@@ -0,0 +1,336 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.model.Gasto;
+import com.uatts.controlegastos.model.ParcelaExcluida;
+import com.uatts.controlegastos.model.Parcelamento;
+import com.uatts.controlegastos.repository.GastoRepository;
+import com.uatts.controlegastos.repository.ParcelaExcluidaRepository;
+import com.uatts.controlegastos.repository.ParcelamentoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Compras parceladas guardadas como plano ({@link Parcelamento}) e projetadas como Gastos nas consultas.
+ *
+ * Parcelas projetadas têm id negativo ({@code -(idPlano * 1000 + parcela)}); editar, pagar ou buscar uma
+ * delas pelo id a materializa como Gasto vinculado ao plano, que passa a valer no lugar da projeção. Excluir
+ * uma parcela a registra em {@link ParcelaExcluida}; as demais parcelas do plano continuam projetadas.
+ * As operações por id virtual só alcançam planos do usuário informado.
+ */
+@Service
+public class ParcelamentoService {
+
+    // limite de parcelas codificável no id virtual
+    static final int MAX_PARCELAS = 999;
+
+    private final ParcelamentoRepository parcelamentoRepository;
+    private final GastoRepository gastoRepository;
+    private final ParcelaExcluidaRepository excluidaRepository;
+    private final ConsolidadoMensalService consolidadoService;
+    private final ParcelasProjetadas projetadas;
+
+    // app.importacao.parcelamentos: false volta a gravar um Gasto por parcela
+    @Value("${app.importacao.parcelamentos:true}")
+    private boolean habilitado;
+
+    public ParcelamentoService(ParcelamentoRepository parcelamentoRepository, GastoRepository gastoRepository,
+                               ParcelaExcluidaRepository excluidaRepository,
+                               ConsolidadoMensalService consolidadoService, ParcelasProjetadas projetadas) {
+        this.parcelamentoRepository = parcelamentoRepository;
+        this.gastoRepository = gastoRepository;
+        this.excluidaRepository = excluidaRepository;
+        this.consolidadoService = consolidadoService;
+        this.projetadas = projetadas;
+    }
+
+    /** Lançamentos avulsos e planos resultantes de {@link #separar}. */
+    public record Separacao(List<Gasto> avulsos, List<Parcelamento> planos) {}
+
+    /** Importações com parcelas viram planos, exceto por fatura (statementMode) ou ancoradas em um mês. */
+    public boolean usarPlanos(OpcoesImportacao opcoes) {
+        return habilitado && !opcoes.statementMode() && !opcoes.anchor();
+    }
+
+    public static int periodo(int mes, int ano) {
+        return ano * 12 + mes - 1;
+    }
+
+    public static boolean isVirtual(Long id) {
+        return id != null && id < 0;
+    }
+
+    /**
+     * Agrupa as parcelas geradas pelo parser (mesma compra: descrição, valor, total e período da 1ª parcela)
+     * em planos; o restante segue como lançamento avulso.
+     */
+    public static Separacao separar(List<Gasto> gastos) {
+        List<Gasto> avulsos = new ArrayList<>();
+        Map<String, Parcelamento> planos = new LinkedHashMap<>();
+        for (Gasto g : gastos) {
+            if (!isParcelaProjetavel(g)) {
+                avulsos.add(g);
+                continue;
+            }
+            int inicio = periodo(g.getMesNumero(), g.getAnoPagamento());
+            String assinatura = assinatura(g);
+            Parcelamento p = planos.get(g.getUserId() + ":" + assinatura);
+            if (p == null) {
+                p = new Parcelamento();
+                p.setUserId(g.getUserId());
+                p.setDescricao(g.getDescricao());
+                p.setValor(g.getValor());
+                p.setTotalParcelas(g.getTotalParcelas());
+                p.setParcelaInicial(g.getParcelaAtual());
+                p.setPeriodoInicio(inicio);
+                p.setPeriodoFim(inicio + g.getTotalParcelas() - g.getParcelaAtual());
+                p.setCategoria(g.getCategoria());
+                p.setReferenteA(g.getReferenteA());
+                p.setCartao(g.getCartao());
+                p.setAssinatura(assinatura);
+                planos.put(g.getUserId() + ":" + assinatura, p);
+            } else if (g.getParcelaAtual() < p.getParcelaInicial()) {
+                p.setParcelaInicial(g.getParcelaAtual());
+                p.setPeriodoInicio(inicio);
+            }
+        }
+        return new Separacao(avulsos, new ArrayList<>(planos.values()));
+    }
+
+    /**
+     * Grava os planos; um plano já existente (mesma assinatura) só é estendido se vier com parcela inicial menor.
+     * Lançamentos já gravados de parcelas do plano (importados por fatura) são vinculados a ele.
+     * Retorna quantas parcelas novas passaram a existir.
+     */
+    @Transactional
+    public int importar(List<Parcelamento> planos) {
+        Map<String, List<Parcelamento>> porUsuario = new LinkedHashMap<>();
+        for (Parcelamento p : planos) {
+            porUsuario.computeIfAbsent(p.getUserId(), k -> new ArrayList<>()).add(p);
+        }
+        int novas = 0;
+        for (var e : porUsuario.entrySet()) {
+            Map<String, Parcelamento> existentes = new HashMap<>();
+            if (e.getKey() != null) {
+                List<String> assinaturas = e.getValue().stream().map(Parcelamento::getAssinatura).toList();
+                for (int i = 0; i < assinaturas.size(); i += 1000) {
+                    for (Parcelamento p : parcelamentoRepository.findByUserIdAndAssinaturaIn(e.getKey(),
+                            assinaturas.subList(i, Math.min(assinaturas.size(), i + 1000)))) {
+                        existentes.put(p.getAssinatura(), p);
+                    }
+                }
+            }
+            for (Parcelamento p : e.getValue()) {
+                Parcelamento atual = existentes.get(p.getAssinatura());
+                if (atual == null) {
+                    atual = parcelamentoRepository.save(p);
+                    consolidadoService.parcelasAlteradas(p.getUserId(), p.getPeriodoInicio(), p.getPeriodoFim());
+                    existentes.put(p.getAssinatura(), atual);
+                    // parcelas já gravadas como Gasto (importações anteriores) não contam como novas
+                    novas += p.getTotalParcelas() - p.getParcelaInicial() + 1 - vincularLancamentos(atual);
+                } else if (p.getParcelaInicial() < atual.getParcelaInicial()) {
+                    novas += atual.getParcelaInicial() - p.getParcelaInicial();
+                    atual.setParcelaInicial(p.getParcelaInicial());
+                    atual.setPeriodoInicio(p.getPeriodoInicio());
+                    consolidadoService.parcelasAlteradas(atual.getUserId(), atual.getPeriodoInicio(), atual.getPeriodoFim());
+                    vincularLancamentos(atual);
+                }
+            }
+        }
+        return novas;
+    }
+
+    /**
+     * Vincula ao plano existente os lançamentos de parcela (importação por fatura), para a projeção não os duplicar.
+     */
+    public void vincular(List<Gasto> gastos) {
+        planosExistentes(gastos).forEach((g, p) -> g.setParcelamentoId(p.getId()));
+    }
+
+    /** Lançamentos de parcela já cobertos por um plano gravado (o que a importação por planos ignoraria). */
+    public Set<Gasto> cobertos(List<Gasto> gastos) {
+        Set<Gasto> cobertos = Collections.newSetFromMap(new IdentityHashMap<>());
+        planosExistentes(gastos).forEach((g, p) -> {
+            if (g.getParcelaAtual() >= p.getParcelaInicial()) cobertos.add(g);
+        });
+        return cobertos;
+    }
+
+    /** Parcelas projetadas do usuário no mês (sem as que já viraram lançamento). */
+    public List<Gasto> projetar(String userId, int mes, int ano) {
+        int p = periodo(mes, ano);
+        return projetarEntre(userId, p, p);
+    }
+
+    /** Parcelas projetadas do usuário entre dois períodos (inclusive), sem as que já viraram lançamento ou foram excluídas. */
+    public List<Gasto> projetarEntre(String userId, int de, int ate) {
+        return projetadas.projetarEntre(userId, de, ate);
+    }
+
+    /**
+     * A parcela do id virtual: o lançamento, se já materializada, ou a projeção. Vazio se o plano não for do
+     * usuário, se a parcela estiver fora dele ou se tiver sido excluída.
+     */
+    public Optional<Gasto> buscarProjetada(String userId, Long idVirtual) {
+        long codigo = -idVirtual;
+        long idPlano = codigo / 1000;
+        int numero = (int) (codigo % 1000);
+        Optional<Parcelamento> plano = planoDoUsuario(userId, idPlano);
+        if (plano.isEmpty() || numero < plano.get().getParcelaInicial() || numero > plano.get().getTotalParcelas()) {
+            return Optional.empty();
+        }
+        Optional<Gasto> existente = gastoRepository.findFirstByParcelamentoIdAndParcelaAtual(idPlano, numero);
+        if (existente.isPresent()) return existente;
+        if (excluidaRepository.existsByParcelamentoIdAndParcela(idPlano, numero)) return Optional.empty();
+        return Optional.of(parcela(plano.get(), numero));
+    }
+
+    /**
+     * Transforma a parcela projetada do id virtual em um Gasto gravado (ou devolve o já existente).
+     * Vazio nos mesmos casos de {@link #buscarProjetada}.
+     */
+    @Transactional
+    public Optional<Gasto> materializar(String userId, Long idVirtual) {
+        return buscarProjetada(userId, idVirtual).map(g -> {
+            if (!isVirtual(g.getId())) return g;
+            g.setId(null);
+            g.setAssinatura(GastoService.assinatura(g));
+            consolidadoService.alterado(g);
+            return gastoRepository.save(g);
+        });
+    }
+
+    /**
+     * Exclui só a parcela do id virtual: o lançamento, se já materializada, e a projeção. As demais parcelas
+     * do plano continuam. Falso se a parcela não existir para o usuário.
+     */
+    @Transactional
+    public boolean excluirPorIdVirtual(String userId, Long idVirtual) {
+        Optional<Gasto> parcela = buscarProjetada(userId, idVirtual);
+        if (parcela.isEmpty()) return false;
+        Gasto g = parcela.get();
+        if (!isVirtual(g.getId())) {
+            consolidadoService.alterado(g);
+            gastoRepository.delete(g);
+        }
+        excluirParcela(g);
+        return true;
+    }
+
+    /**
+     * Registra a exclusão da parcela do lançamento (projetado ou materializado), para a projeção do plano não a
+     * devolver. Lançamentos sem plano são ignorados.
+     */
+    @Transactional
+    public void excluirParcela(Gasto g) {
+        if (g.getParcelamentoId() == null || g.getParcelaAtual() == null) return;
+        if (!excluidaRepository.existsByParcelamentoIdAndParcela(g.getParcelamentoId(), g.getParcelaAtual())) {
+            excluidaRepository.save(new ParcelaExcluida(g.getParcelamentoId(), g.getParcelaAtual()));
+        }
+        if (g.getMesNumero() != null && g.getAnoPagamento() != null) {
+            int p = periodo(g.getMesNumero(), g.getAnoPagamento());
+            consolidadoService.parcelasAlteradas(g.getUserId(), p, p);
+        }
+    }
+
+    private Optional<Parcelamento> planoDoUsuario(String userId, long idPlano) {
+        if (userId == null) return Optional.empty();
+        return parcelamentoRepository.findById(idPlano).filter(p -> Objects.equals(p.getUserId(), userId));
+    }
+
+    // plano gravado de cada lançamento de parcela (uma query por usuário a cada 1000 assinaturas)
+    private Map<Gasto, Parcelamento> planosExistentes(List<Gasto> gastos) {
+        Map<String, Map<String, List<Gasto>>> porUsuario = new HashMap<>();
+        for (Gasto g : gastos) {
+            if (g.getUserId() == null || !isParcelaProjetavel(g)) continue;
+            porUsuario.computeIfAbsent(g.getUserId(), k -> new HashMap<>())
+                    .computeIfAbsent(assinatura(g), k -> new ArrayList<>()).add(g);
+        }
+        Map<Gasto, Parcelamento> planos = new IdentityHashMap<>();
+        for (var e : porUsuario.entrySet()) {
+            List<String> assinaturas = new ArrayList<>(e.getValue().keySet());
+            for (int i = 0; i < assinaturas.size(); i += 1000) {
+                for (Parcelamento p : parcelamentoRepository.findByUserIdAndAssinaturaIn(e.getKey(),
+                        assinaturas.subList(i, Math.min(assinaturas.size(), i + 1000)))) {
+                    for (Gasto g : e.getValue().get(p.getAssinatura())) planos.put(g, p);
+                }
+            }
+        }
+        return planos;
+    }
+
+    private int vincularLancamentos(Parcelamento plano) {
+        if (plano.getUserId() == null) return 0;
+        List<String> assinaturas = new ArrayList<>();
+        for (int n = plano.getParcelaInicial(); n <= plano.getTotalParcelas(); n++) {
+            assinaturas.add(GastoService.assinatura(parcela(plano, n)));
+        }
+        return gastoRepository.vincularParcelamento(plano.getId(), plano.getUserId(), assinaturas);
+    }
+
+    static Gasto parcela(Parcelamento plano, int numero) {
+        int periodo = plano.getPeriodoInicio() + (numero - plano.getParcelaInicial());
+        int mes = periodo % 12 + 1;
+        Gasto g = new Gasto();
+        g.setId(-idVirtual(plano.getId(), numero));
+        g.setUserId(plano.getUserId());
+        g.setDescricao(plano.getDescricao());
+        g.setValor(plano.getValor());
+        g.setCategoria(plano.getCategoria());
+        g.setReferenteA(plano.getReferenteA());
+        g.setCartao(plano.getCartao());
+        g.setMesNumero(mes);
+        g.setMesPagamento(String.valueOf(mes));
+        g.setAnoPagamento(periodo / 12);
+        g.setParcelaAtual(numero);
+        g.setTotalParcelas(plano.getTotalParcelas());
+        g.setParcelamentoId(plano.getId());
+        g.setPago(false);
+        return g;
+    }
+
+    // positivo; o id do Gasto projetado é o negativo deste valor
+    static long idVirtual(Long idPlano, int numero) {
+        return idPlano * 1000 + numero;
+    }
+
+    private static boolean isParcelaProjetavel(Gasto g) {
+        return g.getParcelaAtual() != null && g.getTotalParcelas() != null
+                && g.getParcelaAtual() >= 1 && g.getParcelaAtual() <= g.getTotalParcelas()
+                && g.getTotalParcelas() <= MAX_PARCELAS
+                && g.getMesNumero() != null && g.getAnoPagamento() != null && g.getValor() != null;
+    }
+
+    // assinatura do plano a que a parcela pertence
+    private static String assinatura(Gasto g) {
+        return assinatura(g.getUserId(), g.getDescricao(), g.getValor(), g.getTotalParcelas(),
+                periodo(g.getMesNumero(), g.getAnoPagamento()) - (g.getParcelaAtual() - 1));
+    }
+
+    // também identifica a compra na previsão (PrevisaoService)
+    static String assinatura(String userId, String descricao, double valor, int total, int periodoPrimeira) {
+        String chave = (userId != null ? userId : "") + ":" + NormalizadorDescricao.chave(descricao) + ":"
+                + Math.round(valor * 100.0) + ":" + total + ":" + periodoPrimeira;
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(chave.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.model.Gasto;
+import com.uatts.controlegastos.model.Parcelamento;
+import com.uatts.controlegastos.repository.GastoRepository;
+import com.uatts.controlegastos.repository.ParcelaExcluidaRepository;
+import com.uatts.controlegastos.repository.ParcelamentoRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Projeção das parcelas dos planos ({@link ParcelamentoService#projetarEntre}), separada do serviço de planos
+ * para a série de saldos ({@link SaldoMensalService}) somar as parcelas sem depender dele.
+ */
+@Component
+public class ParcelasProjetadas {
+
+    private final ParcelamentoRepository parcelamentoRepository;
+    private final GastoRepository gastoRepository;
+    private final ParcelaExcluidaRepository excluidaRepository;
+
+    public ParcelasProjetadas(ParcelamentoRepository parcelamentoRepository, GastoRepository gastoRepository,
+                              ParcelaExcluidaRepository excluidaRepository) {
+        this.parcelamentoRepository = parcelamentoRepository;
+        this.gastoRepository = gastoRepository;
+        this.excluidaRepository = excluidaRepository;
+    }
+
+    /** Parcelas projetadas do usuário entre dois períodos (inclusive), sem as que já viraram lançamento ou foram excluídas. */
+    public List<Gasto> projetarEntre(String userId, int de, int ate) {
+        if (userId == null) return List.of();
+        List<Parcelamento> planos = parcelamentoRepository.findAtivosEntre(userId, de, ate);
+        if (planos.isEmpty()) return List.of();
+
+        Set<Long> materializadas = new HashSet<>();
+        List<Long> ids = planos.stream().map(Parcelamento::getId).toList();
+        for (Object[] r : gastoRepository.findParcelasMaterializadas(ids)) {
+            if (r[1] != null) materializadas.add(ParcelamentoService.idVirtual((Long) r[0], (Integer) r[1]));
+        }
+        for (Object[] r : excluidaRepository.findExcluidas(ids)) {
+            materializadas.add(ParcelamentoService.idVirtual((Long) r[0], (Integer) r[1]));
+        }
+
+        List<Gasto> projetadas = new ArrayList<>();
+        for (Parcelamento plano : planos) {
+            int primeiro = Math.max(de, plano.getPeriodoInicio());
+            int ultimo = Math.min(ate, plano.getPeriodoFim());
+            for (int periodo = primeiro; periodo <= ultimo; periodo++) {
+                int parcela = plano.getParcelaInicial() + (periodo - plano.getPeriodoInicio());
+                if (!materializadas.contains(ParcelamentoService.idVirtual(plano.getId(), parcela))) {
+                    projetadas.add(ParcelamentoService.parcela(plano, parcela));
+                }
+            }
+        }
+        return projetadas;
+    }
+
+    /** Usuários com algum plano. */
+    public List<String> usuarios() {
+        return parcelamentoRepository.findUsuarios();
+    }
+
+    /** Soma das parcelas projetadas do usuário no período ({@code ano * 12 + mes - 1}). */
+    public double total(String userId, int periodo) {
+        double total = 0;
+        for (Gasto g : projetarEntre(userId, periodo, periodo)) total += g.getValor();
+        return total;
+    }
+}
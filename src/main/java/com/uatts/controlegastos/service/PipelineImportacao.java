@@ -0,0 +1,80 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.model.Gasto;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Etapas de importação encadeadas em uma única passada: cada lançamento entregue pela fonte atravessa
+ * todas as etapas até o destino, sem listas intermediárias entre elas.
+ *
+ * {@link #executar} devolve o tempo próprio (ns) da fonte, de cada etapa e do destino: o tempo de uma
+ * etapa não inclui o das etapas seguintes, que rodam dentro da chamada dela.
+ */
+public final class PipelineImportacao {
+
+    private final List<EtapaImportacao> etapas;
+
+    public PipelineImportacao(List<EtapaImportacao> etapas) {
+        this.etapas = List.copyOf(etapas);
+    }
+
+    /** Nó da cadeia: mede o tempo da etapa incluindo o que ela repassa adiante. */
+    private static final class No implements Consumer<Gasto> {
+        private final EtapaImportacao etapa;
+        private final Consumer<Gasto> proximo;
+        private long inclusivo;
+
+        private No(EtapaImportacao etapa, Consumer<Gasto> proximo) {
+            this.etapa = etapa;
+            this.proximo = proximo;
+        }
+
+        @Override
+        public void accept(Gasto g) {
+            long t = System.nanoTime();
+            if (etapa != null) {
+                etapa.processar(g, proximo);
+            } else {
+                proximo.accept(g);
+            }
+            inclusivo += System.nanoTime() - t;
+        }
+    }
+
+    /**
+     * Roda a fonte (que entrega os lançamentos ao consumidor recebido), conclui as etapas na ordem e
+     * retorna os tempos próprios por nome, na ordem fonte, etapas, destino.
+     */
+    public Map<String, Long> executar(String nomeFonte, Consumer<Consumer<Gasto>> fonte, Consumer<Gasto> destino) {
+        int n = etapas.size();
+        No[] nos = new No[n + 1];
+        nos[n] = new No(null, destino);
+        for (int i = n - 1; i >= 0; i--) {
+            nos[i] = new No(etapas.get(i), nos[i + 1]);
+        }
+
+        long t = System.nanoTime();
+        fonte.accept(nos[0]);
+        long proprioFonte = System.nanoTime() - t - nos[0].inclusivo;
+
+        for (int i = 0; i < n; i++) {
+            t = System.nanoTime();
+            etapas.get(i).concluir(nos[i + 1]);
+            long gasto = System.nanoTime() - t;
+            // o que a etapa libera ao concluir também corre "dentro" das anteriores
+            for (int j = 0; j <= i; j++) nos[j].inclusivo += gasto;
+        }
+
+        Map<String, Long> tempos = new LinkedHashMap<>();
+        tempos.put(nomeFonte, proprioFonte);
+        for (int i = 0; i < n; i++) {
+            tempos.merge(etapas.get(i).nome(), nos[i].inclusivo - nos[i + 1].inclusivo, Long::sum);
+        }
+        tempos.put("destino", nos[n].inclusivo);
+        return tempos;
+    }
+}
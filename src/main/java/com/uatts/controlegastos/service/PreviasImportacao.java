@@ -0,0 +1,134 @@
+package com.uatts.controlegastos.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Lançamentos já preparados por um preview (parse, estornos, parcelas, âncora), guardados para a confirmação
+ * da importação não repetir o trabalho.
+ *
+ * Cada preview recebe um token de uso único; a entrada também é encontrada por usuário + hash do conteúdo e
+ * das opções, então um /importar-csv com o mesmo texto reaproveita o preview anterior. Guarda no máximo
+ * {@code app.importacao.previas.max-itens} entradas por até {@code app.importacao.previas.minutos}; previews
+ * com mais de {@code app.importacao.previas.max-linhas} lançamentos não são guardados.
+ *
+ * Um novo preview só descarta entradas do próprio usuário (a mais antiga, passando de
+ * {@code app.importacao.previas.max-por-usuario}); se o cache estiver cheio, em entradas ou no total de
+ * {@code app.importacao.previas.max-linhas-total} lançamentos, o preview não é guardado e a confirmação
+ * refaz o preparo.
+ */
+@Component
+public class PreviasImportacao {
+
+    private record Previa(String token, String chave, String userId, ParcelamentoService.Separacao lancamentos, Instant expiraEm) {}
+
+    // ordem de inserção: a primeira entrada é sempre a mais antiga
+    private final Map<String, Previa> porToken = new LinkedHashMap<>();
+    private final Map<String, String> tokenPorChave = new HashMap<>();
+    private long linhasGuardadas;
+
+    @Value("${app.importacao.previas.minutos:15}")
+    private long minutos;
+
+    @Value("${app.importacao.previas.max-itens:50}")
+    private int maxItens;
+
+    @Value("${app.importacao.previas.max-linhas:200000}")
+    private int maxLinhas;
+
+    @Value("${app.importacao.previas.max-linhas-total:400000}")
+    private long maxLinhasTotal;
+
+    @Value("${app.importacao.previas.max-por-usuario:2}")
+    private int maxPorUsuario;
+
+    /** Guarda os lançamentos (e planos de parcelamento) do preview e retorna o token (ou null se não couber). */
+    public synchronized String guardar(String userId, String hash, ParcelamentoService.Separacao lancamentos) {
+        descartarExpiradas();
+        int linhas = linhas(lancamentos);
+        if (linhas > maxLinhas) return null;
+        String chave = userId + ":" + hash;
+        String anterior = tokenPorChave.get(chave);
+        if (anterior != null) remover(porToken.get(anterior));
+        // abre espaço só com as previews do próprio usuário, da mais antiga para a mais nova
+        List<Previa> doUsuario = porToken.values().stream().filter(p -> Objects.equals(p.userId(), userId)).toList();
+        int i = 0;
+        while (i < doUsuario.size() && (doUsuario.size() - i >= maxPorUsuario || porToken.size() >= maxItens
+                || linhasGuardadas + linhas > maxLinhasTotal)) {
+            remover(doUsuario.get(i++));
+        }
+        if (porToken.size() >= maxItens || linhasGuardadas + linhas > maxLinhasTotal) return null;
+        String token = UUID.randomUUID().toString();
+        porToken.put(token, new Previa(token, chave, userId, lancamentos, Instant.now().plus(Duration.ofMinutes(minutos))));
+        tokenPorChave.put(chave, token);
+        linhasGuardadas += linhas;
+        return token;
+    }
+
+    /** Retira (uso único) os lançamentos do token, se ainda válido e do mesmo usuário. */
+    public synchronized Optional<ParcelamentoService.Separacao> retirar(String token, String userId) {
+        descartarExpiradas();
+        Previa p = porToken.get(token);
+        if (p == null || !Objects.equals(p.userId(), userId)) return Optional.empty();
+        remover(p);
+        return Optional.of(p.lancamentos());
+    }
+
+    /** Retira os lançamentos de um preview do mesmo usuário com o mesmo conteúdo e opções. */
+    public synchronized Optional<ParcelamentoService.Separacao> retirarPorConteudo(String userId, String hash) {
+        String token = tokenPorChave.get(userId + ":" + hash);
+        return token == null ? Optional.empty() : retirar(token, userId);
+    }
+
+    /** Hash do CSV junto com as opções que mudam o resultado do preparo. */
+    public static String hash(String csvText, OpcoesImportacao opcoes) {
+        String parametros = (opcoes.cartao() != null ? opcoes.cartao().getId() : null) + "|" + opcoes.diaFechamento()
+                + "|" + opcoes.statementMode() + "|" + opcoes.anchor() + "|" + opcoes.mesNumero() + "|" + opcoes.anoPagamento();
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(parametros.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(csvText.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void descartarExpiradas() {
+        Instant agora = Instant.now();
+        Iterator<Previa> it = porToken.values().iterator();
+        while (it.hasNext()) {
+            Previa p = it.next();
+            if (p.expiraEm().isAfter(agora)) break; // as seguintes são mais novas
+            it.remove();
+            tokenPorChave.remove(p.chave(), p.token());
+            linhasGuardadas -= linhas(p.lancamentos());
+        }
+    }
+
+    private void remover(Previa p) {
+        if (porToken.remove(p.token()) == null) return;
+        tokenPorChave.remove(p.chave(), p.token());
+        linhasGuardadas -= linhas(p.lancamentos());
+    }
+
+    private static int linhas(ParcelamentoService.Separacao lancamentos) {
+        return lancamentos.avulsos().size() + lancamentos.planos().size();
+    }
+}
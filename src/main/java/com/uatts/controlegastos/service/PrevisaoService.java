@@ -0,0 +1,220 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.dto.CompraParceladaDTO;
+import com.uatts.controlegastos.dto.PrevisaoDTO;
+import com.uatts.controlegastos.dto.PrevisaoMensalDTO;
+import com.uatts.controlegastos.model.Parcelamento;
+import com.uatts.controlegastos.model.ReceitaMensal;
+import com.uatts.controlegastos.repository.GastoRepository;
+import com.uatts.controlegastos.repository.ParcelaExcluidaRepository;
+import com.uatts.controlegastos.repository.ParcelamentoRepository;
+import com.uatts.controlegastos.repository.ReceitaMensalRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Previsão de caixa dos próximos meses: parcelas em aberto das compras parceladas contra a receita cadastrada,
+ * com simulação de quitação antecipada de compras escolhidas.
+ *
+ * Cada usuário tem uma estrutura compacta com as compras em aberto (valor de cada parcela por mês, a partir do
+ * mês atual) e as receitas dos próximos {@value #MAX_MESES} meses. Ela é montada com três queries, vindas de:
+ * planos ({@link Parcelamento}), parcelas gravadas como lançamento e ainda não pagas, e receitas. Uma compra é
+ * identificada pela assinatura do plano. A estrutura fica em memória marcada com a versão desses meses
+ * ({@link VersoesPeriodo}), então qualquer escrita neles a remonta; as previsões e simulações seguintes rodam
+ * só em memória. Ficam em memória as dos {@code app.previsao.max-usuarios} usuários usados mais recentemente.
+ *
+ * Métrica (actuator): {@code previsao.estruturas} por resultado (acerto/falta).
+ */
+@Service
+public class PrevisaoService {
+
+    // meses da previsão, a partir do atual
+    public static final int MAX_MESES = 120;
+
+    // compra em aberto: valores[i] vence no período primeiro + i (0 = nada naquele mês)
+    private record Compra(String id, String descricao, String categoria, int primeiro, double[] valores) {}
+
+    private record Estrutura(int inicio, long versao, List<Compra> compras, double[] receitas) {}
+
+    private final ParcelamentoRepository parcelamentoRepository;
+    private final GastoRepository gastoRepository;
+    private final ParcelaExcluidaRepository excluidaRepository;
+    private final ReceitaMensalRepository receitaRepository;
+    private final VersoesPeriodo versoes;
+    private final TransactionTemplate leitura;
+    private final Map<String, Estrutura> estruturas;
+    private final Counter acertos;
+    private final Counter faltas;
+
+    public PrevisaoService(ParcelamentoRepository parcelamentoRepository, GastoRepository gastoRepository,
+                           ParcelaExcluidaRepository excluidaRepository, ReceitaMensalRepository receitaRepository, VersoesPeriodo versoes,
+                           PlatformTransactionManager transactionManager, MeterRegistry registry,
+                           @Value("${app.previsao.max-usuarios:1000}") int maxUsuarios) {
+        this.parcelamentoRepository = parcelamentoRepository;
+        this.gastoRepository = gastoRepository;
+        this.excluidaRepository = excluidaRepository;
+        this.receitaRepository = receitaRepository;
+        this.versoes = versoes;
+        this.leitura = new TransactionTemplate(transactionManager);
+        this.leitura.setReadOnly(true);
+        this.estruturas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Estrutura> eldest) {
+                return size() > maxUsuarios;
+            }
+        };
+        this.acertos = Counter.builder("previsao.estruturas").tag("resultado", "acerto")
+                .description("Previsões calculadas sobre a estrutura em memória").register(registry);
+        this.faltas = Counter.builder("previsao.estruturas").tag("resultado", "falta")
+                .description("Estruturas da previsão montadas no banco").register(registry);
+    }
+
+    /**
+     * Previsão dos próximos {@code meses} meses (o atual é o primeiro). As compras de {@code quitar} (ids de
+     * {@link CompraParceladaDTO}) são quitadas no primeiro mês: o saldo devedor delas sai dos meses seguintes.
+     */
+    public PrevisaoDTO prever(String userId, int meses, Collection<String> quitar) {
+        if (meses < 1 || meses > MAX_MESES) {
+            throw new IllegalArgumentException("'meses' deve estar entre 1 e " + MAX_MESES);
+        }
+        YearMonth atual = YearMonth.now();
+        Estrutura e = estrutura(userId, ParcelamentoService.periodo(atual.getMonthValue(), atual.getYear()));
+
+        Set<String> quitadas = quitar != null ? new HashSet<>(quitar) : new HashSet<>();
+        double[] parcelas = new double[meses];
+        double quitacoes = 0;
+        List<CompraParceladaDTO> compras = new ArrayList<>(e.compras().size());
+        for (Compra c : e.compras()) {
+            boolean quitada = quitadas.remove(c.id());
+            double saldoDevedor = 0;
+            double proxima = 0;
+            int restantes = 0;
+            for (int i = 0; i < c.valores().length; i++) {
+                double v = c.valores()[i];
+                if (v == 0) continue;
+                if (restantes++ == 0) proxima = v;
+                saldoDevedor += v;
+                int mes = c.primeiro() + i - e.inicio();
+                if (!quitada && mes < meses) parcelas[mes] += v;
+            }
+            if (quitada) quitacoes += saldoDevedor;
+            compras.add(new CompraParceladaDTO(c.id(), c.descricao(), c.categoria(), proxima, restantes, saldoDevedor, quitada));
+        }
+        if (!quitadas.isEmpty()) {
+            throw new IllegalArgumentException("Compras não encontradas entre as parcelas em aberto: " + quitadas);
+        }
+        compras.sort(Comparator.comparing(CompraParceladaDTO::saldoDevedor).reversed());
+
+        List<PrevisaoMensalDTO> lista = new ArrayList<>(meses);
+        for (int i = 0; i < meses; i++) {
+            int p = e.inicio() + i;
+            double q = i == 0 ? quitacoes : 0;
+            lista.add(new PrevisaoMensalDTO(p / 12, p % 12 + 1, e.receitas()[i], parcelas[i], q,
+                    e.receitas()[i] - parcelas[i] - q));
+        }
+        return new PrevisaoDTO(lista, compras);
+    }
+
+    private Estrutura estrutura(String userId, int inicio) {
+        int fim = inicio + MAX_MESES - 1;
+        // versão lida antes das queries: uma escrita durante a montagem deixa a estrutura já desatualizada
+        long versao = versoes.versaoEntre(userId, inicio, fim);
+        synchronized (estruturas) {
+            Estrutura e = estruturas.get(userId);
+            if (e != null && e.inicio() == inicio && e.versao() == versao) {
+                acertos.increment();
+                return e;
+            }
+        }
+        faltas.increment();
+        Estrutura e = leitura.execute(s -> montar(userId, inicio, fim, versao));
+        synchronized (estruturas) {
+            estruturas.put(userId, e);
+        }
+        return e;
+    }
+
+    private Estrutura montar(String userId, int inicio, int fim, long versao) {
+        Map<String, TreeMap<Integer, Double>> valores = new LinkedHashMap<>();
+        Map<String, String[]> dados = new HashMap<>();
+
+        List<Parcelamento> planos = parcelamentoRepository.findAtivosEntre(userId, inicio, fim);
+        Map<Long, Parcelamento> porId = new HashMap<>();
+        Set<Long> materializadas = new HashSet<>();
+        if (!planos.isEmpty()) {
+            for (Parcelamento p : planos) porId.put(p.getId(), p);
+            for (Object[] r : gastoRepository.findParcelasMaterializadas(porId.keySet())) {
+                if (r[1] != null) materializadas.add(chave((Long) r[0], (Integer) r[1]));
+            }
+            // parcelas excluídas pelo usuário também saem da previsão
+            for (Object[] r : excluidaRepository.findExcluidas(porId.keySet())) {
+                materializadas.add(chave((Long) r[0], (Integer) r[1]));
+            }
+        }
+        for (Parcelamento plano : planos) {
+            for (int periodo = Math.max(inicio, plano.getPeriodoInicio()); periodo <= plano.getPeriodoFim(); periodo++) {
+                int parcela = plano.getParcelaInicial() + (periodo - plano.getPeriodoInicio());
+                if (materializadas.contains(chave(plano.getId(), parcela))) continue; // o lançamento vem abaixo
+                somar(valores, dados, id(plano), plano.getDescricao(), plano.getCategoria(), periodo, plano.getValor());
+            }
+        }
+
+        // parcelas gravadas como lançamento (materializadas ou importadas por fatura), ainda não pagas
+        for (Object[] r : gastoRepository.findParcelasEmAbertoEntre(userId, inicio / 12, fim / 12, inicio, fim)) {
+            Parcelamento plano = r[0] != null ? porId.get((Long) r[0]) : null;
+            String descricao = (String) r[1];
+            double valor = ((Number) r[3]).doubleValue();
+            int parcelaAtual = (Integer) r[4];
+            int periodo = ParcelamentoService.periodo((Integer) r[7], (Integer) r[6]);
+            String id = plano != null ? id(plano) : ParcelamentoService.assinatura(userId, descricao, valor,
+                    (Integer) r[5], periodo - (parcelaAtual - 1));
+            somar(valores, dados, id, descricao, (String) r[2], periodo, valor);
+        }
+
+        List<Compra> compras = new ArrayList<>(valores.size());
+        valores.forEach((id, porPeriodo) -> {
+            int primeiro = porPeriodo.firstKey();
+            double[] v = new double[porPeriodo.lastKey() - primeiro + 1];
+            porPeriodo.forEach((periodo, valor) -> v[periodo - primeiro] += valor);
+            String[] d = dados.get(id);
+            compras.add(new Compra(id, d[0], d[1], primeiro, v));
+        });
+
+        double[] receitas = new double[MAX_MESES];
+        for (ReceitaMensal r : receitaRepository.findEntre(userId, inicio / 12, fim / 12, inicio, fim)) {
+            receitas[ParcelamentoService.periodo(r.getMes(), r.getAno()) - inicio] += r.getValor();
+        }
+        return new Estrutura(inicio, versao, List.copyOf(compras), receitas);
+    }
+
+    private static void somar(Map<String, TreeMap<Integer, Double>> valores, Map<String, String[]> dados, String id,
+                              String descricao, String categoria, int periodo, double valor) {
+        valores.computeIfAbsent(id, k -> new TreeMap<>()).merge(periodo, valor, Double::sum);
+        dados.putIfAbsent(id, new String[]{descricao, categoria});
+    }
+
+    private static String id(Parcelamento plano) {
+        return plano.getAssinatura() != null ? plano.getAssinatura() : "plano-" + plano.getId();
+    }
+
+    // mesma codificação do id virtual das parcelas projetadas
+    private static long chave(Long idPlano, int parcela) {
+        return idPlano * 1000 + parcela;
+    }
+}
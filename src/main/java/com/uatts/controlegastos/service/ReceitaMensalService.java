@@ -1,7 +1,9 @@
 package com.uatts.controlegastos.service;
 
+import com.uatts.controlegastos.model.ConsolidadoMensal;
 import com.uatts.controlegastos.model.ReceitaMensal;
 import com.uatts.controlegastos.repository.ReceitaMensalRepository;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -10,9 +12,13 @@ import org.springframework.transaction.annotation.Transactional;
 public class ReceitaMensalService {
 
     private final ReceitaMensalRepository repository;
+    private final VersoesPeriodo versoes;
+    private final SaldoMensalService saldos;
 
-    public ReceitaMensalService(ReceitaMensalRepository repository) {
+    public ReceitaMensalService(ReceitaMensalRepository repository, VersoesPeriodo versoes, SaldoMensalService saldos) {
         this.repository = repository;
+        this.versoes = versoes;
+        this.saldos = saldos;
     }
 
     public Optional<ReceitaMensal> buscar(String usuarioId, int ano, int mes) {
@@ -31,6 +37,10 @@ public class ReceitaMensalService {
                 return nova;
             });
         receita.setValor(valor);
+        ConsolidadoMensal.Periodo periodo = new ConsolidadoMensal.Periodo(usuarioId, ano, mes);
+        saldos.receitasAlteradas(periodo, valor);
+        // a receita do mês faz parte do /api/dashboard
+        versoes.alterados(List.of(periodo));
         return repository.save(receita);
     }
 }
@@ -0,0 +1,101 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.dto.EstornoItemDTO;
+import com.uatts.controlegastos.dto.ReconciliacaoEstornosDTO;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Índice de estornos/cancelamentos de um CSV para conciliação com as compras.
+ *
+ * A chave é (descrição normalizada, valor em centavos) e cada chave guarda a fila dos estornos ainda
+ * não usados (multiconjunto), então cada compra é conciliada em tempo constante. A tolerância de
+ * 1 centavo das regras antigas é mantida consultando também os centavos vizinhos.
+ */
+public final class ReconciliacaoEstornos {
+
+    private record Chave(String descricao, long centavos) {}
+
+    private static final class Estorno {
+        private final int linha;
+        private final String titulo;
+        private final double valor;
+        private String descricaoCompra;
+
+        private Estorno(int linha, String titulo, double valor) {
+            this.linha = linha;
+            this.titulo = titulo;
+            this.valor = valor;
+        }
+    }
+
+    private final Map<Chave, ArrayDeque<Estorno>> pendentes = new HashMap<>();
+    private final List<Estorno> todos = new ArrayList<>();
+
+    /** Registra um estorno; {@code alvo} é a descrição da compra estornada (ou o próprio título). */
+    public void registrar(int linha, String titulo, String alvo, double valor) {
+        Estorno e = new Estorno(linha, titulo, Math.abs(valor));
+        todos.add(e);
+        pendentes.computeIfAbsent(new Chave(NormalizadorDescricao.chave(alvo), centavos(valor)), k -> new ArrayDeque<>())
+                .addLast(e);
+    }
+
+    public boolean isEmpty() {
+        return pendentes.isEmpty();
+    }
+
+    /** Retorna true (e consome o estorno) se houver estorno pendente para a compra. */
+    public boolean consumir(String descricaoCompra, Double valor) {
+        if (pendentes.isEmpty() || valor == null) return false;
+        return consumirChave(NormalizadorDescricao.chave(descricaoCompra), valor, descricaoCompra);
+    }
+
+    /** Como {@link #consumir(String, Double)}, com a descrição já normalizada por {@link NormalizadorDescricao#chave}. */
+    public boolean consumirChave(String chave, double valor, String descricaoCompra) {
+        if (pendentes.isEmpty()) return false;
+        long c = centavos(valor);
+        Estorno e = consumir(new Chave(chave, c));
+        if (e == null) e = consumir(new Chave(chave, c - 1));
+        if (e == null) e = consumir(new Chave(chave, c + 1));
+        if (e == null) return false;
+        e.descricaoCompra = descricaoCompra;
+        return true;
+    }
+
+    private Estorno consumir(Chave chave) {
+        ArrayDeque<Estorno> fila = pendentes.get(chave);
+        if (fila == null) return null;
+        Estorno e = fila.pollFirst();
+        if (fila.isEmpty()) pendentes.remove(chave);
+        return e;
+    }
+
+    /**
+     * Relatório das linhas de estorno: conciliadas (com a compra anulada) e sem compra correspondente.
+     * Aceita vários índices do mesmo CSV; uma linha presente em mais de um conta uma vez.
+     */
+    public static ReconciliacaoEstornosDTO relatorio(ReconciliacaoEstornos... indices) {
+        Map<Integer, Estorno> porLinha = new TreeMap<>();
+        for (ReconciliacaoEstornos indice : indices) {
+            for (Estorno e : indice.todos) {
+                porLinha.merge(e.linha, e, (atual, novo) -> atual.descricaoCompra != null ? atual : novo);
+            }
+        }
+        List<EstornoItemDTO> conciliados = new ArrayList<>();
+        List<EstornoItemDTO> naoConciliados = new ArrayList<>();
+        for (Estorno e : porLinha.values()) {
+            EstornoItemDTO item = new EstornoItemDTO(e.linha, e.titulo, e.valor, e.descricaoCompra);
+            (e.descricaoCompra != null ? conciliados : naoConciliados).add(item);
+        }
+        return new ReconciliacaoEstornosDTO(conciliados, naoConciliados);
+    }
+
+    private static long centavos(double valor) {
+        return Math.round(Math.abs(valor) * 100.0);
+    }
+}
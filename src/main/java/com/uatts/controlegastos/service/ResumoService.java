@@ -1,37 +1,78 @@
 package com.uatts.controlegastos.service;
 
-import com.uatts.controlegastos.repository.GastoRepository;
-import com.uatts.controlegastos.repository.ReceitaRepository;
+import com.uatts.controlegastos.dto.SaldoMensalDTO;
+import com.uatts.controlegastos.model.SaldoMensal;
+import com.uatts.controlegastos.repository.SaldoMensalRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashMap;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Receitas x despesas por mês, lidas da série de saldos ({@link SaldoMensalService}): um intervalo custa uma
+ * query pelas linhas dele e outra pelo saldo acumulado até o mês anterior, sem somar o histórico.
+ * As despesas são os lançamentos gravados mais as parcelas projetadas dos planos, como em {@code /resumo}.
+ */
 @Service
 public class ResumoService {
 
-    private final GastoRepository gastoRepository;
-    private final ReceitaRepository receitaRepository;
+    // meses por consulta de saldos
+    public static final int MAX_MESES = 120;
 
-    public ResumoService(GastoRepository gastoRepository,
-                         ReceitaRepository receitaRepository) {
-        this.gastoRepository = gastoRepository;
-        this.receitaRepository = receitaRepository;
+    private final SaldoMensalRepository saldoRepository;
+    private final SaldoMensalService saldoService;
+
+    public ResumoService(SaldoMensalRepository saldoRepository, SaldoMensalService saldoService) {
+        this.saldoRepository = saldoRepository;
+        this.saldoService = saldoService;
     }
 
-    public Map<String, Double> calcularResumo(String mes) {
-        /*Double totalGastos = gastoRepository.sumValorByMes(mes);
-        Double totalReceitas = receitaRepository.sumValorByMes(mes);
+    /** Totais do mês: totalReceitas, totalGastos, saldo e saldoAcumulado. */
+    @Transactional(readOnly = true)
+    public Map<String, Double> calcularResumo(String userId, YearMonth mes) {
+        SaldoMensalDTO saldo = calcularSaldos(userId, mes, mes).get(0);
+        Map<String, Double> resumo = new LinkedHashMap<>();
+        resumo.put("totalReceitas", saldo.receitas());
+        resumo.put("totalGastos", saldo.despesas());
+        resumo.put("saldo", saldo.saldo());
+        resumo.put("saldoAcumulado", saldo.saldoAcumulado());
+        return resumo;
+    }
 
-        if (totalGastos == null) totalGastos = 0.0;
-        if (totalReceitas == null) totalReceitas = 0.0;
+    /** Um item por mês do intervalo (inclusive), com zeros nos meses sem receita nem despesa. */
+    @Transactional(readOnly = true)
+    public List<SaldoMensalDTO> calcularSaldos(String userId, YearMonth de, YearMonth ate) {
+        int inicio = ParcelamentoService.periodo(de.getMonthValue(), de.getYear());
+        int fim = ParcelamentoService.periodo(ate.getMonthValue(), ate.getYear());
+        if (fim < inicio) {
+            throw new IllegalArgumentException("'de' deve ser anterior ou igual a 'ate'");
+        }
+        if (fim - inicio + 1 > MAX_MESES) {
+            throw new IllegalArgumentException("Intervalo máximo dos saldos: " + MAX_MESES + " meses");
+        }
 
-        Map<String, Double> resumo = new HashMap<>();
-        resumo.put("totalGastos", totalGastos);
-        resumo.put("totalReceitas", totalReceitas);
-        resumo.put("saldo", totalReceitas - totalGastos);
+        List<SaldoMensal> linhas = saldoRepository.findEntre(userId, de.getYear(), ate.getYear(), inicio, fim);
+        double acumulado = saldoService.acumuladoAntes(userId, inicio);
+        List<SaldoMensalDTO> meses = new ArrayList<>(fim - inicio + 1);
+        int i = 0;
+        for (int p = inicio; p <= fim; p++) {
+            SaldoMensal s = null;
+            for (; i < linhas.size() && periodo(linhas.get(i)) <= p; i++) {
+                if (periodo(linhas.get(i)) == p) s = linhas.get(i);
+            }
+            double receitas = s != null ? s.getReceitas() : 0;
+            double despesas = s != null ? s.getDespesas() : 0;
+            if (s != null) acumulado = s.getSaldoAcumulado();
+            meses.add(new SaldoMensalDTO(p / 12, p % 12 + 1, receitas, despesas, receitas - despesas, acumulado));
+        }
+        return meses;
+    }
 
-        return resumo;*/
-        return null;
+    private static int periodo(SaldoMensal s) {
+        return ParcelamentoService.periodo(s.getMes(), s.getAno());
     }
-}
\ No newline at end of file
+}
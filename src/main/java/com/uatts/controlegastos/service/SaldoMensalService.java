@@ -0,0 +1,204 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.model.ConsolidadoMensal.Periodo;
+import com.uatts.controlegastos.model.Gasto;
+import com.uatts.controlegastos.model.ReceitaMensal;
+import com.uatts.controlegastos.model.SaldoMensal;
+import com.uatts.controlegastos.repository.ConsolidadoMensalRepository;
+import com.uatts.controlegastos.repository.ReceitaMensalRepository;
+import com.uatts.controlegastos.repository.SaldoMensalRepository;
+import com.uatts.controlegastos.repository.TravasRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Manutenção da série de saldos mensais ({@link SaldoMensal}) lida pelo {@link ResumoService}.
+ *
+ * As despesas de um mês são as do recálculo do consolidado ({@link ConsolidadoMensalService}) mais as parcelas
+ * projetadas dos planos no mês ({@link ParcelasProjetadas}), como nos resumos do mês; as receitas vêm de
+ * {@link ReceitaMensalService#salvarOuAtualizar}. Cada alteração regrava a linha do mês e desloca, com um único
+ * UPDATE, o saldo acumulado dos meses seguintes do usuário. Ler um intervalo nunca percorre o histórico.
+ *
+ * Os valores são lidos por projeção e alterados por UPDATE, então as linhas já carregadas na sessão nunca são
+ * usadas com valores antigos. Cada alteração (leitura do mês, UPDATE ou INSERT e deslocamento dos seguintes)
+ * acontece com a série do usuário travada ({@link TravasRepository}), então gravações simultâneas no mesmo
+ * usuário não perdem deltas nem duplicam o mês. A verificação do consolidado chama {@link #verificar}, que
+ * remonta a série dos usuários divergentes (métrica {@code saldo.divergencias}).
+ */
+@Service
+public class SaldoMensalService {
+
+    private static final Logger log = LoggerFactory.getLogger(SaldoMensalService.class);
+    // diferença aceita entre somas de double
+    private static final double TOLERANCIA = 0.005;
+
+    private final SaldoMensalRepository saldoRepository;
+    private final ConsolidadoMensalRepository consolidadoRepository;
+    private final ReceitaMensalRepository receitaRepository;
+    private final TravasRepository travas;
+    private final ParcelasProjetadas projetadas;
+    private final TransactionTemplate transacao;
+    private final Counter divergencias;
+
+    public SaldoMensalService(SaldoMensalRepository saldoRepository, ConsolidadoMensalRepository consolidadoRepository,
+                              ReceitaMensalRepository receitaRepository, TravasRepository travas,
+                              ParcelasProjetadas projetadas, PlatformTransactionManager transactionManager, MeterRegistry registry) {
+        this.saldoRepository = saldoRepository;
+        this.consolidadoRepository = consolidadoRepository;
+        this.receitaRepository = receitaRepository;
+        this.travas = travas;
+        this.projetadas = projetadas;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.divergencias = Counter.builder("saldo.divergencias")
+                .description("Usuários com a série de saldos remontada pela verificação").register(registry);
+    }
+
+    /** Nova receita do mês. */
+    @Transactional
+    public void receitasAlteradas(Periodo p, double receitas) {
+        atualizar(p, receitas, null);
+    }
+
+    /** Novo total de despesas gravadas do mês (soma do consolidado); as parcelas projetadas do mês são somadas aqui. */
+    @Transactional
+    public void despesasAlteradas(Periodo p, double despesas) {
+        atualizar(p, null, despesas + projetadas.total(p.userId(), ParcelamentoService.periodo(p.mes(), p.ano())));
+    }
+
+    private void atualizar(Periodo p, Double receitas, Double despesas) {
+        travas.travarUsuario(p.userId());
+        List<Object[]> atual = saldoRepository.valores(p.userId(), p.ano(), p.mes());
+        boolean existe = !atual.isEmpty();
+        double receitasAntes = existe ? (Double) atual.get(0)[0] : 0;
+        double despesasAntes = existe ? (Double) atual.get(0)[1] : 0;
+        double r = receitas != null ? receitas : receitasAntes;
+        double d = despesas != null ? despesas : despesasAntes;
+        if (r == receitasAntes && d == despesasAntes) return;
+
+        int periodo = ParcelamentoService.periodo(p.mes(), p.ano());
+        double delta = (r - d) - (receitasAntes - despesasAntes);
+        if (r == 0 && d == 0) {
+            saldoRepository.excluirMes(p.userId(), p.ano(), p.mes());
+        } else if (existe) {
+            saldoRepository.atualizarMes(p.userId(), p.ano(), p.mes(), r, d, delta);
+        } else {
+            saldoRepository.save(linha(p, r, d, acumuladoAntes(p.userId(), periodo) + r - d));
+        }
+        if (delta != 0) {
+            saldoRepository.deslocarDepois(p.userId(), p.ano(), periodo, delta);
+        }
+    }
+
+    /** Saldo acumulado até o mês anterior ao período ({@code ano * 12 + mes - 1}). */
+    public double acumuladoAntes(String userId, int periodo) {
+        List<Double> anteriores = saldoRepository.acumuladosAntes(userId, periodo / 12, periodo, PageRequest.of(0, 1));
+        return anteriores.isEmpty() ? 0 : anteriores.get(0);
+    }
+
+    /** Série ainda não montada (primeira subida ou tabela nova). */
+    public boolean vazia() {
+        return saldoRepository.count() == 0;
+    }
+
+    /**
+     * Compara a série de cada usuário com o consolidado e as receitas dele e remonta as divergentes; devolve
+     * quantos usuários foram remontados. Cada usuário é conferido em uma transação, com a série travada.
+     */
+    public int verificar() {
+        Set<String> usuarios = new LinkedHashSet<>(consolidadoRepository.findUsuarios());
+        usuarios.addAll(receitaRepository.findUsuarios());
+        usuarios.addAll(saldoRepository.findUsuarios());
+        usuarios.addAll(projetadas.usuarios());
+        int remontados = 0;
+        for (String userId : usuarios) {
+            if (Boolean.TRUE.equals(transacao.execute(s -> conferir(userId)))) remontados++;
+        }
+        if (remontados > 0) {
+            divergencias.increment(remontados);
+            log.warn("Saldos mensais: série de {} de {} usuários divergia e foi remontada", remontados, usuarios.size());
+        }
+        return remontados;
+    }
+
+    // confere a série do usuário (dentro da transação) e a remonta se divergir; true se divergia
+    private boolean conferir(String userId) {
+        travas.travarUsuario(userId);
+        TreeMap<Integer, double[]> esperado = new TreeMap<>();
+        for (Object[] r : consolidadoRepository.despesasPorMes(userId)) {
+            int periodo = ParcelamentoService.periodo(((Number) r[1]).intValue(), ((Number) r[0]).intValue());
+            valores(esperado, periodo)[1] += ((Number) r[2]).doubleValue();
+        }
+        for (Gasto g : projetadas.projetarEntre(userId, 0, Integer.MAX_VALUE)) {
+            valores(esperado, ParcelamentoService.periodo(g.getMesNumero(), g.getAnoPagamento()))[1] += g.getValor();
+        }
+        for (ReceitaMensal r : receitaRepository.findByUsuarioId(userId)) {
+            valores(esperado, ParcelamentoService.periodo(r.getMes(), r.getAno()))[0] += r.getValor();
+        }
+        esperado.values().removeIf(v -> v[0] == 0 && v[1] == 0);
+
+        List<SaldoMensal> linhas = serie(userId, esperado);
+        if (iguais(linhas, saldoRepository.findByUserId(userId))) return false;
+        saldoRepository.excluirUsuario(userId);
+        saldoRepository.saveAll(linhas);
+        return true;
+    }
+
+    private static double[] valores(TreeMap<Integer, double[]> meses, int periodo) {
+        return meses.computeIfAbsent(periodo, k -> new double[2]);
+    }
+
+    private static List<SaldoMensal> serie(String userId, TreeMap<Integer, double[]> meses) {
+        List<SaldoMensal> linhas = new ArrayList<>(meses.size());
+        double acumulado = 0;
+        for (Map.Entry<Integer, double[]> e : meses.entrySet()) {
+            double r = e.getValue()[0], d = e.getValue()[1];
+            acumulado += r - d;
+            int p = e.getKey();
+            linhas.add(linha(new Periodo(userId, p / 12, p % 12 + 1), r, d, acumulado));
+        }
+        return linhas;
+    }
+
+    private static SaldoMensal linha(Periodo p, double receitas, double despesas, double acumulado) {
+        SaldoMensal s = new SaldoMensal();
+        s.setUserId(p.userId());
+        s.setAno(p.ano());
+        s.setMes(p.mes());
+        s.setReceitas(receitas);
+        s.setDespesas(despesas);
+        s.setSaldoAcumulado(acumulado);
+        return s;
+    }
+
+    private static boolean iguais(List<SaldoMensal> esperadas, List<SaldoMensal> atuais) {
+        if (esperadas.size() != atuais.size()) return false;
+        Map<Integer, SaldoMensal> porPeriodo = new HashMap<>();
+        for (SaldoMensal s : atuais) {
+            if (porPeriodo.put(ParcelamentoService.periodo(s.getMes(), s.getAno()), s) != null) return false; // mês duplicado
+        }
+        for (SaldoMensal e : esperadas) {
+            SaldoMensal a = porPeriodo.get(ParcelamentoService.periodo(e.getMes(), e.getAno()));
+            if (a == null || Math.abs(a.getReceitas() - e.getReceitas()) > TOLERANCIA
+                    || Math.abs(a.getDespesas() - e.getDespesas()) > TOLERANCIA
+                    || Math.abs(a.getSaldoAcumulado() - e.getSaldoAcumulado()) > TOLERANCIA) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
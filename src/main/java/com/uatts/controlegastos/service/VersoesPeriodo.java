@@ -0,0 +1,115 @@
+package com.uatts.controlegastos.service;
+
+import com.uatts.controlegastos.model.ConsolidadoMensal.Periodo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versão dos dados de cada mês de cada usuário, usada nos ETags dos GETs (304 sem consultar o banco), e
+ * ponto único de aviso das escritas: {@link #alterados} muda a versão dos meses tocados depois do commit
+ * e descarta os resumos deles do {@link CacheResumos}.
+ *
+ * As versões vêm de um contador global crescente, então a maior versão de um intervalo muda sempre que
+ * qualquer mês dele muda. Ficam em memória as dos {@code app.versoes.max-periodos} meses alterados mais
+ * recentemente; um mês que saiu da memória responde com o piso (a maior versão descartada), que nunca é
+ * menor que a versão que ele tinha. As versões recomeçam a cada subida; o ETag inclui o início do processo.
+ * Cada usuário também tem a versão do seu último mês alterado ({@link #versaoUsuario}), com o mesmo piso.
+ */
+@Component
+public class VersoesPeriodo {
+
+    private final Map<Periodo, Long> versoes;
+    private final Map<String, Long> usuarios;
+    private final CacheResumos cacheResumos;
+    private long contador;
+    private long piso;
+
+    public VersoesPeriodo(CacheResumos cacheResumos, @Value("${app.versoes.max-periodos:100000}") int maxPeriodos) {
+        this.cacheResumos = cacheResumos;
+        this.versoes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Periodo, Long> eldest) {
+                if (size() <= maxPeriodos) return false;
+                piso = Math.max(piso, eldest.getValue());
+                return true;
+            }
+        };
+        this.usuarios = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                if (size() <= maxPeriodos) return false;
+                piso = Math.max(piso, eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /** Meses alterados; dentro de uma transação, valem só depois do commit. */
+    public void alterados(Collection<Periodo> periodos) {
+        if (periodos.isEmpty()) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            incrementar(periodos);
+            return;
+        }
+        List<Periodo> copia = List.copyOf(periodos);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                incrementar(copia);
+            }
+        });
+    }
+
+    /** Meses do usuário entre dois períodos ({@code ano * 12 + mes - 1}), inclusive, alterados. */
+    public void alteradosEntre(String userId, int de, int ate) {
+        if (userId == null) return;
+        List<Periodo> periodos = new ArrayList<>();
+        for (int p = de; p <= ate; p++) {
+            periodos.add(new Periodo(userId, p / 12, p % 12 + 1));
+        }
+        alterados(periodos);
+    }
+
+    /** Muda a versão dos meses imediatamente (ex.: no afterCommit de quem já acompanha a transação). */
+    public void incrementar(Collection<Periodo> periodos) {
+        synchronized (this) {
+            for (Periodo p : periodos) {
+                versoes.put(p, ++contador);
+                usuarios.put(p.userId(), contador);
+            }
+        }
+        cacheResumos.descartar(periodos);
+    }
+
+    /** Versão do mês do usuário. */
+    public synchronized long versao(String userId, int mes, int ano) {
+        return versoes.getOrDefault(new Periodo(userId, ano, mes), piso);
+    }
+
+    /** Versão dos meses do usuário entre dois períodos ({@code ano * 12 + mes - 1}), inclusive. */
+    public synchronized long versaoEntre(String userId, int de, int ate) {
+        long versao = 0;
+        for (int p = de; p <= ate; p++) {
+            versao = Math.max(versao, versoes.getOrDefault(new Periodo(userId, p / 12, p % 12 + 1), piso));
+        }
+        return versao;
+    }
+
+    /** Versão de todos os meses do usuário: muda a cada escrita dele. */
+    public synchronized long versaoUsuario(String userId) {
+        return usuarios.getOrDefault(userId, piso);
+    }
+
+    /** Versão das consultas que não são de um usuário: muda a cada escrita. */
+    public synchronized long versaoGlobal() {
+        return contador;
+    }
+}
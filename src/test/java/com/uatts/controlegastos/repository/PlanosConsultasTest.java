@@ -0,0 +1,299 @@
+package com.uatts.controlegastos.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uatts.controlegastos.model.Gasto;
+import com.uatts.controlegastos.model.Parcelamento;
+import com.uatts.controlegastos.service.ExportacaoService;
+import com.uatts.controlegastos.service.GastoService;
+import com.uatts.controlegastos.service.PaginacaoCursorService;
+import com.uatts.controlegastos.service.ParcelamentoService;
+import com.uatts.controlegastos.service.ReceitaMensalService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Regressão de planos: chama as consultas dos repositórios (e as montadas pelos serviços) contra um PostgreSQL
+ * populado, captura o SQL que o Hibernate gerou ({@link SqlCapturado}) e falha se o {@code EXPLAIN} de algum
+ * lê uma tabela inteira.
+ *
+ * O EXPLAIN é o plano genérico ({@code generic_plan}, PostgreSQL 16) com {@code enable_seqscan = off}, então o
+ * planejador só escolhe {@code Seq Scan} (ou um índice percorrido inteiro, sem {@code Index Cond}) quando nenhum
+ * índice serve; o resultado não depende do tamanho das tabelas nem dos valores dos parâmetros.
+ *
+ * Ficam de fora as varreduras de manutenção, que leem tudo de propósito:
+ * {@code findByMesNumeroIsNullOrMesPagamentoIsNull}, {@code findPeriodos}, {@code findUsuarios}, {@code existsByLinhasIsNull}, {@code findByCategoriaIgnoreCase}
+ * (renomeação na subida) e os {@code findAll}. Sem Docker, o teste é pulado.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.uatts.controlegastos.repository.SqlCapturado",
+        "spring.jpa.show-sql=false"
+})
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PlanosConsultasTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final String UID = "planos";
+    private static final int ANO = 2026;
+    private static final int MES = 5;
+    private static final int PERIODO = ParcelamentoService.periodo(MES, ANO);
+
+    @DynamicPropertySource
+    static void banco(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired private GastoRepository gastoRepository;
+    @Autowired private ConsolidadoMensalRepository consolidadoRepository;
+    @Autowired private SaldoMensalRepository saldoRepository;
+    @Autowired private ReceitaMensalRepository receitaRepository;
+    @Autowired private ParcelamentoRepository parcelamentoRepository;
+    @Autowired private ParcelaExcluidaRepository parcelaExcluidaRepository;
+    @Autowired private GastoService gastoService;
+    @Autowired private ParcelamentoService parcelamentoService;
+    @Autowired private ReceitaMensalService receitaService;
+    @Autowired private PaginacaoCursorService paginacaoCursorService;
+    @Autowired private ExportacaoService exportacaoService;
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private final Map<String, String> primeirasColunas = new HashMap<>();
+    private long gastoId;
+    private long parcelamentoId;
+
+    @BeforeAll
+    void popular() {
+        for (int i = 0; i < 20; i++) {
+            Gasto g = new Gasto();
+            g.setUserId(UID);
+            g.setDescricao("mercado " + i);
+            g.setValor(10.0 + i);
+            g.setMesNumero(MES - i % 2);
+            g.setMesPagamento(String.valueOf(MES - i % 2));
+            g.setAnoPagamento(ANO);
+            g.setCategoria(i % 3 == 0 ? "Casa" : "Mercado");
+            g.setPago(i % 2 == 0);
+            gastoId = gastoService.salvar(g).getId();
+        }
+        Parcelamento p = new Parcelamento();
+        p.setUserId(UID);
+        p.setDescricao("curso");
+        p.setValor(99.0);
+        p.setTotalParcelas(3);
+        p.setParcelaInicial(1);
+        p.setPeriodoInicio(PERIODO);
+        p.setPeriodoFim(PERIODO + 2);
+        p.setCategoria("Casa");
+        p.setAssinatura("curso");
+        parcelamentoService.importar(List.of(p));
+        parcelamentoId = parcelamentoRepository.findByUserIdAndAssinaturaIn(UID, List.of(p.getAssinatura())).get(0).getId();
+        receitaService.salvarOuAtualizar(UID, ANO, MES, 1000);
+    }
+
+    @Test
+    void consultasUsamIndice() {
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+        List<String> falhas = new ArrayList<>();
+        consultas().forEach((nome, chamada) -> transacao.executeWithoutResult(s -> {
+            s.setRollbackOnly();
+            SqlCapturado.limpar();
+            try {
+                chamada.run();
+            } catch (Exception e) {
+                throw new IllegalStateException(nome, e);
+            }
+            List<String> sqls = SqlCapturado.lidos();
+            if (sqls.isEmpty()) falhas.add(nome + ": nenhum SQL capturado");
+            jdbc.execute("set local enable_seqscan = off");
+            jdbc.execute(PLANO);
+            for (String sql : sqls) {
+                List<String> varreduras = varreduras(jdbc.queryForObject(
+                        "select pg_temp.plano(?)", String.class, numerarParametros(sql)));
+                if (!varreduras.isEmpty()) falhas.add(nome + ": " + varreduras + "\n    " + sql);
+            }
+        }));
+        assertTrue(falhas.isEmpty(), "Consultas lendo tabela inteira:\n" + String.join("\n", falhas));
+    }
+
+    // o EXPLAIN com "$n" sem valores precisa ir como texto: pelo JDBC, o driver cobraria os parâmetros
+    private static final String PLANO = """
+            create or replace function pg_temp.plano(consulta text) returns text language plpgsql as $$
+            declare resultado text;
+            begin
+                execute 'explain (generic_plan, format json) ' || consulta into resultado;
+                return resultado;
+            end $$""";
+
+    private interface Chamada {
+        void run() throws Exception;
+    }
+
+    private Map<String, Chamada> consultas() {
+        Pageable pagina = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "id"));
+        Map<String, Chamada> c = new LinkedHashMap<>();
+        c.put("GastoRepository.findByMesNumeroAndAnoPagamentoAndUserId",
+                () -> gastoRepository.findByMesNumeroAndAnoPagamentoAndUserId(MES, ANO, UID, pagina));
+        c.put("GastoRepository.findByMesNumeroAndAnoPagamentoAndPagoAndUserId",
+                () -> gastoRepository.findByMesNumeroAndAnoPagamentoAndPagoAndUserId(MES, ANO, false, UID, pagina));
+        c.put("GastoRepository.pageByPeriodoExcluindoCategoria",
+                () -> gastoRepository.pageByPeriodoExcluindoCategoria(MES, ANO, false, "Sem Categoria", UID, pagina));
+        c.put("GastoRepository.findByMesNumeroAndAnoPagamentoAndCategoriaAndUserId",
+                () -> gastoRepository.findByMesNumeroAndAnoPagamentoAndCategoriaAndUserId(MES, ANO, "Mercado", UID));
+        c.put("GastoRepository.sumValorByMesNumeroEAnoAndUser",
+                () -> gastoRepository.sumValorByMesNumeroEAnoAndUser(MES, ANO, UID));
+        c.put("GastoRepository.sumValorPagoByMesNumeroEAnoAndUser",
+                () -> gastoRepository.sumValorPagoByMesNumeroEAnoAndUser(MES, ANO, UID));
+        c.put("GastoRepository.countByMesNumeroEAnoAndUser",
+                () -> gastoRepository.countByMesNumeroEAnoAndUser(MES, ANO, UID));
+        c.put("GastoRepository.resumoPorCategoriaUser", () -> gastoRepository.resumoPorCategoriaUser(MES, ANO, UID));
+        c.put("GastoRepository.consolidarPeriodo", () -> gastoRepository.consolidarPeriodo(UID, ANO, MES));
+        c.put("GastoRepository.findParcelasEmAbertoEntre",
+                () -> gastoRepository.findParcelasEmAbertoEntre(UID, ANO, ANO + 10, PERIODO, PERIODO + 119));
+        c.put("GastoRepository.findTextosDoMes", () -> gastoRepository.findTextosDoMes(UID, MES, ANO));
+        c.put("GastoRepository.findIdsDoMes",
+                () -> gastoRepository.findIdsDoMes(UID, MES, ANO, Sort.by(Sort.Direction.DESC, "valor", "id")));
+        c.put("GastoRepository.contarDescricoes", () -> gastoRepository.contarDescricoes(UID));
+        c.put("GastoRepository.findDescricoesCategorizadas", () -> gastoRepository.findDescricoesCategorizadas(UID, "Outros"));
+        c.put("GastoRepository.findAssinaturasExistentes",
+                () -> gastoRepository.findAssinaturasExistentes(UID, List.of("a", "b")));
+        c.put("GastoRepository.findAssinaturasByUserId", () -> gastoRepository.findAssinaturasByUserId(UID));
+        c.put("GastoRepository.countByUserIdAndAssinaturaIsNotNull",
+                () -> gastoRepository.countByUserIdAndAssinaturaIsNotNull(UID));
+        c.put("GastoRepository.findSemAssinaturaEntre", () -> gastoRepository.findSemAssinaturaEntre(UID, ANO, ANO));
+        c.put("GastoRepository.findImportadosSemAssinatura",
+                () -> gastoRepository.findImportadosSemAssinatura(0L, "Pessoal", PageRequest.of(0, 1000)));
+        c.put("GastoRepository.vincularParcelamento",
+                () -> gastoRepository.vincularParcelamento(parcelamentoId, UID, List.of("a", "b")));
+        c.put("GastoRepository.findByUserIdAndIdIn",
+                () -> gastoRepository.findByUserIdAndIdIn(UID, List.of(gastoId, gastoId - 1), Pageable.unpaged()));
+        c.put("GastoRepository.findParcelasMaterializadas",
+                () -> gastoRepository.findParcelasMaterializadas(List.of(parcelamentoId)));
+        c.put("GastoRepository.findFirstByParcelamentoIdAndParcelaAtual",
+                () -> gastoRepository.findFirstByParcelamentoIdAndParcelaAtual(parcelamentoId, 1));
+        c.put("GastoRepository.findPeriodoById", () -> gastoRepository.findPeriodoById(gastoId));
+        // GET /api/gastos/mes/{mes} e /filtros: sem usuário, por upper(mes_pagamento)
+        c.put("GastoRepository.findByMesPagamentoIgnoreCase",
+                () -> gastoRepository.findByMesPagamentoIgnoreCase(String.valueOf(MES)));
+        c.put("GastoRepository.findByMesPagamentoIgnoreCaseAndAnoPagamento",
+                () -> gastoRepository.findByMesPagamentoIgnoreCaseAndAnoPagamento(String.valueOf(MES), ANO));
+        c.put("GastoRepository.findByMesPagamentoIgnoreCaseAndAnoPagamentoAndPago",
+                () -> gastoRepository.findByMesPagamentoIgnoreCaseAndAnoPagamentoAndPago(String.valueOf(MES), ANO, false));
+        for (String ordem : List.of("id,desc", "valor,desc", "descricao,asc")) {
+            c.put("PaginacaoCursorService.buscar " + ordem,
+                    () -> paginacaoCursorService.buscar(UID, MES, ANO, null, null, ordem, null, 20, false));
+        }
+        c.put("ExportacaoService.exportar",
+                () -> exportacaoService.exportar(UID, ExportacaoService.Formato.NDJSON, OutputStream.nullOutputStream()));
+        c.put("ConsolidadoMensalRepository.findByUserIdAndAnoAndMes",
+                () -> consolidadoRepository.findByUserIdAndAnoAndMes(UID, ANO, MES));
+        c.put("ConsolidadoMensalRepository.excluirPeriodo", () -> consolidadoRepository.excluirPeriodo(UID, ANO, MES));
+        c.put("ConsolidadoMensalRepository.findEntre",
+                () -> consolidadoRepository.findEntre(UID, ANO - 1, ANO, PERIODO - 11, PERIODO));
+        c.put("ConsolidadoMensalRepository.resumoPorCategoria", () -> consolidadoRepository.resumoPorCategoria(MES, ANO, UID));
+        c.put("ConsolidadoMensalRepository.despesasPorMes", () -> consolidadoRepository.despesasPorMes(UID));
+        c.put("SaldoMensalRepository.valores", () -> saldoRepository.valores(UID, ANO, MES));
+        c.put("SaldoMensalRepository.acumuladosAntes",
+                () -> saldoRepository.acumuladosAntes(UID, ANO, PERIODO, PageRequest.of(0, 1)));
+        c.put("SaldoMensalRepository.findEntre", () -> saldoRepository.findEntre(UID, ANO - 1, ANO, PERIODO - 11, PERIODO));
+        c.put("SaldoMensalRepository.atualizarMes", () -> saldoRepository.atualizarMes(UID, ANO, MES, 1.0, 1.0, 0.0));
+        c.put("SaldoMensalRepository.deslocarDepois", () -> saldoRepository.deslocarDepois(UID, ANO, PERIODO, 1.0));
+        c.put("SaldoMensalRepository.excluirMes", () -> saldoRepository.excluirMes(UID, ANO, MES));
+        c.put("SaldoMensalRepository.findByUserId", () -> saldoRepository.findByUserId(UID));
+        c.put("SaldoMensalRepository.excluirUsuario", () -> saldoRepository.excluirUsuario(UID));
+        c.put("ParcelamentoRepository.findAtivosEntre",
+                () -> parcelamentoRepository.findAtivosEntre(UID, PERIODO, PERIODO + 119));
+        c.put("ParcelamentoRepository.findByUserIdAndAssinaturaIn",
+                () -> parcelamentoRepository.findByUserIdAndAssinaturaIn(UID, List.of("a", "b")));
+        c.put("ParcelaExcluidaRepository.findExcluidas",
+                () -> parcelaExcluidaRepository.findExcluidas(List.of(parcelamentoId)));
+        c.put("ParcelaExcluidaRepository.existsByParcelamentoIdAndParcela",
+                () -> parcelaExcluidaRepository.existsByParcelamentoIdAndParcela(parcelamentoId, 1));
+        c.put("ReceitaMensalRepository.findByAnoAndMesAndUsuarioId",
+                () -> receitaRepository.findByAnoAndMesAndUsuarioId(ANO, MES, UID));
+        c.put("ReceitaMensalRepository.findByUsuarioId", () -> receitaRepository.findByUsuarioId(UID));
+        c.put("ReceitaMensalRepository.findEntre",
+                () -> receitaRepository.findEntre(UID, ANO, ANO + 10, PERIODO, PERIODO + 119));
+        return c;
+    }
+
+    // "?" do JDBC para "$n", que é o que o EXPLAIN (generic_plan) aceita; ignora "?" dentro de literais
+    private static String numerarParametros(String sql) {
+        StringBuilder r = new StringBuilder(sql.length() + 16);
+        boolean literal = false;
+        int n = 0;
+        for (char ch : sql.toCharArray()) {
+            if (ch == '\'') literal = !literal;
+            if (ch == '?' && !literal) r.append('$').append(++n);
+            else r.append(ch);
+        }
+        return r.toString();
+    }
+
+    // "Seq Scan on tabela" e índices percorridos inteiros (sem condição, ou sem condição na primeira coluna,
+    // como "assinatura is not null" em (user_id, assinatura)), em qualquer nível do plano
+    private List<String> varreduras(String json) {
+        List<String> encontradas = new ArrayList<>();
+        try {
+            for (JsonNode raiz : objectMapper.readTree(json)) varreduras(raiz.path("Plan"), encontradas);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Plano ilegível: " + json, e);
+        }
+        return encontradas;
+    }
+
+    private void varreduras(JsonNode no, List<String> encontradas) {
+        String tipo = no.path("Node Type").asText();
+        String indice = no.path("Index Name").asText();
+        if (tipo.equals("Seq Scan")) {
+            encontradas.add("Seq Scan on " + no.path("Relation Name").asText());
+        } else if (tipo.endsWith("Index Scan") || tipo.equals("Index Only Scan")) {
+            String primeira = primeirasColunas.computeIfAbsent(indice, this::primeiraColuna);
+            if (!no.has("Index Cond")) {
+                encontradas.add(tipo + " sem condição em " + indice);
+            } else if (!primeira.isEmpty() && !no.path("Index Cond").asText().matches("(?s).*\\b" + primeira + "\\b.*")) {
+                encontradas.add(tipo + " sem condição em " + primeira + " de " + indice);
+            }
+        }
+        for (JsonNode filho : no.path("Plans")) varreduras(filho, encontradas);
+    }
+
+    // primeira coluna do índice; vazio quando é uma expressão
+    private String primeiraColuna(String indice) {
+        List<String> r = jdbc.queryForList("""
+                select coalesce(a.attname, '') from pg_class c
+                join pg_index i on i.indexrelid = c.oid
+                left join pg_attribute a on a.attrelid = i.indrelid and a.attnum = i.indkey[0]
+                where c.relname = ?""", String.class, indice);
+        return r.isEmpty() ? "" : r.get(0);
+    }
+}
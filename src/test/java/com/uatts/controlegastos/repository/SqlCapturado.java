@@ -0,0 +1,28 @@
+package com.uatts.controlegastos.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Guarda o SQL que o Hibernate prepara na thread, para o EXPLAIN de {@link PlanosConsultasTest}. */
+public class SqlCapturado implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ThreadLocal<List<String>> SQLS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        SQLS.get().add(sql);
+        return sql;
+    }
+
+    static void limpar() {
+        SQLS.get().clear();
+    }
+
+    static List<String> lidos() {
+        return new ArrayList<>(SQLS.get());
+    }
+}